@@ -0,0 +1,375 @@
+package com.livewallpaper.api.util;
+
+import com.livewallpaper.api.cache.PixelFormat;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Mã hoá/giải mã khối nén BC1 (DXT1) và BC3 (DXT5), thuần Java.
+ *
+ * - Màu của mỗi khối 4×4: hai màu gốc RGB565 lấy theo trục chính (lặp luỹ thừa trên ma trận hiệp phương sai)
+ *   của 16 pixel, tinh chỉnh thêm một lần bằng bình phương tối thiểu; mỗi pixel chọn 1 trong 4 màu nội suy.
+ * - Alpha (BC3): hai giá trị gốc là max/min của khối, 8 mức nội suy, chỉ số 3 bit.
+ * - Khối được ghi theo thứ tự dòng; khối ở mép phải/dưới lặp lại pixel cuối.
+ *
+ * Không giữ trạng thái: gọi song song từ nhiều thread được.
+ */
+public final class BcCodec {
+
+    private BcCodec() {
+    }
+
+    /** Ảnh RGBA có pixel nào không đục hoàn toàn không (quyết định BC1 hay BC3) */
+    public static boolean hasAlpha(ByteBuffer rgba, int width, int height) {
+        int end = width * height * 4;
+        for (int i = 3; i < end; i += 4) {
+            if (rgba.get(i) != (byte) 0xFF) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Nén ảnh RGBA thành các khối BC1/BC3.
+     *
+     * @param rgba RGBA nguồn (từ vị trí 0)
+     * @param format BC1 hoặc BC3
+     * @param out buffer đích (từ vị trí 0), ít nhất format.byteSize(width, height) byte
+     */
+    public static void encode(ByteBuffer rgba, int width, int height, PixelFormat format, ByteBuffer out) {
+        requireCompressed(format);
+        ByteBuffer dst = out.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int[] block = new int[16 * 4];
+        int[] palette = new int[16];
+        int pos = 0;
+        for (int by = 0; by < height; by += 4) {
+            for (int bx = 0; bx < width; bx += 4) {
+                loadBlock(rgba, width, height, bx, by, block);
+                if (format == PixelFormat.BC3) {
+                    encodeAlpha(block, dst, pos);
+                    pos += 8;
+                }
+                encodeColor(block, palette, dst, pos);
+                pos += 8;
+            }
+        }
+    }
+
+    /**
+     * Giải nén các khối BC1/BC3 về RGBA (dùng để đo chất lượng, thu nhỏ, hoặc khi GPU không hỗ trợ S3TC).
+     *
+     * @param blocks khối nén (từ vị trí 0)
+     * @param rgba buffer đích (từ vị trí 0), ít nhất width × height × 4 byte
+     */
+    public static void decode(ByteBuffer blocks, int width, int height, PixelFormat format, ByteBuffer rgba) {
+        requireCompressed(format);
+        ByteBuffer src = blocks.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int[] block = new int[16 * 4];
+        int[] palette = new int[16];
+        int pos = 0;
+        for (int by = 0; by < height; by += 4) {
+            for (int bx = 0; bx < width; bx += 4) {
+                if (format == PixelFormat.BC3) {
+                    decodeAlpha(src, pos, block, palette);
+                    pos += 8;
+                    decodeColor(src, pos, block, palette, true);
+                } else {
+                    decodeColor(src, pos, block, palette, false);
+                }
+                pos += 8;
+                storeBlock(block, width, height, bx, by, rgba);
+            }
+        }
+    }
+
+    private static void requireCompressed(PixelFormat format) {
+        if (!format.isCompressed()) {
+            throw new IllegalArgumentException("Định dạng không phải khối nén: " + format);
+        }
+    }
+
+    /** Đọc khối 4×4 vào block (r, g, b, a của từng pixel), lặp lại pixel cuối ở mép */
+    private static void loadBlock(ByteBuffer rgba, int width, int height, int bx, int by, int[] block) {
+        for (int py = 0; py < 4; py++) {
+            int y = Math.min(by + py, height - 1);
+            for (int px = 0; px < 4; px++) {
+                int x = Math.min(bx + px, width - 1);
+                int src = (y * width + x) * 4;
+                int dst = (py * 4 + px) * 4;
+                block[dst] = rgba.get(src) & 0xFF;
+                block[dst + 1] = rgba.get(src + 1) & 0xFF;
+                block[dst + 2] = rgba.get(src + 2) & 0xFF;
+                block[dst + 3] = rgba.get(src + 3) & 0xFF;
+            }
+        }
+    }
+
+    private static void storeBlock(int[] block, int width, int height, int bx, int by, ByteBuffer rgba) {
+        for (int py = 0; py < 4 && by + py < height; py++) {
+            for (int px = 0; px < 4 && bx + px < width; px++) {
+                int src = (py * 4 + px) * 4;
+                int dst = ((by + py) * width + bx + px) * 4;
+                rgba.put(dst, (byte) block[src]);
+                rgba.put(dst + 1, (byte) block[src + 1]);
+                rgba.put(dst + 2, (byte) block[src + 2]);
+                rgba.put(dst + 3, (byte) block[src + 3]);
+            }
+        }
+    }
+
+    // ---- Màu ----
+
+    private static void encodeColor(int[] block, int[] palette, ByteBuffer dst, int pos) {
+        int sumR = 0, sumG = 0, sumB = 0;
+        int minR = 255, minG = 255, minB = 255, maxR = 0, maxG = 0, maxB = 0;
+        for (int i = 0; i < 64; i += 4) {
+            int r = block[i], g = block[i + 1], b = block[i + 2];
+            sumR += r;
+            sumG += g;
+            sumB += b;
+            minR = Math.min(minR, r);
+            minG = Math.min(minG, g);
+            minB = Math.min(minB, b);
+            maxR = Math.max(maxR, r);
+            maxG = Math.max(maxG, g);
+            maxB = Math.max(maxB, b);
+        }
+
+        int c0, c1;
+        if (minR == maxR && minG == maxG && minB == maxB) {
+            c0 = c1 = to565(minR, minG, minB); // khối một màu
+        } else {
+            // Hiệp phương sai quanh trung bình
+            float mr = sumR / 16f, mg = sumG / 16f, mb = sumB / 16f;
+            float rr = 0, rg = 0, rb = 0, gg = 0, gb = 0, bb = 0;
+            for (int i = 0; i < 64; i += 4) {
+                float r = block[i] - mr, g = block[i + 1] - mg, b = block[i + 2] - mb;
+                rr += r * r;
+                rg += r * g;
+                rb += r * b;
+                gg += g * g;
+                gb += g * b;
+                bb += b * b;
+            }
+            // Lặp luỹ thừa từ đường chéo của hộp bao để lấy trục chính
+            float vr = maxR - minR, vg = maxG - minG, vb = maxB - minB;
+            for (int iter = 0; iter < 4; iter++) {
+                float nr = vr * rr + vg * rg + vb * rb;
+                float ng = vr * rg + vg * gg + vb * gb;
+                float nb = vr * rb + vg * gb + vb * bb;
+                float m = Math.max(Math.abs(nr), Math.max(Math.abs(ng), Math.abs(nb)));
+                if (m == 0) break;
+                vr = nr / m;
+                vg = ng / m;
+                vb = nb / m;
+            }
+
+            // Hai pixel xa nhất theo trục làm màu gốc
+            float minDot = Float.MAX_VALUE, maxDot = -Float.MAX_VALUE;
+            int minI = 0, maxI = 0;
+            for (int i = 0; i < 64; i += 4) {
+                float d = block[i] * vr + block[i + 1] * vg + block[i + 2] * vb;
+                if (d < minDot) {
+                    minDot = d;
+                    minI = i;
+                }
+                if (d > maxDot) {
+                    maxDot = d;
+                    maxI = i;
+                }
+            }
+            c0 = to565(block[maxI], block[maxI + 1], block[maxI + 2]);
+            c1 = to565(block[minI], block[minI + 1], block[minI + 2]);
+        }
+
+        long best = match(block, palette, c0, c1);
+        if (c0 != c1) {
+            long refined = refine(block, (int) best);
+            if (refined >= 0) {
+                int r0 = (int) (refined >>> 16);
+                int r1 = (int) (refined & 0xFFFF);
+                long candidate = match(block, palette, r0, r1);
+                if ((candidate >>> 32) < (best >>> 32)) {
+                    best = candidate;
+                    c0 = r0;
+                    c1 = r1;
+                }
+            }
+        }
+
+        int indices = (int) best;
+        if (c0 < c1) {
+            // Chế độ 4 màu cần c0 > c1: đổi chỗ hai màu gốc, đổi chỉ số 0↔1 và 2↔3
+            int t = c0;
+            c0 = c1;
+            c1 = t;
+            indices ^= 0x55555555;
+        } else if (c0 == c1) {
+            indices = 0;
+        }
+        dst.putShort(pos, (short) c0);
+        dst.putShort(pos + 2, (short) c1);
+        dst.putInt(pos + 4, indices);
+    }
+
+    /**
+     * Chọn màu gần nhất trong bảng 4 màu của (c0, c1) cho từng pixel.
+     *
+     * @return tổng sai số bình phương ở 32 bit cao, chỉ số 2 bit của 16 pixel ở 32 bit thấp
+     */
+    private static long match(int[] block, int[] palette, int c0, int c1) {
+        palette(c0, c1, true, palette);
+        long error = 0;
+        int indices = 0;
+        for (int p = 0; p < 16; p++) {
+            int i = p * 4;
+            int bestIndex = 0;
+            int bestDist = Integer.MAX_VALUE;
+            for (int k = 0; k < 4; k++) {
+                int dr = block[i] - palette[k * 4];
+                int dg = block[i + 1] - palette[k * 4 + 1];
+                int db = block[i + 2] - palette[k * 4 + 2];
+                int dist = dr * dr + dg * dg + db * db;
+                if (dist < bestDist) {
+                    bestDist = dist;
+                    bestIndex = k;
+                }
+            }
+            error += bestDist;
+            indices |= bestIndex << (p * 2);
+        }
+        return (error << 32) | (indices & 0xFFFFFFFFL);
+    }
+
+    /** Trọng số của màu gốc 0 theo chỉ số (chế độ 4 màu), tính theo phần ba */
+    private static final int[] WEIGHT0 = {3, 0, 2, 1};
+
+    /**
+     * Giải bình phương tối thiểu cho hai màu gốc khi đã biết chỉ số của từng pixel.
+     *
+     * @return c0 (16 bit cao) và c1 (16 bit thấp) dạng RGB565, hoặc -1 nếu mọi pixel cùng một chỉ số
+     */
+    private static long refine(int[] block, int indices) {
+        float aa = 0, ab = 0, bb = 0;
+        float axR = 0, axG = 0, axB = 0, bxR = 0, bxG = 0, bxB = 0;
+        for (int p = 0; p < 16; p++) {
+            float a = WEIGHT0[(indices >>> (p * 2)) & 3] / 3f;
+            float b = 1 - a;
+            int i = p * 4;
+            aa += a * a;
+            ab += a * b;
+            bb += b * b;
+            axR += a * block[i];
+            axG += a * block[i + 1];
+            axB += a * block[i + 2];
+            bxR += b * block[i];
+            bxG += b * block[i + 1];
+            bxB += b * block[i + 2];
+        }
+        float det = aa * bb - ab * ab;
+        if (Math.abs(det) < 1e-6f) return -1;
+        float inv = 1 / det;
+        int r0 = clamp((bb * axR - ab * bxR) * inv), g0 = clamp((bb * axG - ab * bxG) * inv), b0 = clamp((bb * axB - ab * bxB) * inv);
+        int r1 = clamp((aa * bxR - ab * axR) * inv), g1 = clamp((aa * bxG - ab * axG) * inv), b1 = clamp((aa * bxB - ab * axB) * inv);
+        return (long) to565(r0, g0, b0) << 16 | to565(r1, g1, b1);
+    }
+
+    private static void decodeColor(ByteBuffer src, int pos, int[] block, int[] palette, boolean alwaysFourColors) {
+        int c0 = src.getShort(pos) & 0xFFFF;
+        int c1 = src.getShort(pos + 2) & 0xFFFF;
+        int indices = src.getInt(pos + 4);
+        boolean four = alwaysFourColors || c0 > c1;
+        palette(c0, c1, four, palette);
+        for (int p = 0; p < 16; p++) {
+            int k = (indices >>> (p * 2)) & 3;
+            int i = p * 4;
+            block[i] = palette[k * 4];
+            block[i + 1] = palette[k * 4 + 1];
+            block[i + 2] = palette[k * 4 + 2];
+            if (!alwaysFourColors) block[i + 3] = palette[k * 4 + 3];
+        }
+    }
+
+    /**
+     * Ghi bảng màu RGBA của khối vào p: 4 màu (c0, c1, 2/3, 1/3) hoặc 3 màu + đen trong suốt.
+     */
+    private static void palette(int c0, int c1, boolean fourColors, int[] p) {
+        expand565(c0, p, 0);
+        expand565(c1, p, 4);
+        for (int c = 0; c < 3; c++) {
+            int a = p[c], b = p[4 + c];
+            if (fourColors) {
+                p[8 + c] = (2 * a + b) / 3;
+                p[12 + c] = (a + 2 * b) / 3;
+            } else {
+                p[8 + c] = (a + b) / 2;
+                p[12 + c] = 0;
+            }
+        }
+        p[3] = 255;
+        p[7] = 255;
+        p[11] = 255;
+        p[15] = fourColors ? 255 : 0;
+    }
+
+    private static void expand565(int c, int[] out, int offset) {
+        int r = (c >>> 11) & 31, g = (c >>> 5) & 63, b = c & 31;
+        out[offset] = (r << 3) | (r >>> 2);
+        out[offset + 1] = (g << 2) | (g >>> 4);
+        out[offset + 2] = (b << 3) | (b >>> 2);
+    }
+
+    private static int to565(int r, int g, int b) {
+        return ((r * 31 + 127) / 255) << 11 | ((g * 63 + 127) / 255) << 5 | ((b * 31 + 127) / 255);
+    }
+
+    private static int clamp(float v) {
+        return Math.max(0, Math.min(255, Math.round(v)));
+    }
+
+    // ---- Alpha (BC3) ----
+
+    private static void encodeAlpha(int[] block, ByteBuffer dst, int pos) {
+        int min = 255, max = 0;
+        for (int i = 3; i < 64; i += 4) {
+            min = Math.min(min, block[i]);
+            max = Math.max(max, block[i]);
+        }
+        long indices = 0;
+        if (max > min) {
+            // a0 = max > a1 = min: chế độ 8 mức; mức t/7 tính từ min ứng với chỉ số 8 - t (t = 7 → 0, t = 0 → 1)
+            int range = max - min;
+            for (int p = 0; p < 16; p++) {
+                int t = ((block[p * 4 + 3] - min) * 7 + range / 2) / range;
+                int code = (t == 7) ? 0 : (t == 0) ? 1 : 8 - t;
+                indices |= (long) code << (p * 3);
+            }
+        }
+        dst.put(pos, (byte) max);
+        dst.put(pos + 1, (byte) min);
+        for (int k = 0; k < 6; k++) {
+            dst.put(pos + 2 + k, (byte) (indices >>> (k * 8)));
+        }
+    }
+
+    private static void decodeAlpha(ByteBuffer src, int pos, int[] block, int[] levels) {
+        int a0 = src.get(pos) & 0xFF;
+        int a1 = src.get(pos + 1) & 0xFF;
+        long indices = 0;
+        for (int k = 0; k < 6; k++) {
+            indices |= (long) (src.get(pos + 2 + k) & 0xFF) << (k * 8);
+        }
+        levels[0] = a0;
+        levels[1] = a1;
+        if (a0 > a1) {
+            for (int k = 2; k < 8; k++) levels[k] = ((8 - k) * a0 + (k - 1) * a1) / 7;
+        } else {
+            for (int k = 2; k < 6; k++) levels[k] = ((6 - k) * a0 + (k - 1) * a1) / 5;
+            levels[6] = 0;
+            levels[7] = 255;
+        }
+        for (int p = 0; p < 16; p++) {
+            block[p * 4 + 3] = levels[(int) (indices >>> (p * 3)) & 7];
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.livewallpaper.api.archive;
+
+import com.livewallpaper.api.cache.FrameDelta;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Mã hoá delta theo tile cho codec DELTA của archive.
+ *
+ * Payload mỗi frame:
+ * <pre>
+ *   type u8 (0 = keyframe, 1 = delta)
+ *   keyframe: RGBA thô (width × height × 4)
+ *   delta:    tileSize u16 | tileCount u32 | tileCount × tileIndex u32 | dữ liệu RGBA của từng tile
+ * </pre>
+ * Tile ở mép phải/dưới bị cắt theo kích thước ảnh. Dữ liệu mỗi tile liền nhau, từng dòng một,
+ * nên có thể upload thẳng bằng glTexSubImage2D.
+ */
+final class DeltaCodec {
+
+    static final int TYPE_KEY = 0;
+    static final int TYPE_DELTA = 1;
+
+    static final int DEFAULT_TILE_SIZE = 32;
+    static final int DEFAULT_KEYFRAME_INTERVAL = 30;
+
+    private DeltaCodec() {
+    }
+
+    /**
+     * Mã hoá frame hiện tại so với frame trước.
+     * Nếu delta lớn hơn nửa frame thì ghi keyframe (rẻ hơn khi giải mã).
+     *
+     * @param prev RGBA frame trước (null → keyframe)
+     * @param cur RGBA frame hiện tại
+     * @param forceKey bắt buộc ghi keyframe
+     * @param out buffer đích, đủ lớn cho một keyframe (width × height × 4 + 1)
+     * @return payload (position 0, limit = độ dài)
+     */
+    static ByteBuffer encode(byte[] prev, byte[] cur, int width, int height, int tileSize, boolean forceKey, ByteBuffer out) {
+        out.clear();
+        if (prev == null || forceKey) {
+            return out.put((byte) TYPE_KEY).put(cur).flip();
+        }
+
+        int tilesX = (width + tileSize - 1) / tileSize;
+        int tilesY = (height + tileSize - 1) / tileSize;
+        int[] dirty = new int[tilesX * tilesY];
+        int count = 0;
+        long dataBytes = 0;
+
+        for (int ty = 0; ty < tilesY; ty++) {
+            for (int tx = 0; tx < tilesX; tx++) {
+                if (tileChanged(prev, cur, width, height, tileSize, tx, ty)) {
+                    dirty[count++] = ty * tilesX + tx;
+                    dataBytes += (long) tileWidth(width, tileSize, tx) * tileHeight(height, tileSize, ty) * 4;
+                }
+            }
+        }
+
+        long deltaBytes = 1 + 2 + 4 + 4L * count + dataBytes;
+        if (deltaBytes * 2 > (long) width * height * 4) {
+            return out.put((byte) TYPE_KEY).put(cur).flip();
+        }
+
+        out.put((byte) TYPE_DELTA).putShort((short) tileSize).putInt(count);
+        for (int i = 0; i < count; i++) {
+            out.putInt(dirty[i]);
+        }
+        for (int i = 0; i < count; i++) {
+            int tx = dirty[i] % tilesX;
+            int ty = dirty[i] / tilesX;
+            int tw = tileWidth(width, tileSize, tx);
+            int th = tileHeight(height, tileSize, ty);
+            for (int row = 0; row < th; row++) {
+                int src = ((ty * tileSize + row) * width + tx * tileSize) * 4;
+                out.put(cur, src, tw * 4);
+            }
+        }
+        return out.flip();
+    }
+
+    static boolean isKeyframe(ByteBuffer payload) {
+        return payload.get(0) == TYPE_KEY;
+    }
+
+    /**
+     * Áp dụng payload lên canvas RGBA (keyframe: chép toàn bộ, delta: chỉ các tile đổi).
+     */
+    static void apply(ByteBuffer payload, ByteBuffer canvas, int width, int height) {
+        if (isKeyframe(payload)) {
+            canvas.put(0, payload, 1, width * height * 4);
+            return;
+        }
+        forEachTile(payload, width, height, (x, y, w, h, data, offset) -> {
+            for (int row = 0; row < h; row++) {
+                canvas.put(((y + row) * width + x) * 4, data, offset + row * w * 4, w * 4);
+            }
+        });
+    }
+
+    /**
+     * Các tile đổi của một frame delta (view trên payload, không copy).
+     *
+     * @param baseFrame frame trước mà delta được tính từ đó
+     * @return FrameDelta, hoặc null nếu payload là keyframe
+     */
+    static FrameDelta delta(ByteBuffer payload, int width, int height, int baseFrame) {
+        if (isKeyframe(payload)) return null;
+        int count = payload.getInt(3);
+        int[] rects = new int[count * 4];
+        ByteBuffer[] tiles = new ByteBuffer[count];
+        int[] n = {0};
+        forEachTile(payload, width, height, (x, y, w, h, data, offset) -> {
+            int i = n[0]++;
+            rects[i * 4] = x;
+            rects[i * 4 + 1] = y;
+            rects[i * 4 + 2] = w;
+            rects[i * 4 + 3] = h;
+            tiles[i] = data.slice(offset, w * h * 4);
+        });
+        return new FrameDelta(baseFrame, rects, tiles);
+    }
+
+    private interface TileVisitor {
+        void visit(int x, int y, int w, int h, ByteBuffer data, int offset);
+    }
+
+    private static void forEachTile(ByteBuffer payload, int width, int height, TileVisitor visitor) {
+        int tileSize = payload.getShort(1) & 0xFFFF;
+        int count = payload.getInt(3);
+        int tilesX = (width + tileSize - 1) / tileSize;
+        int data = 7 + 4 * count;
+        for (int i = 0; i < count; i++) {
+            int tile = payload.getInt(7 + 4 * i);
+            int tx = tile % tilesX;
+            int ty = tile / tilesX;
+            int tw = tileWidth(width, tileSize, tx);
+            int th = tileHeight(height, tileSize, ty);
+            visitor.visit(tx * tileSize, ty * tileSize, tw, th, payload, data);
+            data += tw * th * 4;
+        }
+    }
+
+    private static boolean tileChanged(byte[] prev, byte[] cur, int width, int height, int tileSize, int tx, int ty) {
+        int tw = tileWidth(width, tileSize, tx);
+        int th = tileHeight(height, tileSize, ty);
+        for (int row = 0; row < th; row++) {
+            int from = ((ty * tileSize + row) * width + tx * tileSize) * 4;
+            int to = from + tw * 4;
+            if (!Arrays.equals(prev, from, to, cur, from, to)) return true;
+        }
+        return false;
+    }
+
+    private static int tileWidth(int width, int tileSize, int tx) {
+        return Math.min(tileSize, width - tx * tileSize);
+    }
+
+    private static int tileHeight(int height, int tileSize, int ty) {
+        return Math.min(tileSize, height - ty * tileSize);
+    }
+}
@@ -0,0 +1,98 @@
+package com.livewallpaper.api.source;
+
+import com.livewallpaper.api.cache.FrameBuffer;
+import com.livewallpaper.api.cache.FrameStore;
+import com.livewallpaper.api.util.ImageUtils;
+import com.livewallpaper.api.util.PixelConverter;
+import com.livewallpaper.api.util.Resampler;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Nguồn frame từ thư mục ảnh, theo danh sách frame đã quét sẵn (FolderIndex).
+ *
+ * Tier > 0: decode với lấy mẫu thưa 2^(tier-1) rồi thu nhỏ một nửa bằng lọc hộp,
+ * nên không bao giờ decode/convert ảnh ở độ phân giải đầy đủ.
+ * Byte của file có thể được giữ trong tầng mã hoá của cache (readEncoded/decodeFrame).
+ */
+public class FolderFrameSource implements FrameSource {
+
+    private final FolderIndex index;
+
+    public FolderFrameSource(FolderIndex index) {
+        this.index = index;
+    }
+
+    /** Thư mục frame_0000.png, frame_0001.png... với số frame và kích thước đã biết */
+    public FolderFrameSource(Path folder, int frames, int width, int height) {
+        this(FolderIndex.ofPattern(folder, frames, width, height));
+    }
+
+    @Override
+    public int getFrameCount() {
+        return index.getFrameCount();
+    }
+
+    @Override
+    public int getWidth() {
+        return index.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return index.getHeight();
+    }
+
+    @Override
+    public int canonicalFrame(int index) {
+        return this.index.canonicalFrame(index);
+    }
+
+    @Override
+    public FrameBuffer readFrame(int index, int tier, FrameStore store, PixelConverter converter) {
+        if (index < 0 || index >= getFrameCount()) return null;
+        return toBuffer(ImageUtils.loadImage(getFramePath(index), subsampling(tier)), tier, store, converter);
+    }
+
+    @Override
+    public byte[] readEncoded(int index) throws IOException {
+        if (index < 0 || index >= getFrameCount()) {
+            throw new IOException("Frame " + index + " ngoài phạm vi 0.." + (getFrameCount() - 1));
+        }
+        return ImageUtils.readBytes(getFramePath(index));
+    }
+
+    @Override
+    public FrameBuffer decodeFrame(int index, byte[] encoded, int tier, FrameStore store, PixelConverter converter) {
+        if (index < 0 || index >= getFrameCount()) return null;
+        return toBuffer(ImageUtils.loadImage(encoded, subsampling(tier)), tier, store, converter);
+    }
+
+    private static int subsampling(int tier) {
+        return (tier > 0) ? 1 << (tier - 1) : 1;
+    }
+
+    private static FrameBuffer toBuffer(BufferedImage img, int tier, FrameStore store, PixelConverter converter) {
+        if (img == null) return null;
+        FrameBuffer buffer = store.allocate(img.getWidth(), img.getHeight());
+        converter.convert(img, buffer.pixels());
+        if (tier == 0) return buffer;
+
+        FrameBuffer scaled = store.allocate(Resampler.halfSize(img.getWidth()), Resampler.halfSize(img.getHeight()));
+        Resampler.halve(buffer.pixels(), img.getWidth(), img.getHeight(), scaled.pixels());
+        buffer.release();
+        return scaled;
+    }
+
+    /** Đường dẫn frame theo index */
+    public Path getFramePath(int index) {
+        return this.index.getPath(index);
+    }
+
+    @Override
+    public void close() {
+        // Không giữ tài nguyên nào
+    }
+}
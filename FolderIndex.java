@@ -0,0 +1,300 @@
+package com.livewallpaper.api.source;
+
+import com.livewallpaper.api.util.ImageUtils;
+
+import java.awt.Dimension;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32C;
+
+/**
+ * Danh sách frame của một thư mục ảnh, quét một lần lúc đăng ký.
+ *
+ * - Nhận mọi cách đặt tên: frame_0001.png, img1.jpg, 00042.png... Thứ tự là thứ tự tự nhiên
+ *   (các đoạn số so sánh theo giá trị), nên "f2" đứng trước "f10" dù có đệm số 0 hay không.
+ * - Kích thước lấy từ header ảnh đầu tiên (ImageReader), không decode.
+ * - Mỗi file được lấy dấu vân tay (CRC32C + Adler32 của byte đã mã hoá, song song nhiều thread);
+ *   các frame giống hệt nhau trỏ về cùng một frame gốc (canonicalFrame), nên chỉ decode/cache một lần.
+ * - Có thể lưu vào thư mục cache; lần sau chỉ đọc lại nếu danh sách file, thời gian sửa của thư mục
+ *   và thời gian sửa/kích thước của các file không đổi.
+ */
+public final class FolderIndex {
+
+    private static final String MAGIC = "LWPIDX 2";
+    private static final List<String> EXTENSIONS = Arrays.asList(".png", ".jpg", ".jpeg", ".bmp", ".webp");
+
+    private final Path[] frames;
+    private final int width;
+    private final int height;
+
+    /** Dấu vân tay và kích thước file của từng frame (null nếu không lấy dấu) */
+    private final long[] fingerprints;
+    private final long[] sizes;
+
+    /** Frame gốc (frame đầu tiên có cùng nội dung) của từng frame */
+    private final int[] canonical;
+    private final int uniqueCount;
+
+    private FolderIndex(Path[] frames, int width, int height, long[] fingerprints, long[] sizes) {
+        this.frames = frames;
+        this.width = width;
+        this.height = height;
+        this.fingerprints = fingerprints;
+        this.sizes = sizes;
+        this.canonical = new int[frames.length];
+
+        Map<Long, Integer> first = new HashMap<>();
+        int unique = 0;
+        for (int i = 0; i < frames.length; i++) {
+            canonical[i] = i;
+            if (fingerprints != null) {
+                Integer j = first.putIfAbsent(fingerprints[i], i);
+                if (j != null && sizes[j] == sizes[i]) {
+                    canonical[i] = j;
+                    continue;
+                }
+            }
+            unique++;
+        }
+        this.uniqueCount = unique;
+    }
+
+    public int getFrameCount() {
+        return frames.length;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /** Đường dẫn frame thứ index (không cấp phát) */
+    public Path getPath(int index) {
+        return frames[index];
+    }
+
+    /** Frame đầu tiên có nội dung giống hệt frame index */
+    public int canonicalFrame(int index) {
+        return canonical[index];
+    }
+
+    /** Số frame có nội dung khác nhau */
+    public int getUniqueCount() {
+        return uniqueCount;
+    }
+
+    /**
+     * Lập danh sách theo tên cố định frame_0000.png, frame_0001.png... (không quét thư mục).
+     */
+    public static FolderIndex ofPattern(Path folder, int frames, int width, int height) {
+        Path[] paths = new Path[frames];
+        for (int i = 0; i < frames; i++) {
+            paths[i] = folder.resolve(String.format("frame_%04d.png", i));
+        }
+        return new FolderIndex(paths, width, height, null, null);
+    }
+
+    /**
+     * Lấy danh sách frame của thư mục, dùng bản lưu trong cacheDir nếu còn hợp lệ.
+     *
+     * @param folder thư mục ảnh
+     * @param cacheDir thư mục lưu danh sách (null = không lưu)
+     * @throws IOException nếu không đọc được thư mục, không có ảnh nào hoặc không đọc được kích thước
+     */
+    public static FolderIndex load(Path folder, Path cacheDir) throws IOException {
+        Path cacheFile = (cacheDir != null) ? cacheFile(folder, cacheDir) : null;
+        if (cacheFile != null) {
+            FolderIndex cached = readCache(folder, cacheFile);
+            if (cached != null) return cached;
+        }
+
+        FolderIndex index = scan(folder);
+        if (cacheFile != null) {
+            writeCache(folder, cacheFile, index);
+        }
+        return index;
+    }
+
+    /** Quét thư mục (không dùng cache) */
+    public static FolderIndex scan(Path folder) throws IOException {
+        Path[] frames = listImages(folder);
+        if (frames.length == 0) {
+            throw new IOException("Không tìm thấy frame nào trong " + folder);
+        }
+
+        Dimension size = ImageUtils.readSize(frames[0]);
+        if (size == null) {
+            throw new IOException("Không đọc được kích thước của " + frames[0]);
+        }
+
+        long[] fingerprints = new long[frames.length];
+        long[] sizes = new long[frames.length];
+        try {
+            IntStream.range(0, frames.length).parallel().forEach(i -> {
+                try {
+                    byte[] bytes = Files.readAllBytes(frames[i]);
+                    fingerprints[i] = fingerprint(bytes);
+                    sizes[i] = bytes.length;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return new FolderIndex(frames, size.width, size.height, fingerprints, sizes);
+    }
+
+    /** Các file ảnh trong thư mục, theo thứ tự tự nhiên của tên */
+    private static Path[] listImages(Path folder) throws IOException {
+        List<Path> images = new ArrayList<>();
+        try (DirectoryStream<Path> dir = Files.newDirectoryStream(folder)) {
+            for (Path p : dir) {
+                if (isImage(p) && Files.isRegularFile(p)) images.add(p);
+            }
+        }
+        Path[] frames = images.toArray(new Path[0]);
+        Arrays.sort(frames, (a, b) -> compareNatural(a.getFileName().toString(), b.getFileName().toString()));
+        return frames;
+    }
+
+    /** Dấu vân tay 64 bit: CRC32C ở nửa trên, Adler32 ở nửa dưới */
+    static long fingerprint(byte[] bytes) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes);
+        Adler32 adler = new Adler32();
+        adler.update(bytes);
+        return (crc.getValue() << 32) | adler.getValue();
+    }
+
+    private static boolean isImage(Path p) {
+        String name = p.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.startsWith(".")) return false;
+        for (String ext : EXTENSIONS) {
+            if (name.endsWith(ext)) return true;
+        }
+        return false;
+    }
+
+    /** So sánh tên theo thứ tự tự nhiên: đoạn chữ so sánh thường, đoạn số so sánh theo giá trị */
+    static int compareNatural(String a, String b) {
+        int i = 0, j = 0;
+        while (i < a.length() && j < b.length()) {
+            char ca = a.charAt(i);
+            char cb = b.charAt(j);
+            if (Character.isDigit(ca) && Character.isDigit(cb)) {
+                int si = i, sj = j;
+                while (si < a.length() && a.charAt(si) == '0') si++;
+                while (sj < b.length() && b.charAt(sj) == '0') sj++;
+                int ei = si, ej = sj;
+                while (ei < a.length() && Character.isDigit(a.charAt(ei))) ei++;
+                while (ej < b.length() && Character.isDigit(b.charAt(ej))) ej++;
+                // Số dài hơn (bỏ số 0 đầu) thì lớn hơn; cùng độ dài thì so từng chữ số
+                int cmp = Integer.compare(ei - si, ej - sj);
+                if (cmp == 0) cmp = a.substring(si, ei).compareTo(b.substring(sj, ej));
+                if (cmp != 0) return cmp;
+                i = ei;
+                j = ej;
+            } else {
+                if (ca != cb) return Character.compare(ca, cb);
+                i++;
+                j++;
+            }
+        }
+        int cmp = Integer.compare(a.length() - i, b.length() - j);
+        return (cmp != 0) ? cmp : a.compareTo(b);
+    }
+
+    private static Path cacheFile(Path folder, Path cacheDir) {
+        Path abs = folder.toAbsolutePath().normalize();
+        Path name = abs.getFileName();
+        String base = (name != null) ? name.toString().replaceAll("[^A-Za-z0-9._-]", "_") : "root";
+        return cacheDir.resolve(base + "-" + Integer.toHexString(abs.toString().hashCode()) + ".idx");
+    }
+
+    /**
+     * Dấu dùng để kiểm tra bản lưu: thời gian sửa của thư mục (thêm/xoá/đổi tên file),
+     * thời gian sửa mới nhất và tổng kích thước của các frame (ghi đè nội dung).
+     */
+    private static String stamp(Path folder, Path[] frames) throws IOException {
+        long newest = 0;
+        long total = 0;
+        for (Path p : frames) {
+            BasicFileAttributes attrs = Files.readAttributes(p, BasicFileAttributes.class);
+            newest = Math.max(newest, attrs.lastModifiedTime().toMillis());
+            total += attrs.size();
+        }
+        return Files.getLastModifiedTime(folder).toMillis() + " " + newest + " " + total;
+    }
+
+    private static FolderIndex readCache(Path folder, Path cacheFile) {
+        if (!Files.isRegularFile(cacheFile)) return null;
+        try {
+            List<String> lines = Files.readAllLines(cacheFile, StandardCharsets.UTF_8);
+            if (lines.size() < 4 || !lines.get(0).equals(MAGIC)) return null;
+            String[] size = lines.get(2).split(" ");
+            int width = Integer.parseInt(size[0]);
+            int height = Integer.parseInt(size[1]);
+
+            int count = lines.size() - 3;
+            Path[] frames = new Path[count];
+            long[] fingerprints = new long[count];
+            long[] sizes = new long[count];
+            for (int i = 0; i < count; i++) {
+                // tên \t dấu vân tay \t kích thước
+                String[] parts = lines.get(i + 3).split("\t");
+                frames[i] = folder.resolve(parts[0]);
+                fingerprints[i] = Long.parseUnsignedLong(parts[1], 16);
+                sizes[i] = Long.parseLong(parts[2]);
+            }
+            // Thời gian sửa của thư mục không đủ để biết có file mới (độ phân giải thô, hoặc cùng mili giây
+            // với lần ghi trước) → so luôn danh sách file
+            if (!Arrays.equals(frames, listImages(folder))) return null;
+            if (!lines.get(1).equals(stamp(folder, frames))) return null;
+            return new FolderIndex(frames, width, height, fingerprints, sizes);
+        } catch (IOException | RuntimeException e) {
+            return null; // bản lưu hỏng hoặc ảnh đầu tiên đã bị xoá → quét lại
+        }
+    }
+
+    private static void writeCache(Path folder, Path cacheFile, FolderIndex index) {
+        try {
+            Files.createDirectories(cacheFile.getParent());
+            Path tmp = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+            try (BufferedWriter out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                out.write(MAGIC);
+                out.newLine();
+                out.write(stamp(folder, index.frames));
+                out.newLine();
+                out.write(index.width + " " + index.height);
+                out.newLine();
+                for (int i = 0; i < index.frames.length; i++) {
+                    out.write(index.frames[i].getFileName() + "\t" + Long.toHexString(index.fingerprints[i])
+                            + "\t" + index.sizes[i]);
+                    out.newLine();
+                }
+            }
+            Files.move(tmp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Không thể lưu danh sách frame: " + cacheFile + " (" + e.getMessage() + ")");
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.livewallpaper.api.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Trộn (cross-fade) hai frame RGBA: out = (from * (256 - weight) + to * weight) / 256, từng kênh 8-bit kể cả alpha.
+ *
+ * - Mỗi lần xử lý 8 byte (2 pixel) trong một long: byte chẵn và byte lẻ được tách vào các làn 16-bit
+ *   (mask 0x00FF00FF00FF00FF) rồi nhân với trọng số; không tràn sang làn bên cạnh vì 255 * 256 < 65536.
+ * - Không cấp phát buffer; buffer đích do người gọi giữ và dùng lại cho mọi lần trộn.
+ */
+public final class FrameBlender {
+
+    /** Trọng số tối đa (= chỉ frame to) */
+    public static final int MAX_WEIGHT = 256;
+
+    private static final long LANES = 0x00FF00FF00FF00FFL;
+
+    private FrameBlender() {
+    }
+
+    /**
+     * Trộn from và to vào out.
+     *
+     * @param from frame ở weight = 0 (từ position tới limit)
+     * @param to frame ở weight = MAX_WEIGHT, cùng số byte với from
+     * @param weight 0..MAX_WEIGHT
+     * @param out buffer đích, ghi từ position (không đổi position/limit)
+     */
+    public static void crossFade(ByteBuffer from, ByteBuffer to, int weight, ByteBuffer out) {
+        int n = from.remaining();
+        if (to.remaining() != n || out.remaining() < n) {
+            throw new IllegalArgumentException("Hai frame phải cùng kích thước (" + n + " / " + to.remaining()
+                    + " byte, đích " + out.remaining() + " byte)");
+        }
+        if (weight < 0 || weight > MAX_WEIGHT) {
+            throw new IllegalArgumentException("Trọng số phải trong 0.." + MAX_WEIGHT + ": " + weight);
+        }
+        // Cùng thứ tự byte cho cả ba buffer: trộn theo từng byte nên thứ tự nào cũng được, miễn là giống nhau
+        ByteBuffer a = from.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer b = to.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer o = out.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int pa = a.position();
+        int pb = b.position();
+        int po = o.position();
+        long inv = MAX_WEIGHT - weight;
+
+        int i = 0;
+        for (; i + 8 <= n; i += 8) {
+            long x = a.getLong(pa + i);
+            long y = b.getLong(pb + i);
+            long even = ((x & LANES) * inv + (y & LANES) * weight) >>> 8 & LANES;
+            long odd = (((x >>> 8) & LANES) * inv + ((y >>> 8) & LANES) * weight) & ~LANES;
+            o.putLong(po + i, even | odd);
+        }
+        for (; i < n; i++) {
+            int x = a.get(pa + i) & 0xFF;
+            int y = b.get(pb + i) & 0xFF;
+            o.put(po + i, (byte) ((x * inv + y * weight) >>> 8));
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.livewallpaper.api.cache;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Một frame đã decode, lưu dạng RGBA (hoặc khối nén BC1/BC3, xem PixelFormat) sẵn sàng upload
+ * trong bộ nhớ off-heap.
+ *
+ * - Vùng nhớ (slab) lấy từ FrameStore và trả lại pool khi không còn ai giữ.
+ * - Hoặc là một view trên bộ nhớ không thuộc pool (ví dụ vùng map của archive), xem wrap().
+ * - Đếm tham chiếu: cache giữ một tham chiếu; ai lấy frame ra phải release() sau khi dùng.
+ */
+public final class FrameBuffer {
+
+    private final FrameStore store;
+    private final ByteBuffer data;
+    private final int width;
+    private final int height;
+    private final PixelFormat format;
+    private final AtomicInteger refs = new AtomicInteger(1);
+
+    /** Tile đổi so với frame trước (null nếu không biết) */
+    private volatile FrameDelta delta;
+
+    /**
+     * Bọc một vùng RGBA có sẵn (không thuộc FrameStore); release() không giải phóng gì.
+     *
+     * @param data dữ liệu RGBA, từ vị trí 0, ít nhất width * height * 4 byte
+     */
+    public static FrameBuffer wrap(ByteBuffer data, int width, int height) {
+        return new FrameBuffer(null, data, width, height, PixelFormat.RGBA);
+    }
+
+    /**
+     * Bọc một vùng dữ liệu có sẵn theo định dạng cho trước (ví dụ khối BC1/BC3 trong archive).
+     *
+     * @param data dữ liệu từ vị trí 0, ít nhất format.byteSize(width, height) byte
+     */
+    public static FrameBuffer wrap(ByteBuffer data, int width, int height, PixelFormat format) {
+        return new FrameBuffer(null, data, width, height, format);
+    }
+
+    FrameBuffer(FrameStore store, ByteBuffer data, int width, int height, PixelFormat format) {
+        this.store = store;
+        this.data = data.order(ByteOrder.LITTLE_ENDIAN);
+        this.width = width;
+        this.height = height;
+        this.format = format;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public PixelFormat getFormat() {
+        return format;
+    }
+
+    /** Số byte dữ liệu (RGBA: width × height × 4) */
+    public int byteSize() {
+        return format.byteSize(width, height);
+    }
+
+    /** Tile đổi so với frame trước, null nếu frame phải upload toàn bộ */
+    public FrameDelta getDelta() {
+        return delta;
+    }
+
+    public void setDelta(FrameDelta delta) {
+        this.delta = delta;
+    }
+
+    /** Dữ liệu (RGBA hoặc khối nén), position = 0, limit = byteSize() */
+    public ByteBuffer pixels() {
+        return data.duplicate().order(ByteOrder.LITTLE_ENDIAN).clear().limit(byteSize());
+    }
+
+    /**
+     * Giữ thêm một tham chiếu.
+     *
+     * @return false nếu frame đã bị giải phóng (không được dùng nữa)
+     */
+    public boolean retain() {
+        for (;;) {
+            int n = refs.get();
+            if (n <= 0) return false;
+            if (refs.compareAndSet(n, n + 1)) return true;
+        }
+    }
+
+    /** Bỏ một tham chiếu; tham chiếu cuối cùng trả slab về FrameStore */
+    public void release() {
+        int n = refs.decrementAndGet();
+        if (n == 0) {
+            if (store != null) store.recycle(data);
+        } else if (n < 0) {
+            throw new IllegalStateException("FrameBuffer bị release quá số lần retain");
+        }
+    }
+}
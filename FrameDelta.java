@@ -0,0 +1,51 @@
+package com.livewallpaper.api.cache;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Các vùng (tile) thay đổi của một frame so với frame trước nó.
+ *
+ * Khi texture đang giữ đúng baseFrame, chỉ cần upload các tile này thay vì cả frame.
+ */
+public final class FrameDelta {
+
+    /** Frame mà delta này được tính từ đó */
+    public final int baseFrame;
+
+    /** x, y, w, h của từng tile (4 phần tử/tile) */
+    private final int[] rects;
+
+    /** Dữ liệu RGBA liền nhau của từng tile */
+    private final ByteBuffer[] tiles;
+
+    public FrameDelta(int baseFrame, int[] rects, ByteBuffer[] tiles) {
+        this.baseFrame = baseFrame;
+        this.rects = rects;
+        this.tiles = tiles;
+    }
+
+    public int getTileCount() {
+        return tiles.length;
+    }
+
+    public int getX(int tile) {
+        return rects[tile * 4];
+    }
+
+    public int getY(int tile) {
+        return rects[tile * 4 + 1];
+    }
+
+    public int getWidth(int tile) {
+        return rects[tile * 4 + 2];
+    }
+
+    public int getHeight(int tile) {
+        return rects[tile * 4 + 3];
+    }
+
+    /** Dữ liệu RGBA của tile (view mới, position = 0) */
+    public ByteBuffer getData(int tile) {
+        return tiles[tile].duplicate();
+    }
+}
@@ -0,0 +1,244 @@
+package com.livewallpaper.api.cache;
+
+import com.livewallpaper.api.metrics.WallpaperMetrics;
+import com.livewallpaper.api.source.FrameSource;
+import com.livewallpaper.api.util.PixelConverter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntPredicate;
+
+/**
+ * Decode frame ở background, ngoài render thread.
+ *
+ * - Một pool worker giới hạn (số thread + hàng đợi cố định) dùng chung cho mọi wallpaper.
+ * - Mỗi wallpaper mở một Session riêng; huỷ Session sẽ bỏ các yêu cầu cũ (seek/stop/đổi FPS/gỡ đăng ký).
+ * - Frame đọc từ FrameSource của wallpaper, decode sang RGBA off-heap (FrameStore) rồi đưa thẳng vào WallpaperCache.
+ * - Nguồn có byte mã hoá (thư mục ảnh) được đọc từ đĩa một lần vào tầng mã hoá của cache;
+ *   các lần decode sau chạy từ bộ nhớ.
+ */
+public class FrameLoader {
+
+    /** Số yêu cầu tối đa chờ trong hàng đợi */
+    private static final int QUEUE_CAPACITY = 64;
+
+    private final WallpaperCache cache;
+    private final FrameStore store;
+    private final ThreadPoolExecutor pool;
+
+    /** Kiểm tra còn đủ bộ nhớ trước khi decode (null = không kiểm tra) */
+    private volatile MemoryPressureMonitor memoryMonitor;
+
+    /** Bộ chuyển RGBA riêng cho mỗi thread decode (giữ lại mảng tạm giữa các frame) */
+    private final ThreadLocal<PixelConverter> converter = ThreadLocal.withInitial(() -> new PixelConverter(false));
+
+    /**
+     * @param cache cache nhận frame đã decode
+     * @param store pool vùng nhớ cho frame RGBA
+     * @param threads số worker decode
+     */
+    public FrameLoader(WallpaperCache cache, FrameStore store, int threads) {
+        this.cache = cache;
+        this.store = store;
+        this.pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), new DecodeThreadFactory());
+        this.pool.allowCoreThreadTimeOut(true);
+    }
+
+    /** Số worker mặc định: một nửa số CPU, trong khoảng 1..4 */
+    public static int defaultThreads() {
+        return Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+    }
+
+    /**
+     * Mở một phiên decode cho một wallpaper.
+     *
+     * @param owner id wallpaper (partition trong cache)
+     * @param source nguồn frame của wallpaper
+     * @param metrics nơi ghi thời gian decode/convert
+     */
+    public Session openSession(String owner, FrameSource source, WallpaperMetrics metrics) {
+        return new Session(owner, source, metrics);
+    }
+
+    /** Đặt bộ theo dõi bộ nhớ: decode bị bỏ qua khi heap không còn đủ chỗ */
+    public void setMemoryMonitor(MemoryPressureMonitor monitor) {
+        this.memoryMonitor = monitor;
+    }
+
+    /** Dừng pool (không nhận thêm yêu cầu) */
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Phiên decode của một wallpaper.
+     * Mọi yêu cầu mang theo "thế hệ" lúc gửi; cancelAll() tăng thế hệ nên kết quả cũ bị bỏ.
+     */
+    public class Session {
+
+        private final String owner;
+        private final FrameSource source;
+        private final AtomicInteger generation = new AtomicInteger();
+        private final Map<Integer, Request> pending = new ConcurrentHashMap<>();
+        private final WallpaperMetrics metrics;
+
+        /** Nguồn có byte mã hoá để giữ trong cache không (biết sau lần đọc đầu) */
+        private volatile boolean hasEncoded = true;
+
+        Session(String owner, FrameSource source, WallpaperMetrics metrics) {
+            this.owner = owner;
+            this.source = source;
+            this.metrics = metrics;
+        }
+
+        /**
+         * Yêu cầu decode một frame nếu nó chưa có trong cache và chưa được yêu cầu.
+         *
+         * @param frame index frame
+         * @param tier bậc độ phân giải
+         */
+        public void request(int frame, int tier) {
+            int key = WallpaperCache.key(frame, tier);
+            if (cache.hasFrame(owner, frame, tier) || pending.containsKey(key)) return;
+
+            Request req = new Request(generation.get());
+            if (pending.putIfAbsent(key, req) != null) return;
+
+            try {
+                req.future = pool.submit(() -> decode(frame, tier, key, req));
+            } catch (RejectedExecutionException e) {
+                // Hàng đợi đầy → bỏ qua, lần update sau sẽ yêu cầu lại
+                pending.remove(key, req);
+            }
+        }
+
+        /** Frame này đang chờ decode không */
+        public boolean isPending(int frame, int tier) {
+            return pending.containsKey(WallpaperCache.key(frame, tier));
+        }
+
+        /**
+         * Huỷ các yêu cầu đang chờ của những frame không còn cần (ví dụ đã bị playhead vượt qua).
+         *
+         * @param stale trả về true nếu frame không còn cần
+         */
+        public void cancelIf(IntPredicate stale) {
+            boolean removed = pending.entrySet().removeIf(entry -> {
+                if (!stale.test(WallpaperCache.frameOf(entry.getKey()))) return false;
+                entry.getValue().cancel();
+                return true;
+            });
+            // Task đã huỷ vẫn nằm trong hàng đợi tới lượt chạy: gỡ ngay để không chiếm chỗ yêu cầu mới
+            if (removed) pool.purge();
+        }
+
+        /** Huỷ mọi yêu cầu đang chờ của phiên này */
+        public void cancelAll() {
+            generation.incrementAndGet();
+            for (Request req : pending.values()) {
+                req.cancel();
+            }
+            pending.clear();
+            pool.purge();
+        }
+
+        private void decode(int frame, int tier, int key, Request req) {
+            try {
+                if (req.cancelled || req.generation != generation.get()) return;
+                MemoryPressureMonitor monitor = memoryMonitor;
+                if (monitor != null && !monitor.hasHeadroom(decodeBytes(source, tier))) return;
+                PixelConverter conv = converter.get();
+                long convertStart = conv.getConvertNanos();
+                long bytesStart = conv.getConvertedBytes();
+                long start = System.nanoTime();
+                FrameBuffer buffer = read(frame, tier, conv);
+                long elapsed = System.nanoTime() - start;
+                if (buffer == null) return;
+
+                // Tách phần convert (đo bên trong PixelConverter) khỏi phần đọc + decode
+                long convertNanos = conv.getConvertNanos() - convertStart;
+                metrics.recordDecode(elapsed - convertNanos);
+                if (convertNanos > 0) {
+                    metrics.recordConvert(convertNanos, conv.getConvertedBytes() - bytesStart);
+                }
+                // Yêu cầu bị huỷ trong lúc decode (cancelIf không dừng task đang chạy): bỏ frame
+                if (!req.cancelled && req.generation == generation.get()) {
+                    cache.putFrame(owner, frame, tier, buffer);
+                } else {
+                    buffer.release();
+                }
+            } catch (IOException e) {
+                System.err.println("Không thể decode frame " + frame + " của '" + owner + "' (" + e.getMessage() + ")");
+            } catch (RuntimeException e) {
+                // Ví dụ nguồn đã bị đóng khi wallpaper vừa gỡ (GifFrameSource.readFrame sau dispose)
+                System.err.println("Không thể decode frame " + frame + " của '" + owner + "' (" + e + ")");
+            } catch (OutOfMemoryError e) {
+                // Ảnh decode hoặc vùng off-heap không cấp phát được: bỏ frame, co cache, không để lỗi lan ra game
+                MemoryPressureMonitor monitor = memoryMonitor;
+                if (monitor != null) monitor.onAllocationFailure("frame " + frame + " của '" + owner + "'");
+            } finally {
+                pending.remove(key, req);
+            }
+        }
+
+        /** Decode từ byte mã hoá trong cache nếu có; lần đầu đọc file và giữ lại (nếu tầng mã hoá còn chỗ) */
+        private FrameBuffer read(int frame, int tier, PixelConverter conv) throws IOException {
+            if (!hasEncoded) return source.readFrame(frame, tier, store, conv);
+            byte[] encoded = cache.getEncoded(owner, frame);
+            if (encoded == null) {
+                encoded = source.readEncoded(frame);
+                if (encoded == null) {
+                    hasEncoded = false; // nguồn không có byte mã hoá (archive, GIF)
+                    return source.readFrame(frame, tier, store, conv);
+                }
+                cache.putEncoded(owner, frame, encoded);
+            }
+            return source.decodeFrame(frame, encoded, tier, store, conv);
+        }
+    }
+
+    /** Ước lượng bộ nhớ heap một lần decode cần (ảnh decode ở kích thước lấy mẫu thưa) */
+    private static long decodeBytes(FrameSource source, int tier) {
+        int level = Math.max(0, tier - 1);
+        return (long) FrameSource.tierSize(source.getWidth(), level) * FrameSource.tierSize(source.getHeight(), level) * 4;
+    }
+
+    /** Một yêu cầu decode đang chờ */
+    private static class Request {
+        final int generation;
+        volatile Future<?> future;
+        volatile boolean cancelled;
+
+        Request(int generation) {
+            this.generation = generation;
+        }
+
+        void cancel() {
+            cancelled = true;
+            Future<?> f = future;
+            if (f != null) f.cancel(false);
+        }
+    }
+
+    /** Thread decode: daemon, độ ưu tiên thấp để không tranh với game */
+    private static class DecodeThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "LiveWallpaper-Decode-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        }
+    }
+}
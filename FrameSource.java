@@ -0,0 +1,149 @@
+package com.livewallpaper.api.source;
+
+import com.livewallpaper.api.WallpaperDescriptor;
+import com.livewallpaper.api.archive.WallpaperArchive;
+import com.livewallpaper.api.cache.FrameBuffer;
+import com.livewallpaper.api.cache.FrameStore;
+import com.livewallpaper.api.util.PixelConverter;
+import com.livewallpaper.api.util.Resampler;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Nguồn frame của một wallpaper (thư mục ảnh, file archive...).
+ *
+ * - readFrame có thể được gọi đồng thời từ nhiều thread decode.
+ * - Triển khai phải tự kiểm tra index hợp lệ.
+ * - Frame có thể được đọc ở các bậc độ phân giải (tier): tier t có kích thước
+ *   ceil(width / 2^t) × ceil(height / 2^t), dùng khi vùng render nhỏ hơn nhiều so với frame.
+ */
+public interface FrameSource {
+
+    /** Tier nhỏ nhất (1/8 độ phân giải) */
+    int MAX_TIER = 3;
+
+    /** Kích thước một chiều ở tier cho trước */
+    static int tierSize(int size, int tier) {
+        return (size + (1 << tier) - 1) >> tier;
+    }
+
+    /**
+     * Chọn tier nhỏ nhất mà vẫn không nhỏ hơn vùng render.
+     *
+     * @param width chiều rộng frame gốc
+     * @param height chiều cao frame gốc
+     * @param targetWidth chiều rộng vùng render
+     * @param targetHeight chiều cao vùng render
+     */
+    static int pickTier(int width, int height, int targetWidth, int targetHeight) {
+        int tier = 0;
+        while (tier < MAX_TIER
+                && tierSize(width, tier + 1) >= targetWidth
+                && tierSize(height, tier + 1) >= targetHeight) {
+            tier++;
+        }
+        return tier;
+    }
+
+    /** Số frame trong nguồn */
+    int getFrameCount();
+
+    /** Chiều rộng frame (pixel) */
+    int getWidth();
+
+    /** Chiều cao frame (pixel) */
+    int getHeight();
+
+    /**
+     * Frame đầu tiên có nội dung giống hệt frame index (mặc định là chính nó).
+     * Frame trùng nhau dùng chung một lần decode, một mục cache và một lần upload.
+     */
+    default int canonicalFrame(int index) {
+        return index;
+    }
+
+    /**
+     * Đọc và decode một frame sang RGBA.
+     *
+     * @param index index frame (0..getFrameCount()-1)
+     * @param tier bậc độ phân giải (0..MAX_TIER)
+     * @param store pool vùng nhớ để cấp phát FrameBuffer
+     * @param converter bộ chuyển RGBA của thread hiện tại
+     * @return FrameBuffer (người gọi giữ một tham chiếu) hoặc null nếu lỗi
+     */
+    FrameBuffer readFrame(int index, int tier, FrameStore store, PixelConverter converter) throws IOException;
+
+    /**
+     * Đọc byte đã mã hoá của một frame (file ảnh nguyên vẹn) để giữ trong bộ nhớ,
+     * sau đó decode bằng decodeFrame thay vì đọc lại từ đĩa.
+     *
+     * @return byte của frame, hoặc null nếu nguồn không có dạng này (mặc định)
+     */
+    default byte[] readEncoded(int index) throws IOException {
+        return null;
+    }
+
+    /**
+     * Decode một frame từ byte đã đọc bằng readEncoded (mặc định: đọc lại bằng readFrame).
+     *
+     * @param encoded byte trả về từ readEncoded(index)
+     * @return FrameBuffer (người gọi giữ một tham chiếu) hoặc null nếu lỗi
+     */
+    default FrameBuffer decodeFrame(int index, byte[] encoded, int tier, FrameStore store, PixelConverter converter)
+            throws IOException {
+        return readFrame(index, tier, store, converter);
+    }
+
+    /**
+     * Thu nhỏ frame đủ độ phân giải xuống tier cho trước (giải phóng frame gốc).
+     * Dùng cho nguồn không decode trực tiếp ở kích thước nhỏ được.
+     */
+    static FrameBuffer downscale(FrameBuffer frame, int tier, FrameStore store) {
+        FrameBuffer current = frame;
+        for (int t = 0; t < tier; t++) {
+            int w = Resampler.halfSize(current.getWidth());
+            int h = Resampler.halfSize(current.getHeight());
+            FrameBuffer smaller = store.allocate(w, h);
+            Resampler.halve(current.pixels(), current.getWidth(), current.getHeight(), smaller.pixels());
+            current.release();
+            current = smaller;
+        }
+        return current;
+    }
+
+    /** Giải phóng tài nguyên (file handle, mapping...) */
+    void close();
+
+    /**
+     * Mở nguồn frame phù hợp với đường dẫn trong descriptor:
+     * file .lwp → WallpaperArchive, file GIF → GifFrameSource, ngược lại → thư mục frames
+     * (quét một lần thành FolderIndex).
+     *
+     * @param indexCacheDir nơi lưu danh sách frame của thư mục để lần sau không phải quét lại (null = không lưu)
+     * @throws IllegalArgumentException nếu không mở được archive hoặc thư mục
+     */
+    static FrameSource open(WallpaperDescriptor desc, Path indexCacheDir) {
+        Path path = desc.framesFolder;
+        if (Files.isRegularFile(path) && WallpaperArchive.isArchive(path)) {
+            try {
+                return WallpaperArchive.open(path);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Không thể mở archive: " + path + " (" + e.getMessage() + ")", e);
+            }
+        }
+        if (Files.isRegularFile(path) && GifFrameSource.isGif(path)) {
+            try {
+                return GifFrameSource.open(path);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Không thể mở GIF: " + path + " (" + e.getMessage() + ")", e);
+            }
+        }
+        try {
+            return new FolderFrameSource(FolderIndex.load(path, indexCacheDir));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Không thể mở thư mục frames: " + path + " (" + e.getMessage() + ")", e);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.livewallpaper.api.cache;
+
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool vùng nhớ off-heap (slab) cho FrameBuffer.
+ *
+ * - Slab cấp phát bằng MemoryUtil.memAlloc, giải phóng ngay bằng memFree (không chờ GC).
+ * - Slab trả về được giữ lại theo kích thước để dùng cho frame sau (các frame của
+ *   một wallpaper thường cùng kích thước), tối đa maxPooledBytes.
+ */
+public class FrameStore {
+
+    /** Dung lượng pool mặc định: 64 MB */
+    public static final long DEFAULT_MAX_POOLED_BYTES = 64L * 1024 * 1024;
+
+    private final long maxPooledBytes;
+    private final Map<Integer, ArrayDeque<ByteBuffer>> pool = new HashMap<>();
+    private long pooledBytes = 0;
+
+    /** Tổng byte off-heap đang cấp phát (đang dùng + trong pool) */
+    private final AtomicLong allocatedBytes = new AtomicLong();
+
+    public FrameStore(long maxPooledBytes) {
+        this.maxPooledBytes = maxPooledBytes;
+    }
+
+    /**
+     * Lấy một FrameBuffer RGBA (nội dung chưa xác định), ưu tiên slab trong pool.
+     *
+     * @param width chiều rộng frame
+     * @param height chiều cao frame
+     * @return FrameBuffer với một tham chiếu
+     */
+    public FrameBuffer allocate(int width, int height) {
+        int size = width * height * 4;
+        ByteBuffer slab = null;
+        synchronized (this) {
+            ArrayDeque<ByteBuffer> free = pool.get(size);
+            if (free != null && !free.isEmpty()) {
+                slab = free.pop();
+                pooledBytes -= size;
+            }
+        }
+        if (slab == null) {
+            slab = MemoryUtil.memAlloc(size);
+            allocatedBytes.addAndGet(size);
+        }
+        slab.clear();
+        return new FrameBuffer(this, slab, width, height, PixelFormat.RGBA);
+    }
+
+    /** Nhận lại slab từ FrameBuffer đã hết tham chiếu */
+    void recycle(ByteBuffer slab) {
+        int size = slab.capacity();
+        synchronized (this) {
+            if (pooledBytes + size <= maxPooledBytes) {
+                pool.computeIfAbsent(size, k -> new ArrayDeque<>()).push(slab);
+                pooledBytes += size;
+                return;
+            }
+        }
+        free(slab);
+    }
+
+    /** Giải phóng toàn bộ slab đang nằm trong pool */
+    public void trim() {
+        ArrayDeque<ByteBuffer> toFree = new ArrayDeque<>();
+        synchronized (this) {
+            for (ArrayDeque<ByteBuffer> free : pool.values()) {
+                toFree.addAll(free);
+            }
+            pool.clear();
+            pooledBytes = 0;
+        }
+        for (ByteBuffer slab : toFree) {
+            free(slab);
+        }
+    }
+
+    /** Tổng byte off-heap đang cấp phát (đang dùng + trong pool) */
+    public long getAllocatedBytes() {
+        return allocatedBytes.get();
+    }
+
+    /** Số byte đang nằm chờ trong pool */
+    public synchronized long getPooledBytes() {
+        return pooledBytes;
+    }
+
+    private void free(ByteBuffer slab) {
+        allocatedBytes.addAndGet(-slab.capacity());
+        MemoryUtil.memFree(slab);
+    }
+}
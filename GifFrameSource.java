@@ -0,0 +1,338 @@
+package com.livewallpaper.api.source;
+
+import com.livewallpaper.api.cache.FrameBuffer;
+import com.livewallpaper.api.cache.FrameStore;
+import com.livewallpaper.api.util.PixelConverter;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Nguồn frame đọc trực tiếp từ một file GIF động (ImageReader có sẵn của JDK).
+ *
+ * - Chỉ đọc metadata lúc mở (vị trí, kích thước, cách xoá của từng frame), pixel được decode dần khi cần.
+ * - Mỗi frame được vẽ chồng lên một canvas dùng lại theo luật disposal của GIF
+ *   (none / doNotDispose / restoreToBackgroundColor / restoreToPrevious); pixel trong suốt giữ nguyên canvas.
+ * - Canvas chỉ đi tới; để tua lùi/quay vòng, lưu trạng thái canvas mỗi vài frame (checkpoint)
+ *   trong giới hạn CHECKPOINT_BUDGET_BYTES, rồi dựng lại từ checkpoint gần nhất.
+ * - Tier > 0: dựng ở độ phân giải đầy đủ rồi thu nhỏ.
+ *
+ * Thời gian từng frame trong GIF không được dùng: wallpaper phát theo FPS của descriptor.
+ * Thread-safe: mọi lần đọc đi qua một khoá (ImageReader và canvas không dùng chung được).
+ */
+public class GifFrameSource implements FrameSource {
+
+    /** Tổng số byte tối đa cho các checkpoint canvas */
+    private static final long CHECKPOINT_BUDGET_BYTES = 32L * 1024 * 1024;
+
+    private static final int DISPOSE_NONE = 0;
+    private static final int DISPOSE_BACKGROUND = 1;
+    private static final int DISPOSE_PREVIOUS = 2;
+
+    private final ImageInputStream input;
+    private final ImageReader reader;
+
+    private final int width;
+    private final int height;
+    private final int frames;
+
+    /** Vị trí, kích thước và cách xoá của từng frame */
+    private final int[] left;
+    private final int[] top;
+    private final int[] frameWidth;
+    private final int[] frameHeight;
+    private final int[] disposal;
+
+    private final Object lock = new Object();
+
+    /** Canvas ARGB (dùng chung mảng với canvasImage để convert theo đường nhanh) */
+    private final BufferedImage canvasImage;
+    private final int[] canvas;
+
+    /** Vùng canvas lưu lại trước khi vẽ frame có disposal = restoreToPrevious */
+    private int[] previous = new int[0];
+    private int[] row = new int[0];
+
+    /** Frame đang nằm trên canvas (-1 = canvas trống, sẵn sàng vẽ frame 0) */
+    private int drawn = -1;
+
+    /** Canvas của frame trước đã được xoá (sau khi khôi phục từ checkpoint) */
+    private boolean disposed = true;
+
+    /** Checkpoint k = canvas sẵn sàng vẽ frame k * checkpointInterval */
+    private final int checkpointInterval;
+    private final int[][] checkpoints;
+
+    private GifFrameSource(ImageInputStream input, ImageReader reader, long checkpointBudgetBytes) throws IOException {
+        this.input = input;
+        this.reader = reader;
+
+        this.frames = reader.getNumImages(true);
+        if (frames <= 0) {
+            throw new IOException("GIF không có frame nào");
+        }
+
+        int screenWidth = 0;
+        int screenHeight = 0;
+        IIOMetadata streamMeta = reader.getStreamMetadata();
+        if (streamMeta != null) {
+            Node screen = child(streamMeta.getAsTree(streamMeta.getNativeMetadataFormatName()), "LogicalScreenDescriptor");
+            screenWidth = intAttr(screen, "logicalScreenWidth", 0);
+            screenHeight = intAttr(screen, "logicalScreenHeight", 0);
+        }
+
+        left = new int[frames];
+        top = new int[frames];
+        frameWidth = new int[frames];
+        frameHeight = new int[frames];
+        disposal = new int[frames];
+        for (int i = 0; i < frames; i++) {
+            IIOMetadata meta = reader.getImageMetadata(i);
+            Node tree = meta.getAsTree(meta.getNativeMetadataFormatName());
+            Node desc = child(tree, "ImageDescriptor");
+            left[i] = intAttr(desc, "imageLeftPosition", 0);
+            top[i] = intAttr(desc, "imageTopPosition", 0);
+            frameWidth[i] = intAttr(desc, "imageWidth", reader.getWidth(i));
+            frameHeight[i] = intAttr(desc, "imageHeight", reader.getHeight(i));
+            disposal[i] = parseDisposal(child(tree, "GraphicControlExtension"));
+            // Một số file ghi kích thước màn hình sai → lấy vùng bao mọi frame
+            screenWidth = Math.max(screenWidth, left[i] + frameWidth[i]);
+            screenHeight = Math.max(screenHeight, top[i] + frameHeight[i]);
+        }
+        this.width = screenWidth;
+        this.height = screenHeight;
+
+        this.canvasImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        this.canvas = ((DataBufferInt) canvasImage.getRaster().getDataBuffer()).getData();
+
+        long frameBytes = (long) width * height * 4;
+        int maxCheckpoints = (int) Math.max(1, Math.min(frames, checkpointBudgetBytes / frameBytes));
+        this.checkpointInterval = (frames + maxCheckpoints - 1) / maxCheckpoints;
+        this.checkpoints = new int[(frames + checkpointInterval - 1) / checkpointInterval][];
+        this.checkpoints[0] = new int[canvas.length]; // canvas trống
+    }
+
+    /**
+     * Mở một file GIF động.
+     *
+     * @throws IOException nếu không phải GIF hoặc không đọc được
+     */
+    public static GifFrameSource open(Path path) throws IOException {
+        return open(path, CHECKPOINT_BUDGET_BYTES);
+    }
+
+    /**
+     * Mở một file GIF động với giới hạn checkpoint tuỳ chọn (test dùng giới hạn nhỏ để có nhiều frame giữa hai checkpoint).
+     *
+     * @param checkpointBudgetBytes tổng số byte tối đa cho các checkpoint canvas
+     */
+    static GifFrameSource open(Path path, long checkpointBudgetBytes) throws IOException {
+        ImageInputStream in = ImageIO.createImageInputStream(path.toFile());
+        if (in == null) {
+            throw new IOException("Không mở được " + path);
+        }
+        try {
+            Iterator<ImageReader> readers = ImageIO.getImageReadersByFormatName("gif");
+            if (!readers.hasNext()) {
+                throw new IOException("JDK không có ImageReader cho GIF");
+            }
+            ImageReader reader = readers.next();
+            // Không seekForwardOnly: reader nhớ vị trí từng frame để đọc lại khi tua
+            reader.setInput(in, false, false);
+            try {
+                return new GifFrameSource(in, reader, checkpointBudgetBytes);
+            } catch (IOException | RuntimeException e) {
+                reader.dispose();
+                throw e;
+            }
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /** File có phải GIF không (đọc chữ ký "GIF8") */
+    public static boolean isGif(Path path) {
+        try (InputStream in = Files.newInputStream(path)) {
+            byte[] magic = in.readNBytes(4);
+            return magic.length == 4 && magic[0] == 'G' && magic[1] == 'I' && magic[2] == 'F' && magic[3] == '8';
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public int getFrameCount() {
+        return frames;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    /** Số frame giữa hai checkpoint */
+    int getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    @Override
+    public FrameBuffer readFrame(int index, int tier, FrameStore store, PixelConverter converter) throws IOException {
+        if (index < 0 || index >= frames) return null;
+
+        FrameBuffer buffer = store.allocate(width, height);
+        try {
+            synchronized (lock) {
+                seekCanvas(index);
+                converter.convert(canvasImage, buffer.pixels());
+            }
+        } catch (IOException | RuntimeException e) {
+            buffer.release();
+            throw e;
+        }
+        return FrameSource.downscale(buffer, tier, store);
+    }
+
+    /** Đưa canvas tới frame index: đi tiếp, hoặc khôi phục checkpoint gần nhất rồi đi tiếp */
+    private void seekCanvas(int index) throws IOException {
+        if (index == drawn) return;
+
+        int k = index / checkpointInterval;
+        int checkpointFrame = k * checkpointInterval;
+        if (index < drawn || checkpointFrame > drawn + 1) {
+            // Tua lùi, hoặc nhảy xa về phía trước mà đã có checkpoint gần hơn
+            while (checkpoints[k] == null) k--;
+            checkpointFrame = k * checkpointInterval;
+            if (index < drawn || checkpointFrame > drawn + 1) {
+                System.arraycopy(checkpoints[k], 0, canvas, 0, canvas.length);
+                drawn = checkpointFrame - 1;
+                disposed = true;
+            }
+        }
+
+        while (drawn < index) {
+            drawNext();
+        }
+    }
+
+    /** Xoá frame đang vẽ theo disposal của nó, rồi vẽ frame kế tiếp */
+    private void drawNext() throws IOException {
+        int i = drawn + 1;
+        if (!disposed) {
+            dispose(drawn);
+        }
+        if (i % checkpointInterval == 0 && checkpoints[i / checkpointInterval] == null) {
+            checkpoints[i / checkpointInterval] = canvas.clone();
+        }
+        if (disposal[i] == DISPOSE_PREVIOUS) {
+            saveRegion(i);
+        }
+
+        BufferedImage img = reader.read(i);
+        int x0 = left[i];
+        int y0 = top[i];
+        int w = Math.min(img.getWidth(), width - x0);
+        int h = Math.min(img.getHeight(), height - y0);
+        if (row.length < w) row = new int[w];
+        for (int y = 0; y < h; y++) {
+            img.getRGB(0, y, w, 1, row, 0, w);
+            int base = (y0 + y) * width + x0;
+            for (int x = 0; x < w; x++) {
+                int argb = row[x];
+                if ((argb >>> 24) != 0) canvas[base + x] = argb;
+            }
+        }
+
+        drawn = i;
+        disposed = false;
+    }
+
+    private void dispose(int i) {
+        int x0 = left[i];
+        int y0 = top[i];
+        int w = Math.min(frameWidth[i], width - x0);
+        int h = Math.min(frameHeight[i], height - y0);
+        if (disposal[i] == DISPOSE_BACKGROUND) {
+            // Nền coi là trong suốt (cách các trình duyệt xử lý)
+            for (int y = 0; y < h; y++) {
+                int base = (y0 + y) * width + x0;
+                Arrays.fill(canvas, base, base + w, 0);
+            }
+        } else if (disposal[i] == DISPOSE_PREVIOUS) {
+            for (int y = 0; y < h; y++) {
+                System.arraycopy(previous, y * w, canvas, (y0 + y) * width + x0, w);
+            }
+        }
+    }
+
+    private void saveRegion(int i) {
+        int x0 = left[i];
+        int y0 = top[i];
+        int w = Math.min(frameWidth[i], width - x0);
+        int h = Math.min(frameHeight[i], height - y0);
+        if (previous.length < w * h) previous = new int[w * h];
+        for (int y = 0; y < h; y++) {
+            System.arraycopy(canvas, (y0 + y) * width + x0, previous, y * w, w);
+        }
+    }
+
+    private static int parseDisposal(Node gce) {
+        if (gce == null) return DISPOSE_NONE;
+        Node attr = gce.getAttributes().getNamedItem("disposalMethod");
+        if (attr == null) return DISPOSE_NONE;
+        switch (attr.getNodeValue()) {
+            case "restoreToBackgroundColor": return DISPOSE_BACKGROUND;
+            case "restoreToPrevious": return DISPOSE_PREVIOUS;
+            default: return DISPOSE_NONE; // none, doNotDispose, giá trị chưa định nghĩa
+        }
+    }
+
+    private static Node child(Node parent, String name) {
+        if (parent == null) return null;
+        for (Node n = parent.getFirstChild(); n != null; n = n.getNextSibling()) {
+            if (name.equals(n.getNodeName())) return n;
+        }
+        return null;
+    }
+
+    private static int intAttr(Node node, String name, int fallback) {
+        if (node == null) return fallback;
+        NamedNodeMap attrs = node.getAttributes();
+        Node attr = (attrs != null) ? attrs.getNamedItem(name) : null;
+        if (attr == null) return fallback;
+        try {
+            return Integer.parseInt(attr.getNodeValue());
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (lock) {
+            reader.dispose();
+            try {
+                input.close();
+            } catch (IOException e) {
+                System.err.println("Không thể đóng GIF (" + e.getMessage() + ")");
+            }
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package com.livewallpaper.api.render;
+
+import com.livewallpaper.api.cache.FrameDelta;
+import com.livewallpaper.api.cache.PixelFormat;
+import org.lwjgl.opengl.EXTTextureCompressionS3TC;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL13;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL21;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * RenderBackend dùng OpenGL qua LWJGL.
+ *
+ * - Mỗi texture có 2 pixel buffer (PBO) dùng luân phiên: CPU ghi vào PBO này
+ *   trong khi GPU có thể vẫn đang đọc PBO kia của lần upload trước.
+ * - Upload luôn là glTexSubImage2D (glCompressedTexSubImage2D với khối BC1/BC3), texture chỉ được cấp phát một lần.
+ * - Các tile đổi của một frame được chép chung vào một PBO, mỗi frame chỉ map một lần.
+ * - Khối nén chỉ dùng khi driver có EXT_texture_compression_s3tc.
+ * - drawBlended trộn hai texture ngay lúc vẽ bằng texture combiner của GL 1.3 (hai texture unit),
+ *   nên frame trung gian không phải trộn trên CPU và upload lại.
+ */
+public class GlRenderBackend implements RenderBackend {
+
+    /** Số PBO cho mỗi texture (double-buffer) */
+    private static final int PBO_COUNT = 2;
+
+    /** PBO theo texture id (chỉ truy cập ở render thread) */
+    private final Map<Integer, PixelBuffers> pixelBuffers = new HashMap<>();
+
+    /** Texture chờ xoá (deleteTexture có thể được gọi từ thread khác) */
+    private final Queue<Integer> pendingDeletes = new ConcurrentLinkedQueue<>();
+
+    /** Driver có S3TC không (null = chưa hỏi, chỉ hỏi được khi đã có context ở render thread) */
+    private Boolean s3tc;
+
+    /** Màu hằng của combiner (trọng số ở kênh alpha), dùng lại mỗi lần drawBlended (chỉ ở render thread) */
+    private final float[] blendColor = new float[4];
+
+    @Override
+    public int createTexture(int width, int height) {
+        return createTexture(width, height, PixelFormat.RGBA);
+    }
+
+    @Override
+    public boolean supportsFormat(PixelFormat format) {
+        if (format == PixelFormat.RGBA) return true;
+        if (s3tc == null) {
+            s3tc = GL.getCapabilities().GL_EXT_texture_compression_s3tc;
+        }
+        return s3tc;
+    }
+
+    @Override
+    public int createTexture(int width, int height, PixelFormat format) {
+        flushPendingDeletes();
+
+        int textureId = GL11.glGenTextures();
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, textureId);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_LINEAR);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_LINEAR);
+        GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, internalFormat(format), width, height, 0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, (ByteBuffer) null);
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
+
+        pixelBuffers.put(textureId, new PixelBuffers());
+        return textureId;
+    }
+
+    @Override
+    public void updateTexture(int textureId, int x, int y, int width, int height, ByteBuffer rgba) {
+        flushPendingDeletes();
+
+        PixelBuffers pbo = pixelBuffers.get(textureId);
+        if (pbo == null) return;
+
+        boolean staged = stage(pbo, rgba);
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, textureId);
+        if (staged) {
+            GL11.glTexSubImage2D(GL11.GL_TEXTURE_2D, 0, x, y, width, height, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, 0L);
+            GL15.glBindBuffer(GL21.GL_PIXEL_UNPACK_BUFFER, 0);
+        } else {
+            // Không map được PBO → upload trực tiếp từ bộ nhớ client
+            GL11.glTexSubImage2D(GL11.GL_TEXTURE_2D, 0, x, y, width, height, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, rgba);
+        }
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
+    }
+
+    /** Mọi tile của frame vào một PBO (một lần orphan + map), mỗi tile upload từ offset của nó */
+    @Override
+    public void updateTextureTiles(int textureId, FrameDelta delta) {
+        flushPendingDeletes();
+
+        PixelBuffers pbo = pixelBuffers.get(textureId);
+        if (pbo == null) return;
+
+        int count = delta.getTileCount();
+        long size = 0;
+        for (int i = 0; i < count; i++) {
+            size += delta.getData(i).remaining();
+        }
+        if (size == 0) return;
+
+        GL15.glBindBuffer(GL21.GL_PIXEL_UNPACK_BUFFER, pbo.next());
+        GL15.glBufferData(GL21.GL_PIXEL_UNPACK_BUFFER, size, GL15.GL_STREAM_DRAW);
+        ByteBuffer mapped = GL15.glMapBuffer(GL21.GL_PIXEL_UNPACK_BUFFER, GL15.GL_WRITE_ONLY, size, null);
+        if (mapped != null) {
+            for (int i = 0; i < count; i++) {
+                mapped.put(delta.getData(i).duplicate());
+            }
+            GL15.glUnmapBuffer(GL21.GL_PIXEL_UNPACK_BUFFER);
+        } else {
+            GL15.glBindBuffer(GL21.GL_PIXEL_UNPACK_BUFFER, 0);
+        }
+
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, textureId);
+        long offset = 0;
+        for (int i = 0; i < count; i++) {
+            ByteBuffer data = delta.getData(i);
+            if (mapped != null) {
+                // Tile RGBA luôn dài bội số của 4 byte nên offset thoả GL_UNPACK_ALIGNMENT mặc định
+                GL11.glTexSubImage2D(GL11.GL_TEXTURE_2D, 0, delta.getX(i), delta.getY(i), delta.getWidth(i),
+                        delta.getHeight(i), GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, offset);
+                offset += data.remaining();
+            } else {
+                GL11.glTexSubImage2D(GL11.GL_TEXTURE_2D, 0, delta.getX(i), delta.getY(i), delta.getWidth(i),
+                        delta.getHeight(i), GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, data);
+            }
+        }
+        if (mapped != null) GL15.glBindBuffer(GL21.GL_PIXEL_UNPACK_BUFFER, 0);
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
+    }
+
+    @Override
+    public void updateCompressedTexture(int textureId, int width, int height, PixelFormat format, ByteBuffer blocks) {
+        flushPendingDeletes();
+
+        PixelBuffers pbo = pixelBuffers.get(textureId);
+        if (pbo == null) return;
+
+        int size = blocks.remaining();
+        boolean staged = stage(pbo, blocks);
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, textureId);
+        if (staged) {
+            GL13.glCompressedTexSubImage2D(GL11.GL_TEXTURE_2D, 0, 0, 0, width, height, internalFormat(format), size, 0L);
+            GL15.glBindBuffer(GL21.GL_PIXEL_UNPACK_BUFFER, 0);
+        } else {
+            GL13.glCompressedTexSubImage2D(GL11.GL_TEXTURE_2D, 0, 0, 0, width, height, internalFormat(format), blocks);
+        }
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
+    }
+
+    /**
+     * Chép dữ liệu vào PBO kế tiếp và để PBO đó bind sẵn cho lệnh upload.
+     *
+     * @return false nếu không map được PBO (đã bỏ bind; upload thẳng từ bộ nhớ client)
+     */
+    private boolean stage(PixelBuffers pbo, ByteBuffer data) {
+        long size = data.remaining();
+        GL15.glBindBuffer(GL21.GL_PIXEL_UNPACK_BUFFER, pbo.next());
+        // Orphan vùng nhớ cũ để driver không phải chờ GPU đọc xong
+        GL15.glBufferData(GL21.GL_PIXEL_UNPACK_BUFFER, size, GL15.GL_STREAM_DRAW);
+        ByteBuffer mapped = GL15.glMapBuffer(GL21.GL_PIXEL_UNPACK_BUFFER, GL15.GL_WRITE_ONLY, size, null);
+        if (mapped == null) {
+            GL15.glBindBuffer(GL21.GL_PIXEL_UNPACK_BUFFER, 0);
+            return false;
+        }
+        mapped.put(data.duplicate());
+        GL15.glUnmapBuffer(GL21.GL_PIXEL_UNPACK_BUFFER);
+        return true;
+    }
+
+    private static int internalFormat(PixelFormat format) {
+        switch (format) {
+            case BC1: return EXTTextureCompressionS3TC.GL_COMPRESSED_RGB_S3TC_DXT1_EXT;
+            case BC3: return EXTTextureCompressionS3TC.GL_COMPRESSED_RGBA_S3TC_DXT5_EXT;
+            default: return GL11.GL_RGBA;
+        }
+    }
+
+    @Override
+    public void drawTexture(int textureId, int x, int y, int width, int height, float opacity) {
+        flushPendingDeletes();
+
+        GL11.glEnable(GL11.GL_TEXTURE_2D);
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, textureId);
+
+        GL11.glColor4f(1f, 1f, 1f, opacity);
+        GL11.glBegin(GL11.GL_QUADS);
+        GL11.glTexCoord2f(0, 0); GL11.glVertex2f(x, y);
+        GL11.glTexCoord2f(1, 0); GL11.glVertex2f(x + width, y);
+        GL11.glTexCoord2f(1, 1); GL11.glVertex2f(x + width, y + height);
+        GL11.glTexCoord2f(0, 1); GL11.glVertex2f(x, y + height);
+        GL11.glEnd();
+
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
+        GL11.glDisable(GL11.GL_TEXTURE_2D);
+    }
+
+    @Override
+    public boolean supportsBlendedDraw() {
+        return true;
+    }
+
+    /**
+     * Unit 0 lấy nguyên texture from; unit 1 nội suy RGB: to * weight + from * (1 - weight)
+     * với weight nằm ở alpha của màu hằng, alpha = alpha của from * opacity (màu đỉnh).
+     */
+    @Override
+    public void drawBlended(int fromTextureId, int toTextureId, float weight, int x, int y, int width, int height,
+                            float opacity) {
+        flushPendingDeletes();
+
+        GL13.glActiveTexture(GL13.GL_TEXTURE0);
+        GL11.glEnable(GL11.GL_TEXTURE_2D);
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, fromTextureId);
+        GL11.glTexEnvi(GL11.GL_TEXTURE_ENV, GL11.GL_TEXTURE_ENV_MODE, GL11.GL_REPLACE);
+
+        GL13.glActiveTexture(GL13.GL_TEXTURE1);
+        GL11.glEnable(GL11.GL_TEXTURE_2D);
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, toTextureId);
+        GL11.glTexEnvi(GL11.GL_TEXTURE_ENV, GL11.GL_TEXTURE_ENV_MODE, GL13.GL_COMBINE);
+        blendColor[3] = weight;
+        GL11.glTexEnvfv(GL11.GL_TEXTURE_ENV, GL11.GL_TEXTURE_ENV_COLOR, blendColor);
+        GL11.glTexEnvi(GL11.GL_TEXTURE_ENV, GL13.GL_COMBINE_RGB, GL13.GL_INTERPOLATE);
+        GL11.glTexEnvi(GL11.GL_TEXTURE_ENV, GL13.GL_SOURCE0_RGB, GL11.GL_TEXTURE);
+        GL11.glTexEnvi(GL11.GL_TEXTURE_ENV, GL13.GL_OPERAND0_RGB, GL11.GL_SRC_COLOR);
+        GL11.glTexEnvi(GL11.GL_TEXTURE_ENV, GL13.GL_SOURCE1_RGB, GL13.GL_PREVIOUS);
+        GL11.glTexEnvi(GL11.GL_TEXTURE_ENV, GL13.GL_OPERAND1_RGB, GL11.GL_SRC_COLOR);
+        GL11.glTexEnvi(GL11.GL_TEXTURE_ENV, GL13.GL_SOURCE2_RGB, GL13.GL_CONSTANT);
+        GL11.glTexEnvi(GL11.GL_TEXTURE_ENV, GL13.GL_OPERAND2_RGB, GL11.GL_SRC_ALPHA);
+        GL11.glTexEnvi(GL11.GL_TEXTURE_ENV, GL13.GL_COMBINE_ALPHA, GL11.GL_MODULATE);
+        GL11.glTexEnvi(GL11.GL_TEXTURE_ENV, GL13.GL_SOURCE0_ALPHA, GL13.GL_PREVIOUS);
+        GL11.glTexEnvi(GL11.GL_TEXTURE_ENV, GL13.GL_OPERAND0_ALPHA, GL11.GL_SRC_ALPHA);
+        GL11.glTexEnvi(GL11.GL_TEXTURE_ENV, GL13.GL_SOURCE1_ALPHA, GL13.GL_PRIMARY_COLOR);
+        GL11.glTexEnvi(GL11.GL_TEXTURE_ENV, GL13.GL_OPERAND1_ALPHA, GL11.GL_SRC_ALPHA);
+
+        GL11.glColor4f(1f, 1f, 1f, opacity);
+        GL11.glBegin(GL11.GL_QUADS);
+        texCoord(0, 0); GL11.glVertex2f(x, y);
+        texCoord(1, 0); GL11.glVertex2f(x + width, y);
+        texCoord(1, 1); GL11.glVertex2f(x + width, y + height);
+        texCoord(0, 1); GL11.glVertex2f(x, y + height);
+        GL11.glEnd();
+
+        // Trả lại trạng thái mặc định (MODULATE, chỉ unit 0) cho các lần vẽ khác
+        GL11.glTexEnvi(GL11.GL_TEXTURE_ENV, GL11.GL_TEXTURE_ENV_MODE, GL11.GL_MODULATE);
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
+        GL11.glDisable(GL11.GL_TEXTURE_2D);
+        GL13.glActiveTexture(GL13.GL_TEXTURE0);
+        GL11.glTexEnvi(GL11.GL_TEXTURE_ENV, GL11.GL_TEXTURE_ENV_MODE, GL11.GL_MODULATE);
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
+        GL11.glDisable(GL11.GL_TEXTURE_2D);
+    }
+
+    /** Cùng toạ độ texture cho cả hai unit */
+    private static void texCoord(float s, float t) {
+        GL13.glMultiTexCoord2f(GL13.GL_TEXTURE0, s, t);
+        GL13.glMultiTexCoord2f(GL13.GL_TEXTURE1, s, t);
+    }
+
+    @Override
+    public void deleteTexture(int textureId) {
+        pendingDeletes.add(textureId);
+    }
+
+    /** Xoá các texture đã được yêu cầu xoá (chạy ở render thread) */
+    private void flushPendingDeletes() {
+        Integer textureId;
+        while ((textureId = pendingDeletes.poll()) != null) {
+            PixelBuffers pbo = pixelBuffers.remove(textureId);
+            if (pbo != null) {
+                pbo.delete();
+            }
+            GL11.glDeleteTextures(textureId);
+        }
+    }
+
+    /** Cặp PBO dùng luân phiên cho một texture */
+    private static class PixelBuffers {
+        private final int[] ids = new int[PBO_COUNT];
+        private int index = 0;
+
+        PixelBuffers() {
+            for (int i = 0; i < PBO_COUNT; i++) {
+                ids[i] = GL15.glGenBuffers();
+            }
+        }
+
+        int next() {
+            index = (index + 1) % PBO_COUNT;
+            return ids[index];
+        }
+
+        void delete() {
+            for (int id : ids) {
+                GL15.glDeleteBuffers(id);
+            }
+        }
+    }
+}
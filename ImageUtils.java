@@ -1,10 +1,21 @@
 package com.livewallpaper.api.util;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.awt.Dimension;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
 
 /**
  * Tiện ích load ảnh từ file.
@@ -28,4 +39,102 @@ public class ImageUtils {
             return null;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Load ảnh và lấy mẫu thưa ngay khi decode (chỉ giữ 1 pixel trên mỗi subsampling × subsampling).
+     * Ảnh trả về có kích thước ceil(w / subsampling) × ceil(h / subsampling).
+     *
+     * @param path Đường dẫn ảnh
+     * @param subsampling hệ số lấy mẫu (1 = đủ độ phân giải)
+     * @return BufferedImage hoặc null nếu lỗi
+     */
+    public static BufferedImage loadImage(Path path, int subsampling) {
+        if (subsampling <= 1) return loadImage(path);
+        if (path == null || !Files.exists(path)) return null;
+        try (ImageInputStream in = ImageIO.createImageInputStream(path.toFile())) {
+            return read(in, subsampling);
+        } catch (IOException e) {
+            System.err.println("Không thể load ảnh: " + path + " (" + e.getMessage() + ")");
+            return null;
+        }
+    }
+
+    /**
+     * Decode ảnh từ byte của file ảnh đã nằm trong bộ nhớ (không đụng tới đĩa,
+     * kể cả file cache tạm của ImageIO).
+     *
+     * @param data byte của file ảnh
+     * @param subsampling hệ số lấy mẫu (1 = đủ độ phân giải)
+     * @return BufferedImage hoặc null nếu không decode được
+     */
+    public static BufferedImage loadImage(byte[] data, int subsampling) {
+        if (data == null) return null;
+        try (ImageInputStream in = new MemoryCacheImageInputStream(new ByteArrayInputStream(data))) {
+            return read(in, subsampling);
+        } catch (IOException e) {
+            System.err.println("Không thể decode ảnh trong bộ nhớ (" + e.getMessage() + ")");
+            return null;
+        }
+    }
+
+    /**
+     * Đọc nguyên file vào một mảng byte qua FileChannel (một lần đọc, không qua stream đệm).
+     *
+     * @param path Đường dẫn file
+     * @throws IOException nếu không đọc được hoặc file lớn hơn 2 GB
+     */
+    public static byte[] readBytes(Path path) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size > Integer.MAX_VALUE - 8) {
+                throw new IOException("File quá lớn: " + path);
+            }
+            ByteBuffer buf = ByteBuffer.allocate((int) size);
+            while (buf.hasRemaining()) {
+                if (ch.read(buf) < 0) throw new EOFException("File bị cắt ngắn khi đang đọc: " + path);
+            }
+            return buf.array();
+        }
+    }
+
+    private static BufferedImage read(ImageInputStream in, int subsampling) throws IOException {
+        if (in == null) return null;
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+        if (!readers.hasNext()) return null;
+        ImageReader reader = readers.next();
+        try {
+            reader.setInput(in, true, true);
+            ImageReadParam param = reader.getDefaultReadParam();
+            if (subsampling > 1) {
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+            }
+            return reader.read(0, param);
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    /**
+     * Đọc kích thước ảnh từ header, không decode pixel.
+     *
+     * @param path Đường dẫn ảnh
+     * @return kích thước hoặc null nếu lỗi
+     */
+    public static Dimension readSize(Path path) {
+        if (path == null || !Files.exists(path)) return null;
+        try (ImageInputStream in = ImageIO.createImageInputStream(path.toFile())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) return null;
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                return new Dimension(reader.getWidth(0), reader.getHeight(0));
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            System.err.println("Không thể đọc kích thước ảnh: " + path + " (" + e.getMessage() + ")");
+            return null;
+        }
+    }
+}
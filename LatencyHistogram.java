@@ -0,0 +1,109 @@
+package com.livewallpaper.api.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram thời gian với các bucket cố định, ghi không khoá và không cấp phát.
+ *
+ * - Mỗi bucket là một LongAdder (phân tán theo thread khi tranh chấp).
+ * - Biên bucket tính bằng micro giây, bucket cuối chứa mọi giá trị lớn hơn.
+ */
+public class LatencyHistogram {
+
+    /** Biên trên của các bucket (micro giây) */
+    static final long[] BOUNDS_MICROS = {
+            100, 250, 500, 1_000, 2_000, 4_000, 8_000, 16_000, 33_000, 66_000, 125_000, 250_000
+    };
+
+    private final LongAdder[] buckets = new LongAdder[BOUNDS_MICROS.length + 1];
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /** Ghi một lần đo (nano giây) */
+    public void record(long nanos) {
+        long micros = nanos / 1_000;
+        int i = 0;
+        while (i < BOUNDS_MICROS.length && micros > BOUNDS_MICROS[i]) i++;
+        buckets[i].increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    /** Tổng thời gian đã ghi (nano giây) */
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public Snapshot snapshot() {
+        long[] counts = new long[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return new Snapshot(counts, totalNanos.sum(), maxNanos.get());
+    }
+
+    /** Ảnh chụp bất biến của histogram */
+    public static class Snapshot {
+        /**
+         * Biên trên các bucket (micro giây); counts có thêm một bucket cuối cho phần còn lại.
+         * Bản sao riêng của mỗi snapshot: sửa mảng này không ảnh hưởng tới mọi histogram.
+         */
+        public final long[] boundsMicros = BOUNDS_MICROS.clone();
+        public final long[] counts;
+        public final long count;
+        public final double meanMs;
+        public final double p50Ms;
+        public final double p99Ms;
+        public final double maxMs;
+
+        Snapshot(long[] counts, long totalNanos, long maxNanos) {
+            this.counts = counts;
+            long n = 0;
+            for (long c : counts) n += c;
+            this.count = n;
+            this.meanMs = n == 0 ? 0 : totalNanos / 1e6 / n;
+            this.maxMs = maxNanos / 1e6;
+            this.p50Ms = percentile(0.50);
+            this.p99Ms = percentile(0.99);
+        }
+
+        /** Gộp nhiều histogram (ví dụ của mọi wallpaper) */
+        static Snapshot merge(Iterable<Snapshot> parts) {
+            long[] counts = new long[BOUNDS_MICROS.length + 1];
+            double totalNanos = 0;
+            double max = 0;
+            for (Snapshot s : parts) {
+                for (int i = 0; i < counts.length; i++) counts[i] += s.counts[i];
+                totalNanos += s.meanMs * 1e6 * s.count;
+                max = Math.max(max, s.maxMs);
+            }
+            return new Snapshot(counts, (long) totalNanos, (long) (max * 1e6));
+        }
+
+        /** Phân vị xấp xỉ: biên trên của bucket chứa phân vị (bucket cuối lấy max) */
+        private double percentile(double p) {
+            if (count == 0) return 0;
+            long rank = (long) Math.ceil(p * count);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return i < BOUNDS_MICROS.length ? Math.min(BOUNDS_MICROS[i] / 1e3, maxMs) : maxMs;
+                }
+            }
+            return maxMs;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("n=%d mean=%.2fms p50≤%.2fms p99≤%.2fms max=%.2fms", count, meanMs, p50Ms, p99Ms, maxMs);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.livewallpaper.api;
 
+import com.livewallpaper.api.metrics.MetricsSnapshot;
+
 import java.nio.file.Path;
 
 /**
@@ -8,6 +10,8 @@ import java.nio.file.Path;
  * Nguyên tắc:
  * - Không phụ thuộc loader (Fabric/Forge/Quilt).
  * - Gọn, chỉ cung cấp các hàm cần thiết; phần triển khai chi tiết nằm ở WallpaperManager.
+ * - Các hàm điều khiển (play/pause/stop/seek/setLoop/setLoopMode/setFPS) gọi được từ thread bất kỳ, không khoá
+ *   và không chặn render thread; frame hiện tại đổi theo ở lần tick kế tiếp.
  *
  * Ví dụ dùng (pseudo):
  *   LiveWallpaperAPI api = LiveWallpaperApiHolder.get(); // Lấy instance từ implementor
@@ -65,6 +69,26 @@ public interface LiveWallpaperAPI {
      */
     void seek(String id, double seconds);
 
+    /**
+     * Gợi ý wallpaper có đang hiện trên màn hình không (ví dụ bị GUI che, cửa sổ thu nhỏ, đang trong world).
+     *
+     * Bị ẩn thì wallpaper tạm ngưng ngay: dừng decode và trả frame đã cache trừ frame đang hiện.
+     * Đồng hồ phát vẫn chạy; hiện lại (setVisible(true) hoặc render) thì vị trí được lấy theo đồng hồ và chỉ
+     * frame hiện tại được decode trước. Wallpaper không được render một thời gian cũng tự tạm ngưng.
+     *
+     * @param id id wallpaper
+     * @param visible false nếu đang bị ẩn
+     */
+    void setVisible(String id, boolean visible);
+
+    /**
+     * Wallpaper có đang tạm ngưng vì bị ẩn hoặc lâu không được render không.
+     *
+     * @param id id wallpaper
+     * @return true nếu đang tạm ngưng
+     */
+    boolean isSuspended(String id);
+
     /**
      * Lấy vị trí phát hiện tại (tính bằng giây).
      *
@@ -97,6 +121,22 @@ public interface LiveWallpaperAPI {
      */
     boolean isLooping(String id);
 
+    /**
+     * Đổi cách lặp (ONCE, LOOP hoặc PING_PONG: xuôi rồi ngược), giữ nguyên frame đang hiện.
+     *
+     * @param id id wallpaper
+     * @param mode cách lặp
+     */
+    void setLoopMode(String id, LoopMode mode);
+
+    /**
+     * Lấy cách lặp hiện tại.
+     *
+     * @param id id wallpaper
+     * @return cách lặp, ONCE nếu chưa đăng ký
+     */
+    LoopMode getLoopMode(String id);
+
     /**
      * Đặt FPS khi phát. Triển khai sẽ cập nhật timer nội bộ theo FPS mới.
      * Giá trị hợp lệ > 0, có thể giới hạn hoặc từ chối giá trị quá lớn.
@@ -114,6 +154,66 @@ public interface LiveWallpaperAPI {
      */
     int getFPS(String id);
 
+    /**
+     * Đặt FPS hiển thị. Lớn hơn FPS nguồn (getFPS) thì frame trung gian được tạo bằng cách trộn
+     * hai frame nguồn kề nhau, nên wallpaper ít frame vẫn chuyển động mượt mà không phải decode/cache thêm frame.
+     *
+     * @param id id wallpaper
+     * @param fps FPS hiển thị, 0 = hiện đúng FPS nguồn
+     */
+    void setDisplayFPS(String id, int fps);
+
+    /**
+     * Lấy FPS hiển thị đã đặt.
+     *
+     * @param id id wallpaper
+     * @return FPS hiển thị, 0 nếu tắt hoặc chưa đăng ký
+     */
+    int getDisplayFPS(String id);
+
+    /**
+     * FPS hiển thị thực tế. Bằng getFPS() trừ khi bộ tự điều chỉnh chất lượng đang hạ FPS,
+     * hoặc bằng FPS hiển thị khi đang trộn frame trung gian.
+     *
+     * @param id id wallpaper
+     * @return fps thực tế
+     */
+    int getEffectiveFPS(String id);
+
+    /**
+     * Bậc độ phân giải đang dùng (0 = đủ độ phân giải, mỗi bậc giảm một nửa mỗi chiều).
+     * Phụ thuộc kích thước vùng render và bộ tự điều chỉnh chất lượng.
+     *
+     * @param id id wallpaper
+     * @return tier (0..3)
+     */
+    int getEffectiveTier(String id);
+
+    /**
+     * Số frame đang được decode trước thực tế.
+     *
+     * @param id id wallpaper
+     * @return độ sâu prefetch
+     */
+    int getEffectivePrefetchDepth(String id);
+
+    /**
+     * Kiểu phát thực tế (wallpaper có mọi frame giống nhau được tự chuyển sang STATIC).
+     *
+     * @param id id wallpaper
+     * @return kiểu phát, null nếu chưa đăng ký
+     */
+    WallpaperMode getMode(String id);
+
+    /**
+     * Số frame bị bỏ qua vì render chậm hơn FPS (kể từ khi đăng ký).
+     * Dùng để ước lượng khả năng decode cần thiết.
+     *
+     * @param id id wallpaper
+     * @return số frame bị bỏ qua
+     */
+    long getSkippedFrames(String id);
+
     /**
      * Đặt độ mờ khi render (0.0f = trong suốt hoàn toàn, 1.0f = đục hoàn toàn).
      *
@@ -146,15 +246,17 @@ public interface LiveWallpaperAPI {
     void render(String id, int x, int y, int width, int height);
 
     /**
-     * Tiện ích: đăng ký wallpaper từ thư mục frames (có thể trong config hoặc assets).
+     * Tiện ích: đăng ký wallpaper từ thư mục frames (có thể trong config hoặc assets)
+     * hoặc từ file archive .lwp (tạo bằng WallpaperPacker), hoặc từ một file GIF động.
      * Triển khai sẽ tạo WallpaperDescriptor từ thông tin này.
+     * Thư mục frames có thể đặt tên file tuỳ ý (thứ tự tự nhiên theo tên).
      *
      * @param id id wallpaper
-     * @param framesFolder đường dẫn tới thư mục frames
+     * @param framesFolder đường dẫn tới thư mục frames, file .lwp hoặc file .gif
      * @param fps fps
-     * @param frames tổng số frame (nếu không biết, triển khai có thể tự dò)
-     * @param width chiều rộng frame
-     * @param height chiều cao frame
+     * @param frames tổng số frame (WallpaperDescriptor.AUTO để tự dò)
+     * @param width chiều rộng frame (WallpaperDescriptor.AUTO để đọc từ header ảnh)
+     * @param height chiều cao frame (WallpaperDescriptor.AUTO để đọc từ header ảnh)
      * @param loop có lặp hay không
      */
     void registerWallpaper(String id, Path framesFolder, int fps, int frames, int width, int height, boolean loop);
@@ -166,4 +268,12 @@ public interface LiveWallpaperAPI {
      * @return true nếu đã đăng ký
      */
     boolean isRegistered(String id);
-}
\ No newline at end of file
+
+    /**
+     * Chụp số liệu chạy: cache (hit/miss/evict, dung lượng), thời gian decode/convert/upload,
+     * số frame render/lặp lại/bỏ qua; toàn cục và theo từng wallpaper.
+     *
+     * @return ảnh chụp bất biến
+     */
+    MetricsSnapshot getMetrics();
+}
@@ -1,15 +1,120 @@
 package com.livewallpaper.api.fabric;
 
+import com.livewallpaper.api.LoopMode;
+import com.livewallpaper.api.WallpaperDescriptor;
 import com.livewallpaper.api.WallpaperManager;
+import com.livewallpaper.api.WallpaperMode;
 import net.fabricmc.api.ClientModInitializer;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 public class LiveWallpaperAPIMod implements ClientModInitializer {
 
     /** Singleton WallpaperManager */
     public static final WallpaperManager MANAGER = new WallpaperManager();
 
+    /** Ghi số liệu chạy định kỳ (tắt nếu metricsDumpSeconds = 0) */
+    public static final MetricsReporter METRICS = new MetricsReporter(MANAGER);
+
+    /** Thư mục chứa wallpaper: &lt;id&gt;/ (thư mục frames), &lt;id&gt;.lwp hoặc &lt;id&gt;.gif */
+    private static final Path WALLPAPER_DIR = Path.of("config/livewallpapers");
+
     @Override
     public void onInitializeClient() {
+        WallpaperConfig config = WallpaperConfig.load();
+        MANAGER.setIndexCacheDir(Path.of("config/livewallpapers/cache"));
+        MANAGER.setPrefetchDepth(config.prefetchFrames);
+        MANAGER.setQualityGovernor(config.adaptiveQuality, config.frameBudgetMs);
+        MANAGER.setIdleSuspendMillis(config.idleSuspendMs);
+        if (config.encodedCacheMB >= 0) {
+            MANAGER.setEncodedCacheBudgetBytes((long) config.encodedCacheMB * 1024 * 1024);
+        }
+        METRICS.start(config.metricsDumpSeconds, config.metricsDumpJson);
+        warmUpActiveWallpaper(config);
         System.out.println("[LiveWallpaperAPI] Khởi động API Fabric thành công!");
     }
+
+    /**
+     * Đăng ký wallpaper đang chọn trong config và decode trước các frame đầu, tất cả ở background
+     * (tìm file, mở nguồn frame, quét thư mục đều có thể chậm). Client chỉ chờ tối đa warmupMaxWaitMs;
+     * phần còn lại tiếp tục sau khi client đã khởi động. Wallpaper bắt đầu phát ở lần render đầu tiên
+     * để các frame đã làm nóng là các frame được hiện.
+     */
+    private static void warmUpActiveWallpaper(WallpaperConfig config) {
+        String id = config.activeWallpaper;
+        if (id == null || id.isEmpty()) return;
+
+        long start = System.nanoTime();
+        CompletableFuture<Integer> warmUp = new CompletableFuture<>();
+        Thread t = new Thread(() -> {
+            try {
+                if (!registerActiveWallpaper(config, id)) {
+                    warmUp.complete(0);
+                    return;
+                }
+                MANAGER.warmUp(id, config.warmupFrames).whenComplete((ready, error) -> {
+                    if (error != null) {
+                        warmUp.completeExceptionally(error);
+                    } else {
+                        warmUp.complete(ready);
+                    }
+                });
+            } catch (RuntimeException e) {
+                warmUp.completeExceptionally(e);
+            }
+        }, "LiveWallpaper-Init");
+        t.setDaemon(true);
+        t.start();
+
+        warmUp.thenAccept(ready -> System.out.println("[LiveWallpaperAPI] Warm-up '" + id + "': " + ready
+                + " frame sẵn sàng sau " + (System.nanoTime() - start) / 1_000_000 + " ms"));
+        try {
+            warmUp.get(Math.max(0, config.warmupMaxWaitMs), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            System.out.println("[LiveWallpaperAPI] Warm-up '" + id + "' vượt " + config.warmupMaxWaitMs
+                    + " ms, tiếp tục ở nền");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            System.err.println("[LiveWallpaperAPI] Warm-up '" + id + "' lỗi (" + e.getCause() + ")");
+        }
+    }
+
+    /**
+     * Tìm và đăng ký wallpaper đang chọn (thread background).
+     *
+     * @return false nếu không tìm thấy hoặc không đăng ký được
+     */
+    private static boolean registerActiveWallpaper(WallpaperConfig config, String id) {
+        Path path = findWallpaper(id);
+        if (path == null) {
+            System.out.println("[LiveWallpaperAPI] Không tìm thấy wallpaper '" + id + "' trong " + WALLPAPER_DIR);
+            return false;
+        }
+        try {
+            MANAGER.registerWallpaper(new WallpaperDescriptor(id, path, Math.max(1, config.fps),
+                    WallpaperDescriptor.AUTO, WallpaperDescriptor.AUTO, WallpaperDescriptor.AUTO,
+                    config.loop ? (config.pingPong ? LoopMode.PING_PONG : LoopMode.LOOP) : LoopMode.ONCE,
+                    WallpaperMode.ANIMATION));
+        } catch (IllegalArgumentException e) {
+            System.err.println("[LiveWallpaperAPI] Không thể đăng ký wallpaper '" + id + "' (" + e.getMessage() + ")");
+            return false;
+        }
+        MANAGER.setOpacity(id, config.opacity);
+        MANAGER.setDisplayFPS(id, config.displayFps);
+        MANAGER.playOnFirstRender(id);
+        return true;
+    }
+
+    private static Path findWallpaper(String id) {
+        for (Path p : new Path[]{WALLPAPER_DIR.resolve(id), WALLPAPER_DIR.resolve(id + ".lwp"), WALLPAPER_DIR.resolve(id + ".gif")}) {
+            if (Files.exists(p)) return p;
+        }
+        return null;
+    }
 }
\ No newline at end of file
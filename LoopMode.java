@@ -0,0 +1,43 @@
+package com.livewallpaper.api;
+
+/**
+ * Cách phát khi tới frame cuối.
+ *
+ * - ONCE: dừng ở frame cuối.
+ * - LOOP: quay về frame 0.
+ * - PING_PONG: phát ngược về frame 0 rồi lại xuôi (0..N-1..1..0..), dùng lại frame đã decode
+ *   thay vì cần thêm các frame đảo ngược trên đĩa.
+ */
+public enum LoopMode {
+    ONCE,
+    LOOP,
+    PING_PONG;
+
+    /** Có phát tiếp sau frame cuối không */
+    public boolean repeats() {
+        return this != ONCE;
+    }
+
+    /**
+     * Frame hiển thị tại một vị trí (số frame đã phát từ đầu, chưa quấn vòng; âm = trước frame 0).
+     *
+     * @return index frame, -1 nếu vị trí nằm ngoài wallpaper ONCE
+     */
+    public int frameAt(long position, int totalFrames) {
+        switch (this) {
+            case LOOP:
+                return (int) Math.floorMod(position, (long) totalFrames);
+            case PING_PONG:
+                if (totalFrames == 1) return 0;
+                long period = 2L * (totalFrames - 1);
+                int phase = (int) Math.floorMod(position, period);
+                return phase < totalFrames ? phase : (int) (period - phase);
+            default:
+                return (position >= 0 && position < totalFrames) ? (int) position : -1;
+        }
+    }
+
+    static LoopMode of(boolean loop) {
+        return loop ? LOOP : ONCE;
+    }
+}
@@ -0,0 +1,245 @@
+package com.livewallpaper.api.cache;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Theo dõi áp lực bộ nhớ và co/giãn WallpaperCache theo đó.
+ *
+ * - Budget ban đầu tính từ heap tối đa (-Xmx) và RAM vật lý (autoBudgetBytes, autoEncodedBudgetBytes).
+ * - Đăng ký ngưỡng sử dụng (MemoryPoolMXBean) trên các vùng heap; khi vượt ngưỡng → co cache
+ *   và tầng byte mã hoá (nằm trên heap) về PRESSURE_FRACTION budget, rồi báo Listener (giảm độ sâu prefetch).
+ * - poll() (gọi từ tick) kiểm tra định kỳ: mọi vùng heap xuống dưới đúng ngưỡng đã kích hoạt áp lực
+ *   (heap sau GC so với ngưỡng collection, heap hiện tại so với ngưỡng usage) thì giãn lại.
+ *   Ngưỡng vào và ra là một nên không có vùng lửng nào giữ áp lực mãi; chống dao động nhờ MIN_PRESSURE_NANOS.
+ * - hasHeadroom() cho thread decode biết còn đủ heap để decode một frame hay không,
+ *   để frame wallpaper không bao giờ là nguyên nhân gây OutOfMemoryError.
+ * - Mọi lần đổi budget đều được ghi log.
+ */
+public class MemoryPressureMonitor {
+
+    /** Nhận thông báo khi trạng thái áp lực bộ nhớ thay đổi */
+    public interface Listener {
+        void onMemoryPressure(boolean underPressure);
+    }
+
+    private static final long MIN_BUDGET_BYTES = 32L * 1024 * 1024;
+    private static final long MAX_BUDGET_BYTES = 1024L * 1024 * 1024;
+    private static final long MAX_ENCODED_BUDGET_BYTES = 256L * 1024 * 1024;
+
+    /** Ngưỡng sử dụng heap (tỉ lệ so với max) để coi là có áp lực */
+    private static final double USAGE_THRESHOLD = 0.85;
+    private static final double COLLECTION_THRESHOLD = 0.70;
+
+    /** Khi có áp lực, cache co còn phần này của budget bình thường */
+    private static final double PRESSURE_FRACTION = 0.25;
+
+    /** Phần heap luôn chừa lại cho game khi quyết định có decode hay không (tối đa 1/8 heap) */
+    private static final long HEAP_RESERVE_BYTES = 64L * 1024 * 1024;
+
+    private static final long POLL_INTERVAL_NANOS = 2_000_000_000L;
+    private static final long MIN_PRESSURE_NANOS = 10_000_000_000L;
+
+    private final WallpaperCache cache;
+    private final Listener listener;
+    private final List<MemoryPoolMXBean> pools = new ArrayList<>();
+    private final NotificationListener notificationListener = this::handleNotification;
+
+    private volatile long normalBudgetBytes;
+    private volatile long normalEncodedBudgetBytes;
+    private volatile boolean underPressure = false;
+    private volatile long pressureSince = 0;
+    private long nextPoll = System.nanoTime();
+    private boolean started = false;
+
+    public MemoryPressureMonitor(WallpaperCache cache, Listener listener) {
+        this.cache = cache;
+        this.listener = listener;
+        this.normalBudgetBytes = cache.getBudgetBytes();
+        this.normalEncodedBudgetBytes = cache.getEncodedBudgetBytes();
+    }
+
+    /**
+     * Budget mặc định theo máy: nửa heap tối đa hoặc 1/8 RAM vật lý (lấy số nhỏ hơn),
+     * trong khoảng 32 MB .. 1 GB. Frame nằm off-heap nhưng -Xmx cho biết người chơi dành bao nhiêu bộ nhớ cho game.
+     */
+    public static long autoBudgetBytes() {
+        long budget = Runtime.getRuntime().maxMemory() / 2;
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            long physical = ((com.sun.management.OperatingSystemMXBean) os).getTotalMemorySize();
+            if (physical > 0) budget = Math.min(budget, physical / 8);
+        }
+        return Math.max(MIN_BUDGET_BYTES, Math.min(MAX_BUDGET_BYTES, budget));
+    }
+
+    /**
+     * Budget mặc định của tầng byte mã hoá: 1/8 heap tối đa (byte[] nằm trên heap), tối đa 256 MB.
+     */
+    public static long autoEncodedBudgetBytes() {
+        return Math.min(MAX_ENCODED_BUDGET_BYTES, Runtime.getRuntime().maxMemory() / 8);
+    }
+
+    /** Đăng ký ngưỡng và lắng nghe thông báo bộ nhớ */
+    public synchronized void start() {
+        if (started) return;
+        started = true;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() != MemoryType.HEAP) continue;
+            long max = pool.getUsage().getMax();
+            if (max <= 0) continue;
+            boolean watched = false;
+            // Chỉ đặt ngưỡng chưa ai đặt, không ghi đè cấu hình của mod khác
+            if (pool.isCollectionUsageThresholdSupported()) {
+                if (pool.getCollectionUsageThreshold() == 0) {
+                    pool.setCollectionUsageThreshold((long) (max * COLLECTION_THRESHOLD));
+                }
+                watched = true;
+            }
+            if (pool.isUsageThresholdSupported() && pool.getUsageThreshold() == 0) {
+                pool.setUsageThreshold((long) (max * USAGE_THRESHOLD));
+                watched = true;
+            }
+            if (watched) pools.add(pool);
+        }
+        if (ManagementFactory.getMemoryMXBean() instanceof NotificationEmitter) {
+            ((NotificationEmitter) ManagementFactory.getMemoryMXBean())
+                    .addNotificationListener(notificationListener, null, null);
+        }
+        System.out.println("[LiveWallpaperAPI] Cache frame: " + mb(cache.getBudgetBytes()) + " MB, byte mã hoá: "
+                + mb(cache.getEncodedBudgetBytes()) + " MB (heap tối đa " + mb(Runtime.getRuntime().maxMemory())
+                + " MB), theo dõi " + pools.size() + " vùng heap");
+    }
+
+    /** Gỡ lắng nghe */
+    public synchronized void stop() {
+        if (!started) return;
+        started = false;
+        try {
+            ((NotificationEmitter) ManagementFactory.getMemoryMXBean()).removeNotificationListener(notificationListener);
+        } catch (Exception e) {
+            // Chưa đăng ký được thì không có gì để gỡ
+        }
+    }
+
+    /** Đổi budget bình thường (khi không có áp lực) */
+    public void setNormalBudgetBytes(long bytes) {
+        normalBudgetBytes = Math.max(0, bytes);
+        if (!underPressure) resize(normalBudgetBytes, "đặt lại");
+    }
+
+    /** Đổi budget bình thường của tầng byte mã hoá (khi không có áp lực) */
+    public void setNormalEncodedBudgetBytes(long bytes) {
+        normalEncodedBudgetBytes = Math.max(0, bytes);
+        if (!underPressure) resizeEncoded(normalEncodedBudgetBytes, "đặt lại");
+    }
+
+    public boolean isUnderPressure() {
+        return underPressure;
+    }
+
+    /**
+     * Còn đủ heap cho một lần decode cần khoảng bytes byte không.
+     * Không đủ → vào trạng thái áp lực, người gọi nên bỏ qua frame này.
+     */
+    public boolean hasHeadroom(long bytes) {
+        Runtime rt = Runtime.getRuntime();
+        long available = rt.maxMemory() - (rt.totalMemory() - rt.freeMemory());
+        long reserve = Math.min(HEAP_RESERVE_BYTES, rt.maxMemory() / 8);
+        if (available - bytes >= reserve) return true;
+        enterPressure("heap còn " + mb(available) + " MB");
+        return false;
+    }
+
+    /** Một lần cấp phát cho frame thất bại (heap hoặc off-heap) */
+    public void onAllocationFailure(String what) {
+        enterPressure("không cấp phát được " + what);
+    }
+
+    /**
+     * Kiểm tra hết áp lực (gọi thường xuyên, tự giãn theo POLL_INTERVAL_NANOS).
+     *
+     * @param now System.nanoTime()
+     */
+    public void poll(long now) {
+        if (!underPressure || now - nextPoll < 0) return;
+        nextPoll = now + POLL_INTERVAL_NANOS;
+        if (now - pressureSince < MIN_PRESSURE_NANOS) return;
+
+        for (MemoryPoolMXBean pool : pools) {
+            if (aboveThreshold(pool)) return;
+        }
+        exitPressure();
+    }
+
+    /**
+     * Vùng heap còn vượt ngưỡng đã đăng ký không, đo đúng như JVM đo khi gửi thông báo:
+     * heap sau GC với ngưỡng collection, heap hiện tại với ngưỡng usage.
+     */
+    private static boolean aboveThreshold(MemoryPoolMXBean pool) {
+        if (pool.isCollectionUsageThresholdSupported() && pool.getCollectionUsageThreshold() > 0) {
+            MemoryUsage afterGc = pool.getCollectionUsage();
+            if (afterGc != null && afterGc.getUsed() >= pool.getCollectionUsageThreshold()) return true;
+        }
+        if (pool.isUsageThresholdSupported() && pool.getUsageThreshold() > 0) {
+            return pool.getUsage().getUsed() >= pool.getUsageThreshold();
+        }
+        return false;
+    }
+
+    private void handleNotification(Notification n, Object handback) {
+        String type = n.getType();
+        if (MemoryNotificationInfo.MEMORY_THRESHOLD_EXCEEDED.equals(type)
+                || MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(type)) {
+            enterPressure("heap vượt ngưỡng");
+        }
+    }
+
+    private void enterPressure(String reason) {
+        synchronized (this) {
+            pressureSince = System.nanoTime();
+            if (underPressure) return;
+            underPressure = true;
+        }
+        resize(Math.max(MIN_BUDGET_BYTES / 2, (long) (normalBudgetBytes * PRESSURE_FRACTION)), reason);
+        resizeEncoded((long) (normalEncodedBudgetBytes * PRESSURE_FRACTION), reason);
+        listener.onMemoryPressure(true);
+    }
+
+    private void exitPressure() {
+        synchronized (this) {
+            if (!underPressure) return;
+            underPressure = false;
+        }
+        resize(normalBudgetBytes, "hết áp lực bộ nhớ");
+        resizeEncoded(normalEncodedBudgetBytes, "hết áp lực bộ nhớ");
+        listener.onMemoryPressure(false);
+    }
+
+    private void resize(long bytes, String reason) {
+        long old = cache.getBudgetBytes();
+        if (old == bytes) return;
+        cache.setBudgetBytes(bytes);
+        System.out.println("[LiveWallpaperAPI] Cache frame: " + mb(old) + " MB → " + mb(bytes) + " MB (" + reason + ")");
+    }
+
+    private void resizeEncoded(long bytes, String reason) {
+        long old = cache.getEncodedBudgetBytes();
+        if (old == bytes) return;
+        cache.setEncodedBudgetBytes(bytes);
+        System.out.println("[LiveWallpaperAPI] Cache byte mã hoá: " + mb(old) + " MB → " + mb(bytes) + " MB (" + reason + ")");
+    }
+
+    private static long mb(long bytes) {
+        return bytes / (1024 * 1024);
+    }
+}
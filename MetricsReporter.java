@@ -0,0 +1,70 @@
+package com.livewallpaper.api.fabric;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.livewallpaper.api.LiveWallpaperAPI;
+import com.livewallpaper.api.metrics.MetricsSnapshot;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ghi số liệu chạy định kỳ ra log hoặc ra file JSON trong config/livewallpapers/.
+ * Chạy trên một thread daemon riêng, không đụng tới render thread.
+ */
+public class MetricsReporter {
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static final Path METRICS_PATH = Path.of("config/livewallpapers/metrics.json");
+
+    private final LiveWallpaperAPI api;
+    private ScheduledExecutorService executor;
+
+    public MetricsReporter(LiveWallpaperAPI api) {
+        this.api = api;
+    }
+
+    /**
+     * Bắt đầu ghi định kỳ (gọi lại sẽ thay lịch cũ).
+     *
+     * @param intervalSeconds chu kỳ (giây), ≤ 0 để tắt
+     * @param json true → ghi file JSON, false → in ra log
+     */
+    public synchronized void start(int intervalSeconds, boolean json) {
+        stop();
+        if (intervalSeconds <= 0) return;
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "LiveWallpaper-Metrics");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.scheduleAtFixedRate(() -> dump(json), intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /** Dừng ghi định kỳ */
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private void dump(boolean json) {
+        MetricsSnapshot snapshot = api.getMetrics();
+        if (!json) {
+            System.out.println("[LiveWallpaperAPI] Số liệu:" + String.format("%n") + snapshot);
+            return;
+        }
+        try {
+            Files.createDirectories(METRICS_PATH.getParent());
+            Files.writeString(METRICS_PATH, GSON.toJson(snapshot));
+        } catch (IOException | RuntimeException e) {
+            // Không để lỗi làm dừng lịch ghi định kỳ
+            System.err.println("Không thể ghi số liệu: " + METRICS_PATH + " (" + e.getMessage() + ")");
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.livewallpaper.api.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ảnh chụp số liệu toàn cục và của từng wallpaper tại một thời điểm.
+ *
+ * Số liệu decode/convert/upload toàn cục là tổng của các wallpaper đang đăng ký.
+ * Các field đều public final để có thể serialize thẳng ra JSON.
+ */
+public class MetricsSnapshot {
+
+    /** Thời điểm chụp (System.currentTimeMillis) */
+    public final long timestamp;
+
+    public final long cacheHits;
+    public final long cacheMisses;
+    public final long cacheEvictions;
+    public final long cacheResidentBytes;
+    public final long cacheBudgetBytes;
+
+    /** Tầng byte mã hoá của cache (file ảnh giữ trong RAM) */
+    public final long encodedHits;
+    public final long encodedMisses;
+    public final long encodedResidentBytes;
+    public final long encodedBudgetBytes;
+
+    /** Bộ nhớ off-heap của FrameStore: đang cấp phát / đang nằm trong pool */
+    public final long frameStoreAllocatedBytes;
+    public final long frameStorePooledBytes;
+
+    public final LatencyHistogram.Snapshot decode;
+    public final LatencyHistogram.Snapshot convert;
+    public final LatencyHistogram.Snapshot upload;
+
+    public final long framesRendered;
+    public final long framesRepeated;
+    public final long framesSkipped;
+
+    /** Frame cần hiện đã được decode sẵn / phải chờ */
+    public final long prefetchHits;
+    public final long prefetchMisses;
+
+    /** Số liệu theo id wallpaper */
+    public final Map<String, WallpaperMetrics.Snapshot> wallpapers;
+
+    public MetricsSnapshot(long timestamp, long cacheHits, long cacheMisses, long cacheEvictions,
+                           long cacheResidentBytes, long cacheBudgetBytes,
+                           long encodedHits, long encodedMisses, long encodedResidentBytes, long encodedBudgetBytes,
+                           long frameStoreAllocatedBytes, long frameStorePooledBytes,
+                           Map<String, WallpaperMetrics.Snapshot> wallpapers) {
+        this.timestamp = timestamp;
+        this.cacheHits = cacheHits;
+        this.cacheMisses = cacheMisses;
+        this.cacheEvictions = cacheEvictions;
+        this.cacheResidentBytes = cacheResidentBytes;
+        this.cacheBudgetBytes = cacheBudgetBytes;
+        this.encodedHits = encodedHits;
+        this.encodedMisses = encodedMisses;
+        this.encodedResidentBytes = encodedResidentBytes;
+        this.encodedBudgetBytes = encodedBudgetBytes;
+        this.frameStoreAllocatedBytes = frameStoreAllocatedBytes;
+        this.frameStorePooledBytes = frameStorePooledBytes;
+        this.wallpapers = Collections.unmodifiableMap(wallpapers);
+
+        List<LatencyHistogram.Snapshot> decodes = new ArrayList<>();
+        List<LatencyHistogram.Snapshot> converts = new ArrayList<>();
+        List<LatencyHistogram.Snapshot> uploads = new ArrayList<>();
+        long rendered = 0, repeated = 0, skipped = 0, hits = 0, misses = 0;
+        for (WallpaperMetrics.Snapshot w : wallpapers.values()) {
+            decodes.add(w.decode);
+            converts.add(w.convert);
+            uploads.add(w.upload);
+            rendered += w.framesRendered;
+            repeated += w.framesRepeated;
+            skipped += w.framesSkipped;
+            hits += w.prefetchHits;
+            misses += w.prefetchMisses;
+        }
+        this.decode = LatencyHistogram.Snapshot.merge(decodes);
+        this.convert = LatencyHistogram.Snapshot.merge(converts);
+        this.upload = LatencyHistogram.Snapshot.merge(uploads);
+        this.framesRendered = rendered;
+        this.framesRepeated = repeated;
+        this.framesSkipped = skipped;
+        this.prefetchHits = hits;
+        this.prefetchMisses = misses;
+    }
+
+    /** Tỉ lệ hit của cache (0..1) */
+    public double cacheHitRate() {
+        long total = cacheHits + cacheMisses;
+        return total == 0 ? 0 : cacheHits / (double) total;
+    }
+
+    /** Tỉ lệ frame đã được decode sẵn đúng lúc cần hiện (0..1) */
+    public double prefetchHitRate() {
+        long total = prefetchHits + prefetchMisses;
+        return total == 0 ? 0 : prefetchHits / (double) total;
+    }
+
+    @Override
+    public String toString() {
+        String nl = String.format("%n");
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("cache hit/miss/evict=%d/%d/%d (%.1f%%) resident=%dMB/%dMB, off-heap=%dMB (pool %dMB)",
+                cacheHits, cacheMisses, cacheEvictions, cacheHitRate() * 100,
+                cacheResidentBytes >> 20, cacheBudgetBytes >> 20,
+                frameStoreAllocatedBytes >> 20, frameStorePooledBytes >> 20)).append(nl);
+        sb.append(String.format("byte mã hoá hit/miss=%d/%d resident=%dMB/%dMB",
+                encodedHits, encodedMisses, encodedResidentBytes >> 20, encodedBudgetBytes >> 20)).append(nl);
+        sb.append(String.format("frame render/lặp/bỏ=%d/%d/%d, prefetch hit/miss=%d/%d (%.1f%%)", framesRendered,
+                framesRepeated, framesSkipped, prefetchHits, prefetchMisses, prefetchHitRate() * 100)).append(nl);
+        sb.append("decode  ").append(decode).append(nl);
+        sb.append("convert ").append(convert).append(nl);
+        sb.append("upload  ").append(upload);
+        for (Map.Entry<String, WallpaperMetrics.Snapshot> e : wallpapers.entrySet()) {
+            sb.append(nl).append("  '").append(e.getKey()).append("': ").append(e.getValue());
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,209 @@
+package com.livewallpaper.api.util;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * Chuyển BufferedImage sang RGBA 4 byte/pixel để upload lên GPU.
+ *
+ * - Đọc thẳng từ DataBuffer của ảnh (không qua getRGB) cho các kiểu phổ biến:
+ *   TYPE_INT_ARGB / TYPE_INT_ARGB_PRE / TYPE_INT_RGB và ảnh byte xen kẽ 3-4 kênh
+ *   (TYPE_4BYTE_ABGR, TYPE_3BYTE_BGR, RGBA 8-bit mà ImageIO trả về cho PNG).
+ * - Mỗi dòng được đảo kênh vào mảng tạm dùng lại rồi ghi hàng loạt (bulk put) vào buffer đích.
+ * - Kiểu khác rơi về getRGB theo từng dòng.
+ *
+ * Không thread-safe: mỗi thread dùng một instance riêng.
+ */
+public class PixelConverter {
+
+    private final boolean premultiply;
+
+    private int[] intRow = new int[0];
+    private byte[] byteRow = new byte[0];
+
+    /** Tổng thời gian (nano giây) và số byte đã chuyển, để đo tách khỏi thời gian decode */
+    private long convertNanos = 0;
+    private long convertedBytes = 0;
+
+    /**
+     * @param premultiply true để nhân sẵn alpha vào R/G/B (premultiplied alpha)
+     */
+    public PixelConverter(boolean premultiply) {
+        this.premultiply = premultiply;
+    }
+
+    /**
+     * Ghi ảnh vào buffer dạng RGBA, bắt đầu từ vị trí 0 của dst.
+     *
+     * @param img ảnh nguồn
+     * @param dst buffer đích (ít nhất width * height * 4 byte)
+     */
+    public void convert(BufferedImage img, ByteBuffer dst) {
+        long start = System.nanoTime();
+        int w = img.getWidth();
+        if (intRow.length < w) intRow = new int[w];
+        if (byteRow.length < w * 4) byteRow = new byte[w * 4];
+
+        ByteBuffer out = dst.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        out.clear();
+
+        int type = img.getType();
+        if ((type == BufferedImage.TYPE_INT_ARGB || type == BufferedImage.TYPE_INT_RGB
+                || (type == BufferedImage.TYPE_INT_ARGB_PRE && premultiply))
+                && img.getRaster().getSampleModel() instanceof SinglePixelPackedSampleModel) {
+            convertPackedInt(img, out, type == BufferedImage.TYPE_INT_RGB, type == BufferedImage.TYPE_INT_ARGB_PRE);
+        } else if (isInterleavedByte(img)) {
+            convertInterleavedByte(img, out);
+        } else {
+            convertGeneric(img, out);
+        }
+        convertNanos += System.nanoTime() - start;
+        convertedBytes += (long) w * img.getHeight() * 4;
+    }
+
+    /** Tổng thời gian đã chuyển (nano giây) */
+    public long getConvertNanos() {
+        return convertNanos;
+    }
+
+    /** Tổng số byte RGBA đã ghi */
+    public long getConvertedBytes() {
+        return convertedBytes;
+    }
+
+    /** Ảnh int đóng gói ARGB: đảo R và B, giữ G và A */
+    private void convertPackedInt(BufferedImage img, ByteBuffer out, boolean opaque, boolean alreadyPremultiplied) {
+        Raster raster = img.getRaster();
+        SinglePixelPackedSampleModel sm = (SinglePixelPackedSampleModel) raster.getSampleModel();
+        DataBufferInt db = (DataBufferInt) raster.getDataBuffer();
+        int[] data = db.getData();
+        int stride = sm.getScanlineStride();
+        int base = db.getOffset()
+                - raster.getSampleModelTranslateY() * stride
+                - raster.getSampleModelTranslateX();
+
+        int w = img.getWidth();
+        int h = img.getHeight();
+        int[] row = intRow;
+        boolean doPremultiply = premultiply && !opaque && !alreadyPremultiplied;
+        IntBuffer ints = out.asIntBuffer();
+
+        for (int y = 0; y < h; y++) {
+            int src = base + y * stride;
+            for (int x = 0; x < w; x++) {
+                int argb = data[src + x];
+                if (opaque) argb |= 0xFF000000;
+                if (doPremultiply) argb = premultiplyArgb(argb);
+                // ARGB → byte R,G,B,A (little-endian int ABGR)
+                row[x] = (argb & 0xFF00FF00) | ((argb >> 16) & 0xFF) | ((argb & 0xFF) << 16);
+            }
+            ints.put(row, 0, w);
+        }
+    }
+
+    /** Ảnh byte xen kẽ 3-4 kênh sRGB 8-bit, vị trí từng kênh lấy từ band offsets */
+    private void convertInterleavedByte(BufferedImage img, ByteBuffer out) {
+        Raster raster = img.getRaster();
+        ComponentSampleModel sm = (ComponentSampleModel) raster.getSampleModel();
+        DataBufferByte db = (DataBufferByte) raster.getDataBuffer();
+        byte[] data = db.getData();
+        int pixelStride = sm.getPixelStride();
+        int stride = sm.getScanlineStride();
+        int base = db.getOffset()
+                - raster.getSampleModelTranslateY() * stride
+                - raster.getSampleModelTranslateX() * pixelStride;
+
+        int[] offsets = sm.getBandOffsets();
+        int r = offsets[0];
+        int g = offsets[1];
+        int b = offsets[2];
+        boolean hasAlpha = offsets.length == 4;
+        int a = hasAlpha ? offsets[3] : 0;
+        boolean doPremultiply = premultiply && hasAlpha && !img.isAlphaPremultiplied();
+
+        int w = img.getWidth();
+        int h = img.getHeight();
+        byte[] row = byteRow;
+
+        for (int y = 0; y < h; y++) {
+            int src = base + y * stride;
+            int dst = 0;
+            for (int x = 0; x < w; x++, src += pixelStride) {
+                byte alpha = hasAlpha ? data[src + a] : (byte) 0xFF;
+                if (doPremultiply) {
+                    int av = alpha & 0xFF;
+                    row[dst] = (byte) mul(data[src + r] & 0xFF, av);
+                    row[dst + 1] = (byte) mul(data[src + g] & 0xFF, av);
+                    row[dst + 2] = (byte) mul(data[src + b] & 0xFF, av);
+                } else {
+                    row[dst] = data[src + r];
+                    row[dst + 1] = data[src + g];
+                    row[dst + 2] = data[src + b];
+                }
+                row[dst + 3] = alpha;
+                dst += 4;
+            }
+            out.put(row, 0, w * 4);
+        }
+    }
+
+    /** Kiểu bất kỳ: getRGB từng dòng vào mảng tạm */
+    private void convertGeneric(BufferedImage img, ByteBuffer out) {
+        int w = img.getWidth();
+        int h = img.getHeight();
+        int[] row = intRow;
+        IntBuffer ints = out.asIntBuffer();
+
+        for (int y = 0; y < h; y++) {
+            img.getRGB(0, y, w, 1, row, 0, w);
+            for (int x = 0; x < w; x++) {
+                int argb = row[x];
+                if (premultiply) argb = premultiplyArgb(argb);
+                row[x] = (argb & 0xFF00FF00) | ((argb >> 16) & 0xFF) | ((argb & 0xFF) << 16);
+            }
+            ints.put(row, 0, w);
+        }
+    }
+
+    /** Có đọc trực tiếp được dạng byte xen kẽ sRGB 8-bit không */
+    private static boolean isInterleavedByte(BufferedImage img) {
+        Raster raster = img.getRaster();
+        SampleModel sm = raster.getSampleModel();
+        ColorModel cm = img.getColorModel();
+        if (!(raster.getDataBuffer() instanceof DataBufferByte)) return false;
+        if (!(sm instanceof ComponentSampleModel)) return false;
+        if (!(cm instanceof ComponentColorModel) || !cm.getColorSpace().isCS_sRGB()) return false;
+
+        int bands = sm.getNumBands();
+        if (bands != 3 && bands != 4) return false;
+        if (bands == 4 && !cm.hasAlpha()) return false;
+        // Ảnh byte đã premultiply (hiếm) → để getRGB xử lý
+        return !img.isAlphaPremultiplied();
+    }
+
+    private static int premultiplyArgb(int argb) {
+        int a = argb >>> 24;
+        if (a == 0xFF) return argb;
+        if (a == 0) return 0;
+        int r = mul((argb >> 16) & 0xFF, a);
+        int g = mul((argb >> 8) & 0xFF, a);
+        int b = mul(argb & 0xFF, a);
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+
+    /** c * a / 255, làm tròn */
+    private static int mul(int c, int a) {
+        int t = c * a + 128;
+        return (t + (t >> 8)) >> 8;
+    }
+}
@@ -0,0 +1,33 @@
+package com.livewallpaper.api.cache;
+
+/**
+ * Định dạng dữ liệu của một FrameBuffer.
+ *
+ * - RGBA: 4 byte/pixel.
+ * - BC1 (DXT1): mỗi khối 4×4 pixel nén thành 8 byte (0,5 byte/pixel), không có alpha.
+ * - BC3 (DXT5): mỗi khối 4×4 pixel nén thành 16 byte (1 byte/pixel), có alpha.
+ *
+ * Khối nén được GPU đọc trực tiếp (S3TC), nên frame nén giữ nguyên dạng từ archive tới texture.
+ */
+public enum PixelFormat {
+    RGBA(0),
+    BC1(8),
+    BC3(16);
+
+    /** Số byte mỗi khối 4×4 (0 = không nén) */
+    private final int blockBytes;
+
+    PixelFormat(int blockBytes) {
+        this.blockBytes = blockBytes;
+    }
+
+    public boolean isCompressed() {
+        return blockBytes != 0;
+    }
+
+    /** Số byte dữ liệu của một ảnh width × height (khối ở mép được tính đủ 4×4) */
+    public int byteSize(int width, int height) {
+        if (blockBytes == 0) return width * height * 4;
+        return ((width + 3) / 4) * ((height + 3) / 4) * blockBytes;
+    }
+}
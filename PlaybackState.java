@@ -0,0 +1,164 @@
+package com.livewallpaper.api;
+
+/**
+ * Trạng thái phát của một wallpaper dưới dạng snapshot bất biến (immutable).
+ *
+ * - Vị trí (frame) tính trực tiếp từ thời gian media đã trôi (System.nanoTime), không cộng dồn từng frame,
+ *   nên không bị trôi (drift) và tự bỏ qua frame khi render chậm hơn FPS.
+ * - Chỉ "neo" lại (rebase) khi có lệnh điều khiển: pause/đổi FPS/seek; phần lẻ của frame
+ *   đang phát được giữ lại nên pause/resume và đổi FPS không làm lệch vị trí.
+ * - Mỗi lệnh điều khiển trả về một snapshot mới; WallpaperInstance công bố snapshot bằng
+ *   compare-and-set, nên fps/frameNanos/playing/vị trí luôn được đọc cùng nhau, không bao giờ bị xé (torn).
+ * - epoch tăng mỗi khi vị trí nhảy không liên tục (seek, stop, đổi FPS/cách lặp, dừng ở frame cuối),
+ *   để render thread biết cần huỷ decode cũ và tính lại cửa sổ prefetch.
+ */
+public final class PlaybackState {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final boolean playing;
+    private final LoopMode loopMode;
+    private final int fps;
+    private final long frameNanos;
+    private final long epoch;
+
+    /** Frame ứng với mốc neo */
+    private final long baseFrame;
+
+    /** Đang chạy: thời điểm (nanoTime) frame baseFrame bắt đầu */
+    private final long anchorNanos;
+
+    /** Đang dừng: phần thời gian đã trôi bên trong frame baseFrame */
+    private final long offsetNanos;
+
+    PlaybackState(int fps, LoopMode loopMode) {
+        this(false, loopMode, fps, 0, 0, 0, 0);
+    }
+
+    private PlaybackState(boolean playing, LoopMode loopMode, int fps, long epoch,
+                          long baseFrame, long anchorNanos, long offsetNanos) {
+        this.playing = playing;
+        this.loopMode = loopMode;
+        this.fps = fps;
+        this.frameNanos = NANOS_PER_SECOND / fps;
+        this.epoch = epoch;
+        this.baseFrame = baseFrame;
+        this.anchorNanos = anchorNanos;
+        this.offsetNanos = offsetNanos;
+    }
+
+    /** Vị trí tại thời điểm now, tính bằng frame (chưa quấn vòng theo tổng số frame) */
+    public long frameAt(long now) {
+        if (!playing) return baseFrame;
+        return baseFrame + elapsed(now) * fps / NANOS_PER_SECOND;
+    }
+
+    /** Phần đã trôi bên trong frame đang phát (0..1), dùng để trộn sang frame kế tiếp */
+    public double phaseAt(long now) {
+        return Math.min(1.0, offsetAt(now) * fps / (double) NANOS_PER_SECOND);
+    }
+
+    public boolean isPlaying() {
+        return playing;
+    }
+
+    /** Có phát tiếp sau frame cuối không (LOOP hoặc PING_PONG) */
+    public boolean isLoop() {
+        return loopMode.repeats();
+    }
+
+    public LoopMode getLoopMode() {
+        return loopMode;
+    }
+
+    public int getFps() {
+        return fps;
+    }
+
+    /** Số nano giây của một frame (luôn khớp với fps của cùng snapshot) */
+    public long getFrameNanos() {
+        return frameNanos;
+    }
+
+    /** Số lần vị trí nhảy không liên tục */
+    public long getEpoch() {
+        return epoch;
+    }
+
+    PlaybackState play(long now) {
+        if (playing) return this;
+        return new PlaybackState(true, loopMode, fps, epoch, baseFrame, now - offsetNanos, 0);
+    }
+
+    PlaybackState pause(long now) {
+        if (!playing) return this;
+        return new PlaybackState(false, loopMode, fps, epoch, frameAt(now), 0, offsetAt(now));
+    }
+
+    /**
+     * Đổi cách lặp. Vị trí chưa quấn vòng mang nghĩa khác ở mỗi cách lặp, nên neo lại tại
+     * frame đang hiện (đi xuôi) để hình không nhảy; phần đã trôi bên trong frame được giữ.
+     *
+     * @param shownFrame frame đang hiện (0..N-1)
+     */
+    PlaybackState withLoopMode(LoopMode mode, int shownFrame, long now) {
+        if (mode == loopMode) return this;
+        return at(shownFrame, offsetAt(now), fps, mode, now);
+    }
+
+    /** Đổi FPS, giữ nguyên frame đang phát và tỉ lệ đã trôi bên trong frame đó */
+    PlaybackState withFps(int newFps, long now) {
+        long offset = offsetAt(now) * fps / newFps;
+        return at(frameAt(now), offset, newFps, loopMode, now);
+    }
+
+    /** Tua tới đầu một frame */
+    PlaybackState seekFrame(long frame, long now) {
+        return at(frame, 0, fps, loopMode, now);
+    }
+
+    /** Tua tới một thời điểm media (nano giây tính từ frame 0) */
+    PlaybackState seekNanos(long mediaNanos, long now) {
+        long frames = mediaNanos * fps / NANOS_PER_SECOND;
+        return at(frames, mediaNanos - frameStart(frames, fps), fps, loopMode, now);
+    }
+
+    /** Dừng lại ở đầu một frame (stop, hết wallpaper không lặp) */
+    PlaybackState stopAt(long frame) {
+        return new PlaybackState(false, loopMode, fps, epoch + 1, frame, 0, 0);
+    }
+
+    /** Snapshot mới neo tại frame, phần đã trôi bên trong frame là offset; luôn tăng epoch */
+    private PlaybackState at(long frame, long offset, int newFps, LoopMode mode, long now) {
+        if (playing) {
+            return new PlaybackState(true, mode, newFps, epoch + 1, frame, now - offset, 0);
+        }
+        return new PlaybackState(false, mode, newFps, epoch + 1, frame, 0, offset);
+    }
+
+    /** Phần thời gian đã trôi bên trong frame đang phát */
+    private long offsetAt(long now) {
+        if (!playing) return offsetNanos;
+        long frames = elapsed(now) * fps / NANOS_PER_SECOND;
+        return elapsed(now) - frameStart(frames, fps);
+    }
+
+    /**
+     * Thời gian đã trôi kể từ mốc neo. now có thể sớm hơn mốc một chút khi render thread
+     * lấy now trước khi một lệnh điều khiển ở thread khác được công bố → coi như chưa trôi.
+     */
+    private long elapsed(long now) {
+        return Math.max(0, now - anchorNanos);
+    }
+
+    /** Thời điểm (tính từ mốc) mà frame thứ n bắt đầu: ceil(n * 1e9 / fps) */
+    private static long frameStart(long frames, int fps) {
+        return (frames * NANOS_PER_SECOND + fps - 1) / fps;
+    }
+
+    @Override
+    public String toString() {
+        return "PlaybackState{" + (playing ? "playing" : "paused") + ", frame=" + baseFrame + ", fps=" + fps
+                + ", " + loopMode + ", epoch=" + epoch + "}";
+    }
+}
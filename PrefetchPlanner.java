@@ -0,0 +1,99 @@
+package com.livewallpaper.api;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Lập kế hoạch prefetch: frame thứ k trong cửa sổ decode trước của một wallpaper (k = 0 là frame hiện tại).
+ *
+ * - Đang phát: đi theo hướng và tốc độ phát. Vị trí chưa quấn vòng được ánh xạ qua LoopMode, nên ở
+ *   PING_PONG cửa sổ tự quay đầu ở hai đầu wallpaper và lượt đi ngược dùng lại frame vừa decode lúc đi xuôi.
+ *   Bước nhảy bằng số frame trung bình tiến mỗi lần update, để không decode frame sẽ bị bỏ qua.
+ * - Wallpaper ONCE: cửa sổ dừng ở frame cuối.
+ * - Đang dừng sau seek/stop (tua, kéo thanh thời gian): cửa sổ trải hai phía quanh vị trí mới
+ *   (k lẻ phía trước, k chẵn phía sau) để lần tua kế bên trúng cache.
+ * - Đang dừng bình thường: chỉ frame hiện tại.
+ *
+ * Chỉ dùng ở render thread.
+ */
+final class PrefetchPlanner {
+
+    private final int totalFrames;
+
+    /** Vị trí đang hiện (chưa quấn vòng) */
+    private long position = 0;
+    private LoopMode mode;
+    private boolean playing = false;
+    private boolean scrubbing = false;
+    private int stride = 1;
+
+    /** Số frame trung bình tiến mỗi lần update */
+    private double advancePerUpdate = 1.0;
+
+    PrefetchPlanner(int totalFrames, LoopMode mode) {
+        this.totalFrames = totalFrames;
+        this.mode = mode;
+    }
+
+    /** Ghi nhận playhead vừa tiến advance frame trong một update */
+    void recordAdvance(long advance) {
+        if (advance > 0) {
+            advancePerUpdate = advancePerUpdate * 0.9 + advance * 0.1;
+        }
+    }
+
+    /** Vị trí nhảy không liên tục (seek/stop/đổi FPS): quên tốc độ cũ, đang dừng thì trải cửa sổ quanh vị trí mới */
+    void jump(boolean playing) {
+        advancePerUpdate = 1.0;
+        scrubbing = !playing;
+    }
+
+    /**
+     * Cập nhật sau mỗi lần update playhead.
+     *
+     * @param minStride bước nhỏ nhất (chỉ hiện 1 trên minStride frame)
+     */
+    void update(long position, LoopMode mode, boolean playing, int minStride) {
+        this.position = position;
+        this.mode = mode;
+        this.playing = playing;
+        if (playing) scrubbing = false;
+        stride = Math.max(minStride, (int) Math.round(advancePerUpdate));
+    }
+
+    /** Frame đang hiện */
+    int current() {
+        int frame = mode.frameAt(position, totalFrames);
+        return frame >= 0 ? frame : totalFrames - 1;
+    }
+
+    /** Frame nguồn kế tiếp theo hướng phát (để trộn), -1 nếu đã ở frame cuối của wallpaper ONCE */
+    int next() {
+        return mode.frameAt(position + 1, totalFrames);
+    }
+
+    /**
+     * Frame thứ k trong cửa sổ.
+     *
+     * @return index frame, -1 nếu không cần (ngoài wallpaper ONCE, hoặc đang dừng)
+     */
+    int frameAt(int k) {
+        if (k == 0) return current();
+        if (playing) return mode.frameAt(position + (long) k * stride, totalFrames);
+        if (!scrubbing) return -1;
+        long offset = (k & 1) == 1 ? (k + 1) / 2 : -(k / 2);
+        return mode.frameAt(position + offset, totalFrames);
+    }
+
+    /**
+     * Frame gốc này có nằm trong cửa sổ depth frame không.
+     *
+     * @param canonical ánh xạ frame → frame gốc
+     */
+    boolean isNeeded(int canonicalFrame, int depth, IntUnaryOperator canonical) {
+        for (int k = 0; k <= depth; k++) {
+            int frame = frameAt(k);
+            if (frame >= 0 && canonical.applyAsInt(frame) == canonicalFrame) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,120 @@
+package com.livewallpaper.api;
+
+/**
+ * Tự động giảm/tăng chất lượng wallpaper theo ngân sách thời gian (opt-in).
+ *
+ * - Đo tổng thời gian decode + convert (thread decode) và upload (render thread) của mỗi wallpaper,
+ *   quy ra số ms công việc cho mỗi frame hiển thị, rồi so với ngân sách (budgetMs).
+ *   Hạ FPS hiệu dụng cũng tắt việc trộn frame trung gian (display FPS).
+ * - Vượt ngân sách DOWNGRADE_AFTER lần liên tiếp → hạ một mức (giảm tier, FPS hiệu dụng, độ sâu prefetch).
+ * - Dưới UPGRADE_HEADROOM × ngân sách UPGRADE_AFTER lần liên tiếp → nâng một mức.
+ *   Khoảng giữa hai ngưỡng và số lần liên tiếp khác nhau tạo độ trễ (hysteresis) để không dao động.
+ *
+ * FPS/tier/prefetch cấu hình trở thành mục tiêu; giá trị đang dùng đọc qua LiveWallpaperAPI.getEffective*.
+ */
+public class QualityGovernor {
+
+    /** Ngân sách mặc định: 4 ms công việc cho mỗi frame */
+    public static final double DEFAULT_BUDGET_MS = 4.0;
+
+    /** Các mức chất lượng: {chia FPS, cộng thêm tier, chia độ sâu prefetch}; mức 0 = đầy đủ */
+    private static final int[][] LEVELS = {
+            {1, 0, 1},
+            {1, 1, 1},
+            {2, 1, 1},
+            {2, 2, 2},
+            {4, 2, 2},
+            {4, 3, 4},
+    };
+
+    private static final long EVALUATE_INTERVAL_NANOS = 500_000_000L;
+    private static final int DOWNGRADE_AFTER = 2;
+    private static final int UPGRADE_AFTER = 8;
+    private static final double UPGRADE_HEADROOM = 0.6;
+
+    private volatile boolean enabled = false;
+    private volatile double budgetMs = DEFAULT_BUDGET_MS;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public double getBudgetMs() {
+        return budgetMs;
+    }
+
+    public void setBudgetMs(double budgetMs) {
+        if (budgetMs > 0) this.budgetMs = budgetMs;
+    }
+
+    /**
+     * Đánh giá một wallpaper (gọi mỗi tick từ WallpaperScheduler, tự giãn theo EVALUATE_INTERVAL_NANOS).
+     */
+    void evaluate(WallpaperInstance inst, long now) {
+        State st = inst.quality;
+        if (!enabled) {
+            if (st.level != 0) apply(inst, st, 0);
+            st.lastEvaluate = 0;
+            return;
+        }
+
+        long work = inst.getWorkNanos();
+        if (st.lastEvaluate == 0) {
+            st.lastEvaluate = now;
+            st.lastWork = work;
+            return;
+        }
+        long elapsed = now - st.lastEvaluate;
+        if (elapsed < EVALUATE_INTERVAL_NANOS) return;
+
+        // Tỉ lệ thời gian làm việc × độ dài một frame hiển thị = ms công việc mỗi frame
+        st.costMs = (work - st.lastWork) / (double) elapsed * (inst.getFrameNanos() / 1e6);
+        st.lastEvaluate = now;
+        st.lastWork = work;
+
+        if (!inst.isAnimating()) {
+            st.over = 0;
+            st.under = 0;
+            return;
+        }
+
+        if (st.costMs > budgetMs) {
+            st.under = 0;
+            if (++st.over >= DOWNGRADE_AFTER && st.level < LEVELS.length - 1) {
+                apply(inst, st, st.level + 1);
+            }
+        } else if (st.costMs < budgetMs * UPGRADE_HEADROOM) {
+            st.over = 0;
+            if (++st.under >= UPGRADE_AFTER && st.level > 0) {
+                apply(inst, st, st.level - 1);
+            }
+        } else {
+            st.over = 0;
+            st.under = 0;
+        }
+    }
+
+    private void apply(WallpaperInstance inst, State st, int level) {
+        int[] q = LEVELS[level];
+        System.out.println("[LiveWallpaperAPI] '" + inst.getDescriptor().id + "': mức chất lượng " + st.level + " → " + level
+                + String.format(" (%.2f ms/frame, ngân sách %.2f ms)", st.costMs, budgetMs));
+        st.level = level;
+        st.over = 0;
+        st.under = 0;
+        inst.applyQuality(q[0], q[1], q[2]);
+    }
+
+    /** Trạng thái đo đạc của một wallpaper */
+    static final class State {
+        int level = 0;
+        long lastEvaluate = 0;
+        long lastWork = 0;
+        double costMs = 0;
+        int over = 0;
+        int under = 0;
+    }
+}
@@ -0,0 +1,189 @@
+package com.livewallpaper.api.render;
+
+import com.livewallpaper.api.cache.PixelFormat;
+import com.livewallpaper.api.util.FrameBlender;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * RenderBackend headless: không gọi GL, chỉ ghi lại số lần tạo/upload/vẽ/xoá texture.
+ *
+ * Dùng để kiểm tra số lần upload và số byte upload mà không cần GPU.
+ * Nhận mọi định dạng nén (giống GPU có S3TC), trừ khi tạo với compressedTextures = false.
+ * Khi bật setRetainPixels, giữ bản sao pixel RGBA của từng texture và của lần vẽ gần nhất
+ * (drawBlended được trộn trên CPU) để kiểm tra hình ra màn hình.
+ */
+public class RecordingRenderBackend implements RenderBackend {
+
+    private final AtomicInteger nextTextureId = new AtomicInteger(1);
+
+    private final AtomicLong texturesCreated = new AtomicLong();
+    private final AtomicLong texturesDeleted = new AtomicLong();
+    private final AtomicLong uploads = new AtomicLong();
+    private final AtomicLong uploadedBytes = new AtomicLong();
+    private final AtomicLong draws = new AtomicLong();
+    private final AtomicLong compressedUploads = new AtomicLong();
+    private final AtomicLong blendedDraws = new AtomicLong();
+
+    private final boolean compressedTextures;
+    private final boolean blendedDraw;
+
+    /** Pixel RGBA theo texture id (chỉ khi retainPixels) */
+    private final Map<Integer, ByteBuffer> pixels = new ConcurrentHashMap<>();
+    private volatile boolean retainPixels;
+    private volatile ByteBuffer lastDrawn;
+
+    public RecordingRenderBackend() {
+        this(true);
+    }
+
+    /**
+     * @param compressedTextures giả lập GPU có (true) hoặc không có (false) S3TC
+     */
+    public RecordingRenderBackend(boolean compressedTextures) {
+        this(compressedTextures, false);
+    }
+
+    /**
+     * @param compressedTextures giả lập GPU có (true) hoặc không có (false) S3TC
+     * @param blendedDraw giả lập backend tự trộn hai texture lúc vẽ (drawBlended)
+     */
+    public RecordingRenderBackend(boolean compressedTextures, boolean blendedDraw) {
+        this.compressedTextures = compressedTextures;
+        this.blendedDraw = blendedDraw;
+    }
+
+    @Override
+    public int createTexture(int width, int height) {
+        texturesCreated.incrementAndGet();
+        return nextTextureId.getAndIncrement();
+    }
+
+    @Override
+    public void updateTexture(int textureId, int x, int y, int width, int height, ByteBuffer rgba) {
+        uploads.incrementAndGet();
+        uploadedBytes.addAndGet(rgba.remaining());
+        if (retainPixels) {
+            ByteBuffer copy = ByteBuffer.allocate(rgba.remaining());
+            copy.put(rgba.duplicate()).flip();
+            pixels.put(textureId, copy);
+        }
+    }
+
+    @Override
+    public boolean supportsFormat(PixelFormat format) {
+        return format == PixelFormat.RGBA || compressedTextures;
+    }
+
+    @Override
+    public int createTexture(int width, int height, PixelFormat format) {
+        return createTexture(width, height);
+    }
+
+    @Override
+    public void updateCompressedTexture(int textureId, int width, int height, PixelFormat format, ByteBuffer blocks) {
+        uploads.incrementAndGet();
+        compressedUploads.incrementAndGet();
+        uploadedBytes.addAndGet(blocks.remaining());
+    }
+
+    @Override
+    public void drawTexture(int textureId, int x, int y, int width, int height, float opacity) {
+        draws.incrementAndGet();
+        if (retainPixels) {
+            lastDrawn = pixels.get(textureId);
+        }
+    }
+
+    @Override
+    public boolean supportsBlendedDraw() {
+        return blendedDraw;
+    }
+
+    @Override
+    public void drawBlended(int fromTextureId, int toTextureId, float weight, int x, int y, int width, int height,
+                            float opacity) {
+        if (!blendedDraw) {
+            RenderBackend.super.drawBlended(fromTextureId, toTextureId, weight, x, y, width, height, opacity);
+        }
+        draws.incrementAndGet();
+        blendedDraws.incrementAndGet();
+        if (retainPixels) {
+            ByteBuffer from = pixels.get(fromTextureId);
+            ByteBuffer to = pixels.get(toTextureId);
+            if (from == null || to == null) {
+                lastDrawn = null;
+                return;
+            }
+            ByteBuffer mixed = ByteBuffer.allocate(from.remaining());
+            FrameBlender.crossFade(from, to, Math.round(weight * FrameBlender.MAX_WEIGHT), mixed);
+            lastDrawn = mixed;
+        }
+    }
+
+    @Override
+    public void deleteTexture(int textureId) {
+        texturesDeleted.incrementAndGet();
+        pixels.remove(textureId);
+    }
+
+    /** Bật/tắt việc giữ pixel RGBA của texture và của lần vẽ gần nhất (tốn bộ nhớ heap) */
+    public void setRetainPixels(boolean retain) {
+        retainPixels = retain;
+        if (!retain) {
+            pixels.clear();
+            lastDrawn = null;
+        }
+    }
+
+    /** Pixel RGBA của lần vẽ gần nhất (chỉ đọc), null nếu chưa vẽ hoặc không giữ pixel */
+    public ByteBuffer getLastDrawnPixels() {
+        ByteBuffer drawn = lastDrawn;
+        return drawn == null ? null : drawn.asReadOnlyBuffer();
+    }
+
+    public long getTexturesCreated() {
+        return texturesCreated.get();
+    }
+
+    public long getTexturesDeleted() {
+        return texturesDeleted.get();
+    }
+
+    public long getUploads() {
+        return uploads.get();
+    }
+
+    public long getUploadedBytes() {
+        return uploadedBytes.get();
+    }
+
+    public long getDraws() {
+        return draws.get();
+    }
+
+    /** Số lần upload khối nén (đã tính trong getUploads) */
+    public long getCompressedUploads() {
+        return compressedUploads.get();
+    }
+
+    /** Số lần vẽ trộn hai texture (đã tính trong getDraws) */
+    public long getBlendedDraws() {
+        return blendedDraws.get();
+    }
+
+    /** Đặt lại tất cả bộ đếm về 0 */
+    public void reset() {
+        texturesCreated.set(0);
+        texturesDeleted.set(0);
+        uploads.set(0);
+        uploadedBytes.set(0);
+        draws.set(0);
+        compressedUploads.set(0);
+        blendedDraws.set(0);
+    }
+}
@@ -0,0 +1,121 @@
+package com.livewallpaper.api.render;
+
+import com.livewallpaper.api.cache.FrameDelta;
+import com.livewallpaper.api.cache.PixelFormat;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Lớp trừu tượng cho phần vẽ/upload texture của wallpaper.
+ *
+ * - WallpaperManager chỉ làm việc qua interface này, không gọi GL trực tiếp.
+ * - GlRenderBackend: triển khai thật bằng OpenGL (LWJGL).
+ * - RecordingRenderBackend: triển khai headless, chỉ đếm số lần upload/số byte để kiểm tra không cần GPU.
+ *
+ * Lưu ý: trừ deleteTexture, mọi hàm chỉ được gọi ở render thread.
+ */
+public interface RenderBackend {
+
+    /**
+     * Cấp phát một texture RGBA rỗng với kích thước cố định.
+     *
+     * @param width chiều rộng (pixel)
+     * @param height chiều cao (pixel)
+     * @return id texture (> 0)
+     */
+    int createTexture(int width, int height);
+
+    /**
+     * Cập nhật một vùng của texture (sub-image upload), không cấp phát lại texture.
+     *
+     * @param textureId id texture đã tạo bằng createTexture
+     * @param x toạ độ trái của vùng (pixel)
+     * @param y toạ độ trên của vùng (pixel)
+     * @param width chiều rộng vùng
+     * @param height chiều cao vùng
+     * @param rgba dữ liệu RGBA liền nhau (width * height * 4 byte), từ position tới limit
+     */
+    void updateTexture(int textureId, int x, int y, int width, int height, ByteBuffer rgba);
+
+    /**
+     * Cập nhật mọi tile đổi của một frame trong một lần. Mặc định upload từng tile bằng updateTexture;
+     * triển khai GL gom tất cả vào một PBO thay vì map một PBO cho mỗi tile.
+     *
+     * @param textureId id texture đang giữ frame gốc của delta
+     * @param delta các tile RGBA đổi
+     */
+    default void updateTextureTiles(int textureId, FrameDelta delta) {
+        for (int i = 0; i < delta.getTileCount(); i++) {
+            updateTexture(textureId, delta.getX(i), delta.getY(i), delta.getWidth(i), delta.getHeight(i),
+                    delta.getData(i));
+        }
+    }
+
+    /**
+     * GPU có nhận thẳng định dạng này không. Mặc định chỉ RGBA;
+     * frame nén mà backend không hỗ trợ sẽ được giải nén về RGBA trước khi upload.
+     */
+    default boolean supportsFormat(PixelFormat format) {
+        return format == PixelFormat.RGBA;
+    }
+
+    /**
+     * Cấp phát texture rỗng theo định dạng (chỉ gọi với định dạng supportsFormat trả về true).
+     *
+     * @return id texture (> 0)
+     */
+    default int createTexture(int width, int height, PixelFormat format) {
+        if (format != PixelFormat.RGBA) {
+            throw new UnsupportedOperationException("Backend không hỗ trợ texture " + format);
+        }
+        return createTexture(width, height);
+    }
+
+    /**
+     * Thay toàn bộ nội dung của texture nén (tạo bằng createTexture với cùng định dạng).
+     *
+     * @param blocks khối nén liền nhau (format.byteSize(width, height) byte), từ position tới limit
+     */
+    default void updateCompressedTexture(int textureId, int width, int height, PixelFormat format, ByteBuffer blocks) {
+        throw new UnsupportedOperationException("Backend không hỗ trợ texture " + format);
+    }
+
+    /**
+     * Vẽ texture ra màn hình.
+     *
+     * @param textureId id texture
+     * @param x toạ độ trái (pixel)
+     * @param y toạ độ trên (pixel)
+     * @param width chiều rộng (pixel)
+     * @param height chiều cao (pixel)
+     * @param opacity 0..1
+     */
+    void drawTexture(int textureId, int x, int y, int width, int height, float opacity);
+
+    /**
+     * Backend tự trộn hai texture lúc vẽ được không (drawBlended). Mặc định không;
+     * khi đó frame trung gian được trộn trên CPU rồi upload như một frame thường.
+     */
+    default boolean supportsBlendedDraw() {
+        return false;
+    }
+
+    /**
+     * Vẽ trộn hai texture cùng kích thước: from * (1 - weight) + to * weight (chỉ gọi khi supportsBlendedDraw).
+     *
+     * @param weight 0..1
+     * @param opacity 0..1
+     */
+    default void drawBlended(int fromTextureId, int toTextureId, float weight, int x, int y, int width, int height,
+                             float opacity) {
+        throw new UnsupportedOperationException("Backend không hỗ trợ vẽ trộn");
+    }
+
+    /**
+     * Giải phóng texture. Có thể gọi từ bất kỳ thread nào;
+     * triển khai GL sẽ hoãn việc xoá tới lần gọi kế tiếp ở render thread.
+     *
+     * @param textureId id texture
+     */
+    void deleteTexture(int textureId);
+}
@@ -0,0 +1,57 @@
+package com.livewallpaper.api.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Thu nhỏ ảnh RGBA nhanh bằng lọc hộp 2×2 (box filter).
+ */
+public final class Resampler {
+
+    private Resampler() {
+    }
+
+    /** Kích thước sau khi thu nhỏ một nửa (làm tròn lên) */
+    public static int halfSize(int size) {
+        return (size + 1) / 2;
+    }
+
+    /**
+     * Thu nhỏ một nửa mỗi chiều: mỗi pixel đích là trung bình 2×2 pixel nguồn
+     * (ở mép lẻ thì lặp lại pixel cuối).
+     *
+     * @param src RGBA nguồn (từ vị trí 0)
+     * @param width chiều rộng nguồn
+     * @param height chiều cao nguồn
+     * @param dst RGBA đích (từ vị trí 0), ít nhất halfSize(width) × halfSize(height) × 4 byte
+     */
+    public static void halve(ByteBuffer src, int width, int height, ByteBuffer dst) {
+        ByteBuffer in = src.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer out = dst.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int dw = halfSize(width);
+        int dh = halfSize(height);
+
+        for (int y = 0; y < dh; y++) {
+            int row0 = (y * 2) * width;
+            int row1 = Math.min(y * 2 + 1, height - 1) * width;
+            for (int x = 0; x < dw; x++) {
+                int x0 = x * 2;
+                int x1 = Math.min(x0 + 1, width - 1);
+                int p00 = in.getInt((row0 + x0) * 4);
+                int p01 = in.getInt((row0 + x1) * 4);
+                int p10 = in.getInt((row1 + x0) * 4);
+                int p11 = in.getInt((row1 + x1) * 4);
+                out.putInt((y * dw + x) * 4, average(p00, p01, p10, p11));
+            }
+        }
+    }
+
+    /** Trung bình từng kênh 8-bit của 4 pixel */
+    private static int average(int a, int b, int c, int d) {
+        // Cộng riêng hai cặp kênh xen kẽ để không tràn sang kênh bên cạnh
+        long lo = (a & 0x00FF00FFL) + (b & 0x00FF00FFL) + (c & 0x00FF00FFL) + (d & 0x00FF00FFL) + 0x00020002L;
+        long hi = ((a >>> 8) & 0x00FF00FFL) + ((b >>> 8) & 0x00FF00FFL)
+                + ((c >>> 8) & 0x00FF00FFL) + ((d >>> 8) & 0x00FF00FFL) + 0x00020002L;
+        return (int) (((lo >> 2) & 0x00FF00FFL) | (((hi >> 2) & 0x00FF00FFL) << 8));
+    }
+}
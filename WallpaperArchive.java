@@ -0,0 +1,395 @@
+package com.livewallpaper.api.archive;
+
+import com.livewallpaper.api.WallpaperDescriptor;
+import com.livewallpaper.api.cache.FrameBuffer;
+import com.livewallpaper.api.cache.FrameStore;
+import com.livewallpaper.api.cache.PixelFormat;
+import com.livewallpaper.api.source.FrameSource;
+import com.livewallpaper.api.util.BcCodec;
+import com.livewallpaper.api.util.PixelConverter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * File archive .lwp: toàn bộ frames của một wallpaper trong một file.
+ *
+ * Định dạng (big-endian):
+ * <pre>
+ *   magic "LWPA" | version u16 | codec u8 | flags u8 (bit 0 = loop)
+ *   id: độ dài u16 + UTF-8
+ *   fps i32 | frames i32 | width i32 | height i32
+ *   index: frames × (offset i64, length i32)
+ *   payload của từng frame
+ * </pre>
+ *
+ * Codec RAW: payload là RGBA thô, đọc zero-copy từ MappedByteBuffer.
+ * Codec DEFLATE: payload RGBA nén deflate, giải nén vào slab của FrameStore.
+ * Codec DELTA: keyframe định kỳ + các tile đổi so với frame trước (xem DeltaCodec);
+ * frame được dựng lại tuần tự trên một canvas, kèm FrameDelta để chỉ upload tile đổi.
+ * Codec BC1/BC3: payload là khối nén S3TC (xem BcCodec), đọc zero-copy như RAW và upload thẳng lên GPU,
+ * nhỏ hơn RGBA 8 lần (BC1) hoặc 4 lần (BC3) cả trong cache lẫn khi upload.
+ *
+ * File được map theo từng đoạn (tối đa 1 GB) vì một MappedByteBuffer không vượt quá 2 GB.
+ */
+public class WallpaperArchive implements FrameSource {
+
+    public static final String EXTENSION = ".lwp";
+
+    static final int MAGIC = 0x4C575041; // "LWPA"
+    static final int VERSION = 1;
+
+    public static final int CODEC_RAW = 0;
+    public static final int CODEC_DEFLATE = 1;
+    public static final int CODEC_DELTA = 2;
+    public static final int CODEC_BC1 = 3;
+    public static final int CODEC_BC3 = 4;
+
+    static final int FLAG_LOOP = 1;
+
+    /** Kích thước tối đa một đoạn map */
+    private static final long MAX_CHUNK = 1L << 30;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final long maxChunk;
+
+    private final String id;
+    private final int codec;
+    private final boolean loop;
+    private final int fps;
+    private final int frames;
+    private final int width;
+    private final int height;
+
+    private final long[] offsets;
+    private final int[] lengths;
+
+    /** Đoạn map chứa mỗi frame và vị trí của frame trong đoạn đó */
+    private final MappedByteBuffer[] frameChunk;
+    private final int[] frameChunkOffset;
+
+    private final ThreadLocal<Inflater> inflater = ThreadLocal.withInitial(Inflater::new);
+
+    /** Codec DELTA: keyframe gần nhất (≤ i) của mỗi frame */
+    private int[] keyframeOf;
+
+    /** Codec DELTA: canvas dựng lại frame và frame đang nằm trên canvas */
+    private final Object canvasLock = new Object();
+    private ByteBuffer canvas;
+    private int canvasFrame = -1;
+
+    private WallpaperArchive(Path path, FileChannel channel, long maxChunk) throws IOException {
+        this.path = path;
+        this.channel = channel;
+        this.maxChunk = maxChunk;
+
+        ByteBuffer head = read(0, 8);
+        if (head.getInt() != MAGIC) {
+            throw new IOException("Không phải file archive wallpaper");
+        }
+        int version = head.getShort() & 0xFFFF;
+        if (version != VERSION) {
+            throw new IOException("Phiên bản archive không hỗ trợ: " + version);
+        }
+        this.codec = head.get() & 0xFF;
+        this.loop = (head.get() & FLAG_LOOP) != 0;
+        if (codec < CODEC_RAW || codec > CODEC_BC3) {
+            throw new IOException("Codec không hỗ trợ: " + codec);
+        }
+
+        int idLength = read(8, 2).getShort() & 0xFFFF;
+        byte[] idBytes = new byte[idLength];
+        read(10, idLength).get(idBytes);
+        this.id = new String(idBytes, StandardCharsets.UTF_8);
+
+        long pos = 10 + idLength;
+        ByteBuffer info = read(pos, 16);
+        this.fps = info.getInt();
+        this.frames = info.getInt();
+        this.width = info.getInt();
+        this.height = info.getInt();
+        pos += 16;
+        if (fps <= 0 || frames <= 0 || width <= 0 || height <= 0) {
+            throw new IOException("Header archive không hợp lệ");
+        }
+
+        ByteBuffer index = read(pos, frames * 12);
+        this.offsets = new long[frames];
+        this.lengths = new int[frames];
+        long fileSize = channel.size();
+        for (int i = 0; i < frames; i++) {
+            offsets[i] = index.getLong();
+            lengths[i] = index.getInt();
+            if (offsets[i] < 0 || lengths[i] < 0 || offsets[i] + lengths[i] > fileSize) {
+                throw new IOException("Index frame " + i + " nằm ngoài file");
+            }
+            if ((codec == CODEC_RAW || isBlockCompressed()) && lengths[i] != getPixelFormat().byteSize(width, height)) {
+                throw new IOException("Frame " + i + " có kích thước sai");
+            }
+        }
+
+        this.frameChunk = new MappedByteBuffer[frames];
+        this.frameChunkOffset = new int[frames];
+        mapChunks();
+
+        if (codec == CODEC_DELTA) {
+            this.keyframeOf = new int[frames];
+            int key = -1;
+            for (int i = 0; i < frames; i++) {
+                if (lengths[i] == 0) {
+                    throw new IOException("Frame " + i + " rỗng");
+                }
+                if (DeltaCodec.isKeyframe(payload(i))) key = i;
+                if (key < 0) {
+                    throw new IOException("Frame đầu tiên phải là keyframe");
+                }
+                keyframeOf[i] = key;
+            }
+        }
+    }
+
+    /**
+     * Mở archive để đọc.
+     *
+     * @param path đường dẫn file .lwp
+     */
+    public static WallpaperArchive open(Path path) throws IOException {
+        return open(path, MAX_CHUNK);
+    }
+
+    /**
+     * Mở archive với kích thước đoạn map tuỳ chọn (test dùng đoạn nhỏ để có nhiều đoạn).
+     *
+     * @param maxChunk kích thước tối đa một đoạn map; frame lớn hơn vẫn được map trọn trong một đoạn
+     */
+    static WallpaperArchive open(Path path, long maxChunk) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new WallpaperArchive(path, channel, maxChunk);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /** File có đuôi .lwp không */
+    public static boolean isArchive(Path path) {
+        Path name = path.getFileName();
+        return name != null && name.toString().toLowerCase().endsWith(EXTENSION);
+    }
+
+    /**
+     * Tạo WallpaperDescriptor từ header của archive.
+     *
+     * @param path đường dẫn file .lwp
+     * @param id id wallpaper (null → dùng id lưu trong archive)
+     */
+    public static WallpaperDescriptor describe(Path path, String id) throws IOException {
+        WallpaperArchive archive = open(path);
+        try {
+            return new WallpaperDescriptor(id != null ? id : archive.id, path,
+                    archive.fps, archive.frames, archive.width, archive.height, archive.loop);
+        } finally {
+            archive.close();
+        }
+    }
+
+    /** Chia file thành các đoạn ≤ maxChunk, ranh giới luôn nằm giữa hai frame */
+    private void mapChunks() throws IOException {
+        int first = 0;
+        while (first < frames) {
+            long start = offsets[first];
+            long end = start + lengths[first];
+            int last = first;
+            while (last + 1 < frames) {
+                long nextEnd = Math.max(end, offsets[last + 1] + lengths[last + 1]);
+                long nextStart = Math.min(start, offsets[last + 1]);
+                if (nextEnd - nextStart > maxChunk) break;
+                start = nextStart;
+                end = nextEnd;
+                last++;
+            }
+            MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            for (int i = first; i <= last; i++) {
+                frameChunk[i] = chunk;
+                frameChunkOffset[i] = (int) (offsets[i] - start);
+            }
+            first = last + 1;
+        }
+    }
+
+    /** Số đoạn map của file */
+    int chunkCount() {
+        int count = 0;
+        for (int i = 0; i < frames; i++) {
+            if (i == 0 || frameChunk[i] != frameChunk[i - 1]) count++;
+        }
+        return count;
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(length);
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, position + buf.position()) < 0) {
+                throw new IOException("File archive bị cắt cụt");
+            }
+        }
+        return buf.flip();
+    }
+
+    /** Payload của một frame (view trên vùng map, không copy) */
+    private ByteBuffer payload(int index) {
+        int offset = frameChunkOffset[index];
+        return frameChunk[index].slice(offset, lengths[index]);
+    }
+
+    @Override
+    public FrameBuffer readFrame(int index, int tier, FrameStore store, PixelConverter converter) throws IOException {
+        if (index < 0 || index >= frames) return null;
+        if (isBlockCompressed()) {
+            if (tier == 0) {
+                return FrameBuffer.wrap(payload(index), width, height, getPixelFormat());
+            }
+            // Khối nén không thu nhỏ trực tiếp được → giải nén về RGBA rồi thu nhỏ
+            FrameBuffer full = store.allocate(width, height);
+            BcCodec.decode(payload(index), width, height, getPixelFormat(), full.pixels());
+            return FrameSource.downscale(full, tier, store);
+        }
+        if (tier > 0) {
+            // Archive chỉ lưu độ phân giải gốc → đọc đủ rồi thu nhỏ
+            FrameBuffer full = readFrame(index, 0, store, converter);
+            return (full != null) ? FrameSource.downscale(full, tier, store) : null;
+        }
+
+        if (codec == CODEC_RAW) {
+            return FrameBuffer.wrap(payload(index), width, height);
+        }
+        if (codec == CODEC_DELTA) {
+            return readDeltaFrame(index, store);
+        }
+
+        FrameBuffer buffer = store.allocate(width, height);
+        Inflater inf = inflater.get();
+        inf.reset();
+        inf.setInput(payload(index));
+        try {
+            ByteBuffer out = buffer.pixels();
+            while (out.hasRemaining() && !inf.finished()) {
+                if (inf.inflate(out) == 0 && (inf.needsInput() || inf.needsDictionary())) break;
+            }
+            if (out.hasRemaining()) {
+                throw new IOException("Frame " + index + " bị thiếu dữ liệu");
+            }
+        } catch (DataFormatException | IOException e) {
+            buffer.release();
+            throw new IOException("Không thể giải nén frame " + index + " của " + path + " (" + e.getMessage() + ")", e);
+        }
+        return buffer;
+    }
+
+    /**
+     * Dựng lại frame trên canvas: tiếp tục từ frame đang có nếu cùng đoạn keyframe,
+     * ngược lại bắt đầu từ keyframe gần nhất.
+     */
+    private FrameBuffer readDeltaFrame(int index, FrameStore store) {
+        FrameBuffer buffer = store.allocate(width, height);
+        synchronized (canvasLock) {
+            if (canvas == null) {
+                canvas = ByteBuffer.allocateDirect(width * height * 4);
+            }
+            int key = keyframeOf[index];
+            if (canvasFrame < key || canvasFrame > index) {
+                DeltaCodec.apply(payload(key), canvas, width, height);
+                canvasFrame = key;
+            }
+            while (canvasFrame < index) {
+                canvasFrame++;
+                DeltaCodec.apply(payload(canvasFrame), canvas, width, height);
+            }
+            buffer.pixels().put(canvas.duplicate().clear());
+        }
+        if (index > 0) {
+            buffer.setDelta(DeltaCodec.delta(payload(index), width, height, index - 1));
+        }
+        return buffer;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public int getCodec() {
+        return codec;
+    }
+
+    /** Payload là khối nén BC1/BC3 */
+    public boolean isBlockCompressed() {
+        return codec == CODEC_BC1 || codec == CODEC_BC3;
+    }
+
+    /** Định dạng của frame ở tier 0 */
+    public PixelFormat getPixelFormat() {
+        switch (codec) {
+            case CODEC_BC1: return PixelFormat.BC1;
+            case CODEC_BC3: return PixelFormat.BC3;
+            default: return PixelFormat.RGBA;
+        }
+    }
+
+    public boolean isLoop() {
+        return loop;
+    }
+
+    public int getFps() {
+        return fps;
+    }
+
+    @Override
+    public int getFrameCount() {
+        return frames;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Không thể đóng archive: " + path + " (" + e.getMessage() + ")");
+        }
+    }
+
+    /** Ghi header (phần trước index), dùng chung với WallpaperPacker */
+    static ByteBuffer header(String id, int codec, boolean loop, int fps, int frames, int width, int height) {
+        byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer head = ByteBuffer.allocate(10 + idBytes.length + 16);
+        head.putInt(MAGIC);
+        head.putShort((short) VERSION);
+        head.put((byte) codec);
+        head.put((byte) (loop ? FLAG_LOOP : 0));
+        head.putShort((short) idBytes.length);
+        head.put(idBytes);
+        head.putInt(fps);
+        head.putInt(frames);
+        head.putInt(width);
+        head.putInt(height);
+        return head.flip();
+    }
+}
@@ -1,44 +1,476 @@
 package com.livewallpaper.api.cache;
 
-import java.awt.image.BufferedImage;
-import java.nio.file.Path;
-import java.util.LinkedHashMap;
+import com.livewallpaper.api.source.FrameSource;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntPredicate;
 
 /**
- * Cache LRU cho frames của wallpaper.
- * 
- * Giữ một số lượng frame giới hạn trong bộ nhớ.
- * Khi đầy → xoá frame cũ nhất (ít dùng nhất).
+ * Cache frame đã decode (FrameBuffer RGBA off-heap), giới hạn theo số byte.
+ *
+ * - Dung lượng tính theo width × height × 4, trong một ngân sách chung (budget).
+ * - Mỗi wallpaper có một partition riêng với phần dung lượng được giữ trước (reserved);
+ *   khi vượt budget, partition vượt phần giữ trước nhiều nhất bị xoá trước.
+ * - Khoá trong partition là (frame, tier): cùng một frame có thể nằm ở nhiều bậc độ phân giải.
+ * - Trong partition dùng thuật toán CLOCK (second-chance): get chỉ bật một cờ, không relink.
+ *   Frame mới vào đã có sẵn một cơ hội, để frame prefetch chưa kịp hiện không bị xoá trước frame đã hiện.
+ * - Thread-safe: get không khoá, put/evict khoá theo partition.
+ * - Cache giữ một tham chiếu tới mỗi FrameBuffer; frame bị xoá khỏi cache được release().
+ *
+ * Tầng thứ hai giữ byte đã mã hoá (file PNG/JPEG nguyên vẹn) của từng frame, với budget riêng.
+ * Byte mã hoá thường nhỏ hơn frame RGBA 10–30 lần nên có thể giữ cả vòng lặp: sau vòng đầu
+ * mọi lần decode chạy từ bộ nhớ, không đọc đĩa. Tầng này không xoá theo CLOCK (vòng lặp đọc tuần tự
+ * sẽ xoá đúng frame sắp cần); khi đầy thì không nhận thêm, nên phần đầu vòng lặp luôn nằm trong bộ nhớ.
  */
 public class WallpaperCache {
 
-    private final int capacity;
-    private final Map<Path, BufferedImage> cache;
+    /** Budget mặc định: 256 MB */
+    public static final long DEFAULT_BUDGET_BYTES = 256L * 1024 * 1024;
 
-    public WallpaperCache(int capacity) {
-        this.capacity = capacity;
-        this.cache = new LinkedHashMap<Path, BufferedImage>(capacity, 0.75f, true) {
-            @Override
-            protected boolean removeEldestEntry(Map.Entry<Path, BufferedImage> eldest) {
-                return size() > WallpaperCache.this.capacity;
-            }
-        };
+    private static final int TIERS = FrameSource.MAX_TIER + 1;
+
+    private final Map<String, Partition> partitions = new ConcurrentHashMap<>();
+    private final Object evictionLock = new Object();
+
+    private volatile long budgetBytes;
+    private final AtomicLong usedBytes = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /** Tầng byte đã mã hoá */
+    private volatile long encodedBudgetBytes;
+    private final AtomicLong encodedUsedBytes = new AtomicLong();
+    private final LongAdder encodedHits = new LongAdder();
+    private final LongAdder encodedMisses = new LongAdder();
+
+    /**
+     * @param budgetBytes tổng số byte tối đa cho mọi frame đã decode
+     */
+    public WallpaperCache(long budgetBytes) {
+        this(budgetBytes, budgetBytes / 4);
+    }
+
+    /**
+     * @param budgetBytes tổng số byte tối đa cho mọi frame đã decode
+     * @param encodedBudgetBytes tổng số byte tối đa cho byte đã mã hoá (0 = tắt tầng này)
+     */
+    public WallpaperCache(long budgetBytes, long encodedBudgetBytes) {
+        this.budgetBytes = budgetBytes;
+        this.encodedBudgetBytes = Math.max(0, encodedBudgetBytes);
+    }
+
+    /**
+     * Tạo (hoặc cập nhật) partition của một wallpaper với phần dung lượng giữ trước.
+     *
+     * @param owner id wallpaper
+     * @param reservedBytes số byte được ưu tiên giữ lại khi cache phải xoá bớt
+     */
+    public void reserve(String owner, long reservedBytes) {
+        partitions.computeIfAbsent(owner, k -> new Partition()).reservedBytes = Math.max(0, reservedBytes);
     }
 
-    public BufferedImage getFrame(Path path) {
-        return cache.get(path);
+    /** Xoá partition và toàn bộ frame của một wallpaper */
+    public void removePartition(String owner) {
+        Partition p = partitions.remove(owner);
+        if (p != null) {
+            usedBytes.addAndGet(-p.clear());
+            encodedUsedBytes.addAndGet(-p.clearEncoded());
+        }
     }
 
-    public void putFrame(Path path, BufferedImage image) {
-        cache.put(path, image);
+    /**
+     * Xoá mọi frame đã decode của một wallpaper trừ các frame được giữ (ví dụ wallpaper bị ẩn chỉ giữ frame đang hiện).
+     * Byte mã hoá không bị xoá; không tính là evict.
+     *
+     * @param keep trả về true với index frame cần giữ (mọi tier của frame đó được giữ)
+     * @return số byte giải phóng
+     */
+    public long retainFrames(String owner, IntPredicate keep) {
+        Partition p = partitions.get(owner);
+        if (p == null) return 0;
+        long freed = p.retain(keep);
+        usedBytes.addAndGet(-freed);
+        return freed;
     }
 
-    public boolean hasFrame(Path path) {
-        return cache.containsKey(path);
+    /**
+     * Lấy frame từ cache (không khoá) và giữ một tham chiếu cho người gọi.
+     * Người gọi phải release() frame sau khi dùng xong.
+     *
+     * @return frame hoặc null nếu chưa có
+     */
+    public FrameBuffer acquireFrame(String owner, int frame, int tier) {
+        Partition p = partitions.get(owner);
+        Entry e = (p != null) ? p.entries.get(key(frame, tier)) : null;
+        if (e == null || !e.frame.retain()) {
+            misses.increment();
+            if (p != null) p.misses.increment();
+            return null;
+        }
+        e.referenced = true;
+        hits.increment();
+        p.hits.increment();
+        return e.frame;
     }
 
+    /** Frame đã có trong cache chưa (không tính vào thống kê hit/miss) */
+    public boolean hasFrame(String owner, int frame, int tier) {
+        Partition p = partitions.get(owner);
+        return p != null && p.entries.containsKey(key(frame, tier));
+    }
+
+    /**
+     * Đưa frame vào cache (cache nhận luôn tham chiếu của người gọi), xoá bớt frame khác nếu vượt budget.
+     * Frame lớn hơn cả budget, hoặc của wallpaper chưa reserve(), sẽ bị release() ngay.
+     */
+    public void putFrame(String owner, int frame, int tier, FrameBuffer buffer) {
+        if (buffer == null) return;
+        long bytes = buffer.byteSize();
+        Partition p = partitions.get(owner);
+        if (p == null || bytes > budgetBytes) {
+            buffer.release();
+            return;
+        }
+
+        usedBytes.addAndGet(p.put(new Entry(key(frame, tier), buffer, bytes)));
+        if (partitions.get(owner) != p) {
+            usedBytes.addAndGet(-p.clear()); // partition vừa bị gỡ, frame vừa thêm không ai release nữa
+            return;
+        }
+        evictIfNeeded(p);
+    }
+
+    /**
+     * Lấy byte đã mã hoá của một frame (không khoá). Mảng trả về không được sửa.
+     *
+     * @return byte của file ảnh hoặc null nếu chưa có
+     */
+    public byte[] getEncoded(String owner, int frame) {
+        Partition p = partitions.get(owner);
+        byte[] data = (p != null) ? p.encoded.get(frame) : null;
+        if (data == null) {
+            encodedMisses.increment();
+        } else {
+            encodedHits.increment();
+        }
+        return data;
+    }
+
+    /**
+     * Giữ byte đã mã hoá của một frame nếu còn chỗ trong budget của tầng này.
+     * Không xoá gì để lấy chỗ: tầng đầy thì frame sẽ tiếp tục được đọc từ đĩa.
+     *
+     * @param data byte của file ảnh (cache giữ luôn mảng, người gọi không được sửa)
+     * @return true nếu đã giữ
+     */
+    public boolean putEncoded(String owner, int frame, byte[] data) {
+        Partition p = partitions.get(owner);
+        if (p == null || data == null) return false;
+        long bytes = data.length;
+        for (;;) {
+            long used = encodedUsedBytes.get();
+            if (used + bytes > encodedBudgetBytes) return false;
+            if (encodedUsedBytes.compareAndSet(used, used + bytes)) break;
+        }
+        if (!p.putEncoded(frame, data)) {
+            encodedUsedBytes.addAndGet(-bytes); // frame đã có (hai thread cùng đọc)
+            return false;
+        }
+        if (partitions.get(owner) != p) {
+            encodedUsedBytes.addAndGet(-p.clearEncoded()); // partition vừa bị gỡ
+            return false;
+        }
+        return true;
+    }
+
+    /** Xoá toàn bộ frame và byte đã mã hoá (giữ nguyên các partition và phần giữ trước) */
     public void clear() {
-        cache.clear();
+        for (Partition p : partitions.values()) {
+            usedBytes.addAndGet(-p.clear());
+            encodedUsedBytes.addAndGet(-p.clearEncoded());
+        }
+    }
+
+    /**
+     * Đổi budget, xoá bớt frame ngay nếu budget mới nhỏ hơn dung lượng đang dùng.
+     *
+     * @param budgetBytes budget mới (byte)
+     */
+    public void setBudgetBytes(long budgetBytes) {
+        this.budgetBytes = Math.max(0, budgetBytes);
+        evictIfNeeded(null);
+    }
+
+    public long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    /**
+     * Đổi budget của tầng byte đã mã hoá; nếu nhỏ hơn dung lượng đang dùng thì bỏ bớt,
+     * frame ở cuối vòng lặp của partition lớn nhất trước.
+     *
+     * @param encodedBudgetBytes budget mới (byte)
+     */
+    public void setEncodedBudgetBytes(long encodedBudgetBytes) {
+        this.encodedBudgetBytes = Math.max(0, encodedBudgetBytes);
+        if (encodedUsedBytes.get() <= this.encodedBudgetBytes) return;
+        synchronized (evictionLock) {
+            while (encodedUsedBytes.get() > this.encodedBudgetBytes) {
+                Partition victim = null;
+                for (Partition p : partitions.values()) {
+                    if (victim == null || p.encodedBytes > victim.encodedBytes) victim = p;
+                }
+                if (victim == null || victim.encodedBytes == 0) break;
+                encodedUsedBytes.addAndGet(-victim.trimEncoded(encodedUsedBytes.get() - this.encodedBudgetBytes));
+            }
+        }
+    }
+
+    public long getEncodedBudgetBytes() {
+        return encodedBudgetBytes;
+    }
+
+    /** Tổng số byte đã mã hoá đang giữ */
+    public long getEncodedUsedBytes() {
+        return encodedUsedBytes.get();
+    }
+
+    /** Số byte đã mã hoá của một wallpaper đang giữ */
+    public long getEncodedUsedBytes(String owner) {
+        Partition p = partitions.get(owner);
+        return (p != null) ? p.encodedBytes : 0;
+    }
+
+    public long getEncodedHits() {
+        return encodedHits.sum();
+    }
+
+    public long getEncodedMisses() {
+        return encodedMisses.sum();
+    }
+
+    /** Tổng số byte frame đang nằm trong cache */
+    public long getUsedBytes() {
+        return usedBytes.get();
+    }
+
+    /** Số byte frame của một wallpaper đang nằm trong cache */
+    public long getUsedBytes(String owner) {
+        Partition p = partitions.get(owner);
+        return (p != null) ? p.usedBytes : 0;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /** Số lần hit của một wallpaper */
+    public long getHits(String owner) {
+        Partition p = partitions.get(owner);
+        return (p != null) ? p.hits.sum() : 0;
+    }
+
+    /** Số lần miss của một wallpaper */
+    public long getMisses(String owner) {
+        Partition p = partitions.get(owner);
+        return (p != null) ? p.misses.sum() : 0;
+    }
+
+    /** Số frame của một wallpaper đã bị xoá để giữ budget */
+    public long getEvictions(String owner) {
+        Partition p = partitions.get(owner);
+        return (p != null) ? p.evictions.sum() : 0;
+    }
+
+    /** Khoá trong partition của (frame, tier) */
+    public static int key(int frame, int tier) {
+        return frame * TIERS + tier;
+    }
+
+    /** Index frame của một khoá trong partition */
+    public static int frameOf(int key) {
+        return key / TIERS;
+    }
+
+    private void evictIfNeeded(Partition requester) {
+        if (usedBytes.get() <= budgetBytes) return;
+        synchronized (evictionLock) {
+            while (usedBytes.get() > budgetBytes) {
+                Partition victim = pickVictim(requester);
+                if (victim == null) break;
+                long freed = victim.evictOne();
+                if (freed < 0) break;
+                usedBytes.addAndGet(-freed);
+                evictions.increment();
+                victim.evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Chọn partition để xoá: ưu tiên partition vượt phần giữ trước nhiều nhất,
+     * nếu không có thì partition vừa ghi, cuối cùng là partition lớn nhất.
+     */
+    private Partition pickVictim(Partition requester) {
+        Partition over = null;
+        long maxOver = 0;
+        Partition largest = null;
+        long maxUsed = 0;
+        for (Partition p : partitions.values()) {
+            long used = p.usedBytes;
+            long excess = used - p.reservedBytes;
+            if (excess > maxOver) {
+                maxOver = excess;
+                over = p;
+            }
+            if (used > maxUsed) {
+                maxUsed = used;
+                largest = p;
+            }
+        }
+        if (over != null) return over;
+        if (requester != null && requester.usedBytes > 0) return requester;
+        return largest;
+    }
+
+    /** Một frame trong cache */
+    private static class Entry {
+        final int key;
+        final FrameBuffer frame;
+        final long bytes;
+        volatile boolean referenced;
+        boolean removed;
+
+        Entry(int key, FrameBuffer frame, long bytes) {
+            this.key = key;
+            this.frame = frame;
+            this.bytes = bytes;
+            // Frame prefetch chưa được get lần nào nhưng sắp cần: cho sống qua một vòng quét
+            this.referenced = true;
+        }
+    }
+
+    /** Frames của một wallpaper, xoá theo CLOCK */
+    private static class Partition {
+        final Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+        final ArrayDeque<Entry> clock = new ArrayDeque<>();
+        volatile long usedBytes;
+        volatile long reservedBytes;
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+        final LongAdder evictions = new LongAdder();
+
+        /** Byte đã mã hoá theo index frame */
+        final Map<Integer, byte[]> encoded = new ConcurrentHashMap<>();
+        volatile long encodedBytes;
+
+        /** @return số byte thay đổi */
+        synchronized long put(Entry e) {
+            Entry old = entries.put(e.key, e);
+            long delta = e.bytes;
+            if (old != null) {
+                old.removed = true;
+                old.frame.release();
+                delta -= old.bytes;
+            }
+            clock.addLast(e);
+            usedBytes += delta;
+            return delta;
+        }
+
+        /** Xoá một frame theo CLOCK. @return số byte giải phóng, -1 nếu partition rỗng */
+        synchronized long evictOne() {
+            Entry e;
+            while ((e = clock.pollFirst()) != null) {
+                if (e.removed) continue;
+                if (e.referenced) {
+                    e.referenced = false;
+                    clock.addLast(e);
+                    continue;
+                }
+                e.removed = true;
+                entries.remove(e.key, e);
+                e.frame.release();
+                usedBytes -= e.bytes;
+                return e.bytes;
+            }
+            return -1;
+        }
+
+        /** Xoá các frame không được giữ. @return số byte giải phóng */
+        synchronized long retain(IntPredicate keep) {
+            long freed = 0;
+            Iterator<Entry> it = clock.iterator();
+            while (it.hasNext()) {
+                Entry e = it.next();
+                if (!e.removed && keep.test(frameOf(e.key))) continue;
+                it.remove();
+                if (e.removed) continue;
+                e.removed = true;
+                entries.remove(e.key, e);
+                e.frame.release();
+                freed += e.bytes;
+            }
+            usedBytes -= freed;
+            return freed;
+        }
+
+        /** @return số byte giải phóng */
+        synchronized long clear() {
+            long freed = usedBytes;
+            for (Entry e : clock) {
+                if (!e.removed) {
+                    e.removed = true;
+                    e.frame.release();
+                }
+            }
+            clock.clear();
+            entries.clear();
+            usedBytes = 0;
+            return freed;
+        }
+
+        /** @return false nếu frame đã có */
+        synchronized boolean putEncoded(int frame, byte[] data) {
+            if (encoded.putIfAbsent(frame, data) != null) return false;
+            encodedBytes += data.length;
+            return true;
+        }
+
+        /** Bỏ byte đã mã hoá từ frame cuối vòng lặp trở về, tới khi đủ bytes. @return số byte giải phóng */
+        synchronized long trimEncoded(long bytes) {
+            long freed = 0;
+            Iterator<Integer> it = new TreeSet<>(encoded.keySet()).descendingIterator();
+            while (freed < bytes && it.hasNext()) {
+                byte[] data = encoded.remove(it.next());
+                if (data != null) freed += data.length;
+            }
+            encodedBytes -= freed;
+            return freed;
+        }
+
+        /** @return số byte giải phóng */
+        synchronized long clearEncoded() {
+            long freed = encodedBytes;
+            encoded.clear();
+            encodedBytes = 0;
+            return freed;
+        }
     }
-}
\ No newline at end of file
+}
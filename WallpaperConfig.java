@@ -13,9 +13,23 @@ public class WallpaperConfig {
     private static final Path CONFIG_PATH = Path.of("config/livewallpapers/config.json");
 
     public String activeWallpaper = "elaina";
-    public int fps = 60;
+    public int fps = 60; // FPS mục tiêu; bộ tự điều chỉnh chất lượng có thể hạ xuống
+    public int displayFps = 0; // FPS hiển thị; lớn hơn fps thì trộn frame trung gian từ hai frame kề nhau, 0 = tắt
     public float opacity = 1.0f;
     public boolean loop = true;
+    public boolean pingPong = false; // khi loop: phát ngược về đầu rồi lại xuôi thay vì nhảy về frame 0
+
+    public int prefetchFrames = 4; // số frame decode trước (mục tiêu)
+    public boolean adaptiveQuality = false; // tự hạ/nâng FPS, độ phân giải, prefetch theo ngân sách
+    public double frameBudgetMs = 4.0; // ms công việc cho mỗi frame của một wallpaper
+    public int encodedCacheMB = -1; // MB byte PNG/JPEG giữ trong RAM để không đọc lại đĩa, -1 = tự động, 0 = tắt
+    public int idleSuspendMs = 2000; // không được vẽ lâu hơn chừng này thì tạm ngưng decode và trả cache, 0 = không tự tạm ngưng
+
+    public int warmupFrames = 60; // số frame decode trước lúc khởi động (cả vòng nếu vừa cache), 0 = tắt
+    public int warmupMaxWaitMs = 300; // thời gian tối đa chờ warm-up trong lúc khởi động client
+
+    public int metricsDumpSeconds = 0; // chu kỳ ghi số liệu chạy, 0 = tắt
+    public boolean metricsDumpJson = false; // true → config/livewallpapers/metrics.json, false → log
 
     public static WallpaperConfig load() {
         try {
@@ -6,7 +6,7 @@ import java.nio.file.Path;
  * Lớp chứa thông tin mô tả (metadata) của một wallpaper.
  * 
  * Bao gồm ID, đường dẫn thư mục frames, thông số kỹ thuật như FPS, số lượng frame,
- * kích thước mỗi frame và trạng thái lặp (loop).
+ * kích thước mỗi frame và cách lặp (loop/ping-pong).
  * 
  * Lưu ý:
  * - Không xử lý logic render, chỉ lưu thông tin.
@@ -17,36 +17,68 @@ public class WallpaperDescriptor {
     /** ID định danh của wallpaper (duy nhất) */
     public final String id;
 
-    /** Thư mục chứa frames (ảnh) của wallpaper */
+    /** Thư mục chứa frames (ảnh) của wallpaper, file archive .lwp hoặc file GIF động */
     public final Path framesFolder;
 
     /** FPS mong muốn khi phát (frame/giây) */
     public final int fps;
 
-    /** Tổng số frame của wallpaper */
+    /** Giá trị cho frames/width/height: để triển khai tự dò từ nguồn frame lúc đăng ký */
+    public static final int AUTO = 0;
+
+    /** Tổng số frame của wallpaper (AUTO = tự dò) */
     public final int frames;
 
-    /** Chiều rộng mỗi frame (pixel) */
+    /** Chiều rộng mỗi frame (pixel, AUTO = tự dò) */
     public final int width;
 
-    /** Chiều cao mỗi frame (pixel) */
+    /** Chiều cao mỗi frame (pixel, AUTO = tự dò) */
     public final int height;
 
-    /** Có lặp lại hay không */
+    /** Có lặp lại hay không (loopMode khác ONCE) */
     public final boolean loop;
 
+    /** Cách phát khi tới frame cuối */
+    public final LoopMode loopMode;
+
+    /** Kiểu phát (ảnh tĩnh hoặc hoạt hình) */
+    public final WallpaperMode mode;
+
     /**
      * Tạo một WallpaperDescriptor mới.
      * 
      * @param id ID duy nhất của wallpaper
-     * @param framesFolder Thư mục chứa frames
+     * @param framesFolder Thư mục chứa frames, file archive .lwp hoặc file GIF động
      * @param fps Số frame/giây
-     * @param frames Tổng số frame
-     * @param width Chiều rộng frame
-     * @param height Chiều cao frame
+     * @param frames Tổng số frame (AUTO = tự dò)
+     * @param width Chiều rộng frame (AUTO = tự dò)
+     * @param height Chiều cao frame (AUTO = tự dò)
      * @param loop Có lặp hay không
      */
     public WallpaperDescriptor(String id, Path framesFolder, int fps, int frames, int width, int height, boolean loop) {
+        this(id, framesFolder, fps, frames, width, height, loop, WallpaperMode.ANIMATION);
+    }
+
+    /**
+     * Tạo một WallpaperDescriptor mới với kiểu phát chỉ định.
+     * Wallpaper ANIMATION có mọi frame giống hệt nhau sẽ tự chuyển sang STATIC khi đăng ký.
+     * Các tham số còn lại như constructor trên.
+     *
+     * @param mode Kiểu phát
+     */
+    public WallpaperDescriptor(String id, Path framesFolder, int fps, int frames, int width, int height, boolean loop,
+                               WallpaperMode mode) {
+        this(id, framesFolder, fps, frames, width, height, LoopMode.of(loop), mode);
+    }
+
+    /**
+     * Tạo một WallpaperDescriptor mới với cách lặp chỉ định (ví dụ PING_PONG).
+     * Các tham số còn lại như constructor trên.
+     *
+     * @param loopMode Cách phát khi tới frame cuối
+     */
+    public WallpaperDescriptor(String id, Path framesFolder, int fps, int frames, int width, int height, LoopMode loopMode,
+                               WallpaperMode mode) {
         if (id == null || id.isEmpty()) {
             throw new IllegalArgumentException("ID wallpaper không được để trống");
         }
@@ -56,11 +88,11 @@ public class WallpaperDescriptor {
         if (fps <= 0) {
             throw new IllegalArgumentException("FPS phải > 0");
         }
-        if (frames <= 0) {
-            throw new IllegalArgumentException("Số lượng frame phải > 0");
+        if (frames < 0) {
+            throw new IllegalArgumentException("Số lượng frame phải > 0 (hoặc AUTO)");
         }
-        if (width <= 0 || height <= 0) {
-            throw new IllegalArgumentException("Kích thước frame phải > 0");
+        if (width < 0 || height < 0) {
+            throw new IllegalArgumentException("Kích thước frame phải > 0 (hoặc AUTO)");
         }
 
         this.id = id;
@@ -69,6 +101,33 @@ public class WallpaperDescriptor {
         this.frames = frames;
         this.width = width;
         this.height = height;
-        this.loop = loop;
+        this.loopMode = (loopMode != null) ? loopMode : LoopMode.ONCE;
+        this.loop = this.loopMode.repeats();
+        this.mode = (mode != null) ? mode : WallpaperMode.ANIMATION;
+    }
+
+    /** Có trường nào cần tự dò không */
+    public boolean needsDetection() {
+        return frames == AUTO || width == AUTO || height == AUTO;
+    }
+
+    /**
+     * Tạo descriptor mới, điền các trường AUTO bằng giá trị dò được.
+     *
+     * @param frames số frame dò được
+     * @param width chiều rộng dò được
+     * @param height chiều cao dò được
+     */
+    public WallpaperDescriptor withDetected(int frames, int width, int height) {
+        return new WallpaperDescriptor(id, framesFolder, fps,
+                this.frames == AUTO ? frames : this.frames,
+                this.width == AUTO ? width : this.width,
+                this.height == AUTO ? height : this.height,
+                loopMode, mode);
+    }
+
+    /** Tạo descriptor mới với kiểu phát khác */
+    public WallpaperDescriptor withMode(WallpaperMode mode) {
+        return new WallpaperDescriptor(id, framesFolder, fps, frames, width, height, loopMode, mode);
     }
-}
\ No newline at end of file
+}
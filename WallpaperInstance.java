@@ -1,138 +1,606 @@
 package com.livewallpaper.api;
 
-import com.livewallpaper.api.cache.WallpaperCache;
-import com.livewallpaper.api.util.ImageUtils;
+import com.livewallpaper.api.cache.FrameLoader;
+import com.livewallpaper.api.metrics.WallpaperMetrics;
+import com.livewallpaper.api.render.RenderBackend;
+import com.livewallpaper.api.render.WallpaperTexture;
+import com.livewallpaper.api.source.FrameSource;
+import com.livewallpaper.api.util.FrameBlender;
 
-import java.awt.image.BufferedImage;
-import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Đại diện cho một wallpaper đang hoạt động (một instance duy nhất).
  * 
  * - Giữ thông tin từ WallpaperDescriptor.
- * - Tính toán frame hiện tại dựa vào FPS và thời gian trôi qua.
- * - Hỗ trợ play/pause/stop/seek.
- * - Prefetch frame kế tiếp để giảm giật khi render.
+ * - Tính toán frame hiện tại dựa vào FPS và thời gian trôi qua (PlaybackState, nanoTime);
+ *   render chậm hơn FPS thì bỏ qua frame, frame bị bỏ qua không được decode.
+ * - Hỗ trợ play/pause/stop/seek. Lệnh điều khiển được gọi từ thread bất kỳ: chỉ công bố một
+ *   PlaybackState mới bằng compare-and-set, không khoá, không chặn render thread; render thread
+ *   áp dụng phần còn lại (huỷ decode, tính lại playhead) ở lần update kế tiếp.
+ * - Decode trước N frame phía sau playhead ở background (FrameLoader), không chặn render thread;
+ *   cửa sổ prefetch theo hướng/tốc độ phát và trải quanh vị trí tua (PrefetchPlanner).
+ * - Lặp kiểu LOOP hoặc PING_PONG (xuôi rồi ngược, dùng lại frame đã decode).
+ * - Sở hữu một texture sống lâu, chỉ upload lại khi frame thay đổi.
+ * - Chọn bậc độ phân giải (tier) gần nhất với vùng render để decode/cache/upload ít hơn.
+ * - Frame trùng nội dung được quy về frame gốc (FrameSource.canonicalFrame) trước khi decode/cache/upload.
+ * - Chế độ STATIC: không tiến playhead, không prefetch; chỉ frame 0 được decode và upload một lần.
+ * - Display FPS cao hơn FPS nguồn: frame trung gian là frame hiện tại trộn (cross-fade) với frame kế tiếp
+ *   theo phần đã trôi bên trong frame, lượng tử hoá theo nhịp hiển thị; chỉ frame nguồn được decode/cache.
+ * - Bị ẩn (setVisible(false) hoặc lâu không được render) → tạm ngưng: huỷ decode, không tiến playhead,
+ *   không prefetch. Đồng hồ phát vẫn chạy, nên khi hiện lại vị trí được lấy theo đồng hồ và chỉ frame hiện tại
+ *   được decode trước.
  */
 public class WallpaperInstance {
 
     private final WallpaperDescriptor desc;
-    private final WallpaperCache cache;
+    private final boolean isStatic;
+    private final String storeKey;
+    private final FrameSource source;
+    private final FrameLoader.Session loader;
+    private final WallpaperTexture texture;
 
-    private boolean playing = false;
-    private boolean loop;
+    /** Texture thứ hai khi trộn frame: frame kế tiếp (backend tự trộn) hoặc frame đã trộn trên CPU */
+    private final WallpaperTexture blendTexture;
 
-    private float opacity = 1.0f;
+    /** Số frame decode trước phía sau playhead */
+    private volatile int prefetchDepth;
 
-    private int fps;
-    private double frameDuration; // ms/frame
-    private int totalFrames;
+    /** Giữ tier nét hơn thêm một lúc sau lần cuối được cần tới, tránh đổi qua lại liên tục */
+    private static final long TIER_HOLD_NANOS = 1_000_000_000L;
 
-    private int currentFrameIndex = 0;
-    private long lastFrameTime = 0;
+    /** Bậc độ phân giải đang dùng (0 = đủ độ phân giải); seek() đọc từ thread khác */
+    private volatile int tier = 0;
+    private long tierNeededAt = 0;
 
-    public WallpaperInstance(WallpaperDescriptor desc, WallpaperCache cache) {
+    private volatile float opacity = 1.0f;
+
+    /** FPS hiển thị mong muốn; lớn hơn FPS nguồn thì trộn frame trung gian (0 = tắt) */
+    private volatile int displayFps = 0;
+
+    /** Frame gốc đang được trộn vào frame hiện tại (-1 = không trộn) và trọng số 0..MAX_WEIGHT (render thread) */
+    private int blendFrameKey = -1;
+    private int blendWeight = 0;
+
+    /** Khoá của frame trung gian vẽ gần nhất (render thread) */
+    private long shownBlendKey = WallpaperTexture.NO_FRAME;
+
+    /** Gợi ý hiển thị (setVisible, thread bất kỳ); render() luôn coi là đang hiện */
+    private volatile boolean visible = true;
+
+    /** Giá trị lastShownNanos khi chưa render lần nào */
+    private static final long NEVER_SHOWN = 0;
+
+    /**
+     * Lần render (hoặc setVisible(true)) gần nhất, System.nanoTime(); NEVER_SHOWN nếu chưa lần nào.
+     * Wallpaper chưa từng hiện (đang làm nóng chờ render đầu tiên) không bị tạm ngưng vì idle.
+     */
+    private volatile long lastShownNanos = NEVER_SHOWN;
+
+    /** Bắt đầu phát ở lần render đầu tiên (playOnFirstRender), để đồng hồ không chạy trước khi có gì hiện ra */
+    private volatile boolean playOnFirstRender = false;
+
+    /** Đang tạm ngưng vì bị ẩn */
+    private final AtomicBoolean suspended = new AtomicBoolean();
+
+    /** Vừa tiếp tục sau tạm ngưng: update kế tiếp lấy lại vị trí theo đồng hồ (render thread) */
+    private boolean resumed = false;
+
+    /** Trạng thái phát; thread bất kỳ công bố snapshot mới, render thread đọc */
+    private final AtomicReference<PlaybackState> state;
+    private final int totalFrames;
+
+    /** epoch của snapshot mà render thread đã áp dụng */
+    private long appliedEpoch = 0;
+
+    /** Chỉ render thread ghi; thread khác đọc để biết vị trí */
+    private volatile int currentFrameIndex = 0;
+
+    /** Vị trí (frame, chưa quấn vòng) ở lần update trước */
+    private long lastPosition = 0;
+
+    /** Cửa sổ prefetch (chỉ render thread) */
+    private final PrefetchPlanner planner;
+
+    /** Frame gốc đã bị tính là prefetch trượt, chờ decode xong (không tính trượt lại mỗi lần render) */
+    private int missedFrameKey = -1;
+
+    /** Mức giảm chất lượng do QualityGovernor đặt (1/0/1 = không giảm) */
+    private int fpsDivisor = 1;
+    private volatile int tierBias = 0;
+    private int depthDivisor = 1;
+
+    /** Giới hạn độ sâu prefetch khi bộ nhớ bị áp lực (MemoryPressureMonitor) */
+    private volatile int depthLimit = Integer.MAX_VALUE;
+
+    /** Số liệu chạy (decode, upload, frame render/lặp/bỏ qua) */
+    private final WallpaperMetrics metrics = new WallpaperMetrics();
+
+    /** Trạng thái của QualityGovernor cho wallpaper này */
+    final QualityGovernor.State quality = new QualityGovernor.State();
+
+    /**
+     * @param storeKey partition cache chứa frame (các wallpaper cùng nguồn dùng chung)
+     */
+    public WallpaperInstance(WallpaperDescriptor desc, String storeKey, FrameSource source,
+                             FrameLoader loader, RenderBackend backend, int prefetchDepth) {
         this.desc = desc;
-        this.cache = cache;
-        this.fps = desc.fps;
-        this.frameDuration = 1000.0 / fps;
+        this.isStatic = desc.mode == WallpaperMode.STATIC;
+        this.storeKey = storeKey;
+        this.source = source;
+        this.loader = loader.openSession(storeKey, source, metrics);
+        this.prefetchDepth = prefetchDepth;
+        this.texture = new WallpaperTexture(backend);
+        this.blendTexture = new WallpaperTexture(backend);
+        this.state = new AtomicReference<>(new PlaybackState(desc.fps, desc.loopMode));
         this.totalFrames = desc.frames;
-        this.loop = desc.loop;
+        this.planner = new PrefetchPlanner(desc.frames, desc.loopMode);
+    }
+
+    /** Một lệnh điều khiển: từ snapshot hiện tại tạo snapshot mới (hàm thuần, có thể bị gọi lại) */
+    private interface Control {
+        PlaybackState apply(PlaybackState current, long now);
+    }
+
+    /**
+     * Áp dụng lệnh điều khiển bằng vòng compare-and-set.
+     * now được lấy sau khi đọc snapshot nên không bao giờ sớm hơn thời điểm snapshot đó được tạo.
+     *
+     * @return snapshot đã công bố
+     */
+    private PlaybackState control(Control op) {
+        while (true) {
+            PlaybackState current = state.get();
+            PlaybackState next = op.apply(current, System.nanoTime());
+            if (next == current || state.compareAndSet(current, next)) return next;
+        }
+    }
+
+    /** Frame đang hiện theo một snapshot (0..N-1) */
+    private int shownFrame(PlaybackState s, long now) {
+        int frame = s.getLoopMode().frameAt(s.frameAt(now), totalFrames);
+        return frame >= 0 ? frame : totalFrames - 1;
     }
 
     /** Bắt đầu phát */
     public void play() {
-        playing = true;
-        lastFrameTime = System.currentTimeMillis();
+        playOnFirstRender = false;
+        control(PlaybackState::play);
+    }
+
+    /**
+     * Bắt đầu phát ở lần render đầu tiên thay vì ngay bây giờ: frame làm nóng trước (từ vị trí hiện tại)
+     * vẫn là frame được hiện đầu tiên, dù render đầu tới muộn bao lâu. Đã render rồi thì phát ngay.
+     */
+    public void playOnFirstRender() {
+        if (lastShownNanos != NEVER_SHOWN) {
+            play();
+            return;
+        }
+        playOnFirstRender = true;
     }
 
     /** Tạm dừng phát */
     public void pause() {
-        playing = false;
+        playOnFirstRender = false;
+        control(PlaybackState::pause);
     }
 
     /** Dừng phát và về frame 0 */
     public void stop() {
-        playing = false;
-        currentFrameIndex = 0;
+        playOnFirstRender = false;
+        control((s, now) -> s.stopAt(0));
     }
 
-    /** Tua tới một thời điểm (giây) */
+    /**
+     * Tua tới một thời điểm (giây).
+     * Frame đích được yêu cầu decode ngay từ thread gọi, không chờ tick kế tiếp;
+     * phần còn lại của cửa sổ quanh đích do scheduler lo (PrefetchPlanner).
+     */
     public void seek(double seconds) {
-        int targetFrame = (int) (seconds * fps);
-        if (targetFrame < 0) targetFrame = 0;
-        if (targetFrame >= totalFrames) targetFrame = totalFrames - 1;
-        currentFrameIndex = targetFrame;
+        if (isStatic) return;
+        long mediaNanos = Math.max(0, (long) (seconds * 1_000_000_000L));
+        PlaybackState s = control((current, now) -> {
+            long lastFrameNanos = (totalFrames - 1) * 1_000_000_000L / current.getFps();
+            return mediaNanos > lastFrameNanos
+                    ? current.seekFrame(totalFrames - 1, now) : current.seekNanos(mediaNanos, now);
+        });
+        loader.request(source.canonicalFrame(shownFrame(s, System.nanoTime())), getTier());
     }
 
-    /** Lấy vị trí hiện tại (giây) */
+    /** Lấy vị trí hiện tại (giây), tính theo đồng hồ của snapshot */
     public double getPosition() {
-        return currentFrameIndex / (double) fps;
+        PlaybackState s = state.get();
+        return shownFrame(s, System.nanoTime()) / (double) s.getFps();
     }
 
-    /** Cập nhật frame nếu cần */
-    public void update() {
-        if (!playing) return;
+    /** Snapshot trạng thái phát hiện tại (đọc từ thread bất kỳ) */
+    public PlaybackState getPlaybackState() {
+        return state.get();
+    }
 
-        long now = System.currentTimeMillis();
-        if (now - lastFrameTime >= frameDuration) {
-            currentFrameIndex++;
-            lastFrameTime = now;
+    /**
+     * Cập nhật frame theo đồng hồ (chỉ tiến playhead, không yêu cầu decode).
+     * Được WallpaperScheduler gọi đúng một lần mỗi tick.
+     *
+     * @param now System.nanoTime() của tick
+     */
+    public void update(long now) {
+        if (isStatic) return;
 
-            if (currentFrameIndex >= totalFrames) {
-                if (loop) {
-                    currentFrameIndex = 0;
-                } else {
-                    currentFrameIndex = totalFrames - 1;
-                    playing = false;
-                }
+        PlaybackState s;
+        long position;
+        while (true) {
+            s = state.get();
+            if (!s.isPlaying() && s.getEpoch() == appliedEpoch && !resumed) return;
+            position = s.frameAt(now);
+            if (s.isLoop() || position < totalFrames) break;
+            // Hết wallpaper không lặp → dừng ở frame cuối (thua CAS thì một lệnh điều khiển vừa tới, tính lại)
+            PlaybackState end = s.stopAt(totalFrames - 1);
+            if (state.compareAndSet(s, end)) {
+                s = end;
+                position = totalFrames - 1;
+                break;
             }
+        }
+
+        // FPS hiệu dụng thấp hơn: chỉ hiện frame chia hết cho fpsDivisor, tốc độ phát không đổi
+        long shown = s.isPlaying() ? position - position % fpsDivisor : position;
+        boolean jumped = s.getEpoch() != appliedEpoch || resumed;
+        if (jumped) {
+            // Vị trí nhảy (seek/stop/đổi FPS/cách lặp, hoặc hiện lại sau tạm ngưng): không tính là bỏ qua frame.
+            // Hiện lại thì không trải cửa sổ như khi tua, chỉ cần frame hiện tại
+            appliedEpoch = s.getEpoch();
+            lastPosition = shown;
+            planner.jump(s.isPlaying() || resumed);
+            resumed = false;
+        }
+        long advance = shown - lastPosition;
+        lastPosition = shown;
+        planner.recordAdvance(advance);
+        planner.update(shown, s.getLoopMode(), s.isPlaying(), fpsDivisor);
+        currentFrameIndex = planner.current();
+        updateBlend(s, now);
+
+        if (advance > fpsDivisor) {
+            // Render chậm hơn FPS: bỏ qua các frame ở giữa
+            metrics.recordSkipped(advance / fpsDivisor - 1);
+        }
+        if (jumped || advance > fpsDivisor) {
+            // Huỷ decode những frame đã bị vượt qua hoặc nằm ngoài cửa sổ mới (giữ frame đích seek() đã yêu cầu)
+            loader.cancelIf(frame -> !isNeeded(frame));
+        }
+    }
+
+    /**
+     * Chọn frame trộn và trọng số cho lần hiển thị này. Phần đã trôi bên trong frame được lượng tử hoá
+     * theo nhịp hiển thị, nên frame trung gian chỉ đổi (và chỉ phải trộn/upload lại) đúng displayFps lần mỗi giây.
+     */
+    private void updateBlend(PlaybackState s, long now) {
+        blendFrameKey = -1;
+        blendWeight = 0;
+        if (!isBlending(s.getFps())) return;
+        double steps = displayFps / (double) s.getFps();
+        int step = (int) (s.phaseAt(now) * steps);
+        if (step <= 0) return;
+        int next = planner.next();
+        if (next < 0) return;
+        int key = source.canonicalFrame(next);
+        if (key == getCurrentFrameKey()) return;
+        blendFrameKey = key;
+        blendWeight = (int) (step * FrameBlender.MAX_WEIGHT / steps);
+    }
+
+    /** Có trộn frame trung gian ở FPS nguồn này không (QualityGovernor đang giảm FPS thì không) */
+    private boolean isBlending(int sourceFps) {
+        return displayFps > sourceFps && fpsDivisor == 1 && !isStatic;
+    }
+
+    /**
+     * Yêu cầu decode frame thứ k trong cửa sổ prefetch (k = 0 là frame hiện tại), theo PrefetchPlanner.
+     * Frame đã có trong cache hoặc đang chờ sẽ được bỏ qua.
+     *
+     * @param k vị trí trong cửa sổ (0..prefetchDepth)
+     */
+    public void requestAhead(int k) {
+        if (k > getEffectivePrefetchDepth()) return;
+        int frame = planner.frameAt(k);
+        if (frame < 0) return;
+        loader.request(source.canonicalFrame(frame), getTier());
+    }
+
+    /** Yêu cầu decode frame hiện tại và cả cửa sổ prefetch */
+    public void prefetch() {
+        for (int k = 0; k <= getEffectivePrefetchDepth(); k++) {
+            requestAhead(k);
+        }
+    }
 
-            // Prefetch frame tiếp theo để tránh lag
-            int nextFrame = (currentFrameIndex + 1) % totalFrames;
-            Path nextPath = getFramePath(nextFrame);
-            if (!cache.hasFrame(nextPath)) {
-                BufferedImage img = ImageUtils.loadImage(nextPath);
-                if (img != null) {
-                    cache.putFrame(nextPath, img);
-                }
+    /** Số nano giây của một frame hiển thị (theo display FPS khi đang trộn frame, ngược lại theo FPS nguồn) */
+    public long getFrameNanos() {
+        PlaybackState s = state.get();
+        int display = displayFps;
+        return isBlending(s.getFps()) ? 1_000_000_000L / display : s.getFrameNanos();
+    }
+
+    /** Frame gốc này có còn được cần trong cửa sổ prefetch (hoặc đang được trộn) không */
+    private boolean isNeeded(int canonicalFrame) {
+        return canonicalFrame == blendFrameKey
+                || planner.isNeeded(canonicalFrame, getEffectivePrefetchDepth(), source::canonicalFrame);
+    }
+
+    /**
+     * Ghi nhận frame hiện tại đã sẵn sàng trong cache đúng lúc cần hiện hay chưa (render thread gọi
+     * khi texture cần frame mới). Frame trượt chỉ được tính một lần, dù phải chờ qua nhiều lần render.
+     */
+    public void recordFrameReady(int frameKey, boolean ready) {
+        if (frameKey == missedFrameKey) {
+            if (ready) missedFrameKey = -1;
+            return;
+        }
+        metrics.recordPrefetch(ready);
+        if (!ready) missedFrameKey = frameKey;
+    }
+
+    /**
+     * Báo kích thước vùng sắp render để chọn tier.
+     * Cần nét hơn → đổi ngay; nhỏ đi → chỉ đổi khi tier hiện tại không còn được cần trong TIER_HOLD_NANOS
+     * (ví dụ cùng lúc vẽ nền toàn màn hình và một ảnh preview nhỏ).
+     */
+    public void requestSize(int width, int height) {
+        int wanted = FrameSource.pickTier(desc.width, desc.height, width, height);
+        long now = System.nanoTime();
+        if (wanted <= tier) {
+            tierNeededAt = now;
+            if (wanted < tier) {
+                tier = wanted;
+                loader.cancelAll();
             }
+        } else if (now - tierNeededAt > TIER_HOLD_NANOS) {
+            tier = wanted;
+            tierNeededAt = now;
+            loader.cancelAll();
         }
     }
 
-    /** Lấy đường dẫn frame hiện tại */
-    public Path getCurrentFramePath() {
-        return getFramePath(currentFrameIndex);
+    /** Bậc độ phân giải đang dùng (đã cộng mức giảm của QualityGovernor) */
+    public int getTier() {
+        return Math.min(FrameSource.MAX_TIER, tier + tierBias);
+    }
+
+    /**
+     * Áp dụng mức chất lượng (QualityGovernor gọi).
+     *
+     * @param fpsDivisor chỉ hiện 1 trên fpsDivisor frame
+     * @param tierBias số bậc độ phân giải giảm thêm
+     * @param depthDivisor chia độ sâu prefetch
+     */
+    void applyQuality(int fpsDivisor, int tierBias, int depthDivisor) {
+        boolean tierChanged = tierBias != this.tierBias;
+        this.fpsDivisor = Math.max(1, fpsDivisor);
+        this.tierBias = Math.max(0, tierBias);
+        this.depthDivisor = Math.max(1, depthDivisor);
+        if (tierChanged) loader.cancelAll();
+    }
+
+    /** FPS hiển thị thực tế (display FPS khi đang trộn frame, ngược lại FPS mục tiêu chia cho mức giảm của QualityGovernor) */
+    public int getEffectiveFPS() {
+        int fps = state.get().getFps();
+        if (isBlending(fps)) return displayFps;
+        return Math.max(1, fps / fpsDivisor);
+    }
+
+    /** Độ sâu prefetch thực tế */
+    public int getEffectivePrefetchDepth() {
+        if (isStatic) return 0;
+        int depth = prefetchDepth;
+        if (depth > 0 && depthDivisor > 1) depth = Math.max(1, depth / depthDivisor);
+        return Math.min(depth, depthLimit);
+    }
+
+    /** Giới hạn độ sâu prefetch (Integer.MAX_VALUE = không giới hạn) */
+    public void setDepthLimit(int limit) {
+        this.depthLimit = Math.max(0, limit);
     }
 
-    /** Tạo đường dẫn frame dựa trên index */
-    private Path getFramePath(int index) {
-        // Frame file dạng frame_0001.png → frame_NNNN.png
-        String filename = String.format("frame_%04d.png", index);
-        return desc.framesFolder.resolve(filename);
+    /** Số liệu chạy của wallpaper */
+    public WallpaperMetrics getMetrics() {
+        return metrics;
+    }
+
+    /** Tổng thời gian decode + convert + upload đã tiêu tốn (nano giây) */
+    public long getWorkNanos() {
+        return metrics.getWorkNanos();
+    }
+
+    public WallpaperDescriptor getDescriptor() {
+        return desc;
+    }
+
+    /** Index frame hiện tại */
+    public int getCurrentFrameIndex() {
+        return currentFrameIndex;
+    }
+
+    /** Frame gốc của frame hiện tại (khoá trong cache và texture) */
+    public int getCurrentFrameKey() {
+        return source.canonicalFrame(currentFrameIndex);
+    }
+
+    /** Frame gốc của một frame bất kỳ */
+    public int canonicalFrame(int frame) {
+        return source.canonicalFrame(frame);
+    }
+
+    /** Yêu cầu decode một frame bất kỳ ở tier hiện tại (ví dụ khi khởi động) */
+    public void requestFrame(int frame) {
+        loader.request(source.canonicalFrame(frame), getTier());
+    }
+
+    /** Partition cache chứa frame của wallpaper */
+    public String getStoreKey() {
+        return storeKey;
+    }
+
+    /** Texture của wallpaper (chỉ dùng ở render thread) */
+    public WallpaperTexture getTexture() {
+        return texture;
+    }
+
+    /** Texture thứ hai dùng khi trộn frame (chỉ dùng ở render thread) */
+    public WallpaperTexture getBlendTexture() {
+        return blendTexture;
+    }
+
+    /** Frame gốc cần trộn vào frame hiện tại ở lần hiển thị này, -1 nếu không trộn */
+    public int getBlendFrameKey() {
+        return blendFrameKey;
+    }
+
+    /** Trọng số của frame trộn (0..FrameBlender.MAX_WEIGHT) */
+    public int getBlendWeight() {
+        return blendWeight;
+    }
+
+    /**
+     * Khoá texture của một frame trung gian; luôn âm và khác WallpaperTexture.NO_FRAME
+     * nên không trùng khoá của frame nguồn nào.
+     */
+    public static long blendKey(int fromKey, int toKey, int weight) {
+        return Long.MIN_VALUE | (long) weight << 48 | (long) (toKey & 0xFFFFFF) << 24 | (fromKey & 0xFFFFFF);
+    }
+
+    /**
+     * Ghi nhận frame trung gian sắp vẽ.
+     *
+     * @return true nếu khác frame trung gian vẽ lần trước (tính là frame mới)
+     */
+    public boolean markBlendShown(long blendKey) {
+        if (blendKey == shownBlendKey) return false;
+        shownBlendKey = blendKey;
+        return true;
     }
 
     public boolean isPlaying() {
-        return playing;
+        return state.get().isPlaying();
+    }
+
+    /**
+     * Đặt gợi ý hiển thị (thread bất kỳ). Ẩn thì WallpaperManager tạm ngưng ngay; hiện lại thì frame hiện tại
+     * (tính theo đồng hồ) được yêu cầu decode ngay, phần còn lại tiếp tục ở tick/render kế tiếp.
+     */
+    public void setVisible(boolean visible) {
+        this.visible = visible;
+        if (visible) {
+            lastShownNanos = System.nanoTime();
+            if (suspended.get() && !isStatic) {
+                loader.request(source.canonicalFrame(shownFrame(state.get(), System.nanoTime())), getTier());
+            }
+        }
+    }
+
+    public boolean isVisible() {
+        return visible;
+    }
+
+    /** Ghi nhận wallpaper vừa được render (render thread): đang hiện, dù trước đó có bị setVisible(false) */
+    void markShown(long now) {
+        visible = true;
+        lastShownNanos = now;
+        if (playOnFirstRender) play();
+    }
+
+    /**
+     * Đã quá idleNanos kể từ lần hiện gần nhất chưa (idleNanos <= 0 = không bao giờ).
+     * Chưa hiện lần nào thì không tính là idle.
+     */
+    boolean isIdle(long now, long idleNanos) {
+        long shown = lastShownNanos;
+        return idleNanos > 0 && shown != NEVER_SHOWN && now - shown > idleNanos;
+    }
+
+    /**
+     * Tạm ngưng: huỷ mọi decode đang chờ (thread bất kỳ).
+     *
+     * @return true nếu vừa chuyển sang tạm ngưng
+     */
+    boolean suspend() {
+        if (!suspended.compareAndSet(false, true)) return false;
+        loader.cancelAll();
+        return true;
+    }
+
+    /**
+     * Tiếp tục sau tạm ngưng (render thread); vị trí được tính lại theo đồng hồ ở update kế tiếp.
+     *
+     * @return true nếu vừa tiếp tục
+     */
+    boolean resume() {
+        if (!suspended.compareAndSet(true, false)) return false;
+        resumed = true;
+        return true;
+    }
+
+    /** Đang tạm ngưng vì bị ẩn */
+    public boolean isSuspended() {
+        return suspended.get();
+    }
+
+    /** Wallpaper tĩnh (một hình, không cần tick) */
+    public boolean isStatic() {
+        return isStatic;
+    }
+
+    /** Cần được scheduler tiến playhead (đang phát, không tĩnh, không tạm ngưng) */
+    public boolean isAnimating() {
+        return !isStatic && state.get().isPlaying() && !suspended.get();
     }
 
+    /** Bật/tắt lặp; bật khi đang PING_PONG thì giữ PING_PONG */
     public void setLoop(boolean loop) {
-        this.loop = loop;
+        control((s, now) -> {
+            LoopMode mode = !loop ? LoopMode.ONCE : s.isLoop() ? s.getLoopMode() : LoopMode.LOOP;
+            return s.withLoopMode(mode, shownFrame(s, now), now);
+        });
+    }
+
+    /** Đổi cách lặp, giữ nguyên frame đang hiện */
+    public void setLoopMode(LoopMode mode) {
+        if (mode == null) return;
+        control((s, now) -> s.withLoopMode(mode, shownFrame(s, now), now));
     }
 
     public boolean isLoop() {
-        return loop;
+        return state.get().isLoop();
+    }
+
+    public LoopMode getLoopMode() {
+        return state.get().getLoopMode();
     }
 
     public void setFPS(int fps) {
-        if (fps > 0) {
-            this.fps = fps;
-            this.frameDuration = 1000.0 / fps;
+        if (fps > 0 && !isStatic) {
+            // Giữ nguyên frame đang phát, chỉ tốc độ từ đây về sau thay đổi
+            control((s, now) -> s.withFps(fps, now));
         }
     }
 
+    public void setPrefetchDepth(int prefetchDepth) {
+        this.prefetchDepth = Math.max(0, prefetchDepth);
+    }
+
+    public int getPrefetchDepth() {
+        return prefetchDepth;
+    }
+
     public int getFPS() {
-        return fps;
+        return state.get().getFps();
+    }
+
+    /** Tổng số frame bị bỏ qua vì render chậm hơn FPS */
+    public long getSkippedFrames() {
+        return metrics.getSkippedFrames();
     }
 
     public void setOpacity(float opacity) {
@@ -145,8 +613,30 @@ public class WallpaperInstance {
         return opacity;
     }
 
-    /** Giải phóng tài nguyên (nếu cần) */
+    /**
+     * Đặt FPS hiển thị. Lớn hơn FPS nguồn thì hiện thêm frame trung gian trộn từ hai frame nguồn kề nhau;
+     * 0 (hoặc không lớn hơn FPS nguồn) = hiện đúng FPS nguồn.
+     */
+    public void setDisplayFPS(int fps) {
+        this.displayFps = Math.max(0, fps);
+    }
+
+    public int getDisplayFPS() {
+        return displayFps;
+    }
+
+    /**
+     * Giải phóng tài nguyên (thread bất kỳ): huỷ decode, đóng nguồn frame.
+     * Texture do releaseTextures trả ở render thread; partition cache do WallpaperManager gỡ.
+     */
     public void dispose() {
-        // Có thể clear cache liên quan nếu muốn
+        loader.cancelAll();
+        source.close();
+    }
+
+    /** Trả texture (chỉ render thread) */
+    void releaseTextures() {
+        texture.release();
+        blendTexture.release();
     }
 }
\ No newline at end of file
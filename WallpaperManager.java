@@ -1,37 +1,165 @@
 package com.livewallpaper.api;
 
+import com.livewallpaper.api.cache.FrameBuffer;
+import com.livewallpaper.api.cache.FrameLoader;
+import com.livewallpaper.api.cache.FrameStore;
+import com.livewallpaper.api.cache.MemoryPressureMonitor;
 import com.livewallpaper.api.cache.WallpaperCache;
-import com.livewallpaper.api.util.ImageUtils;
-import org.lwjgl.opengl.GL11;
-import org.lwjgl.BufferUtils;
+import com.livewallpaper.api.metrics.MetricsSnapshot;
+import com.livewallpaper.api.metrics.WallpaperMetrics;
+import com.livewallpaper.api.render.GlRenderBackend;
+import com.livewallpaper.api.render.RenderBackend;
+import com.livewallpaper.api.render.WallpaperTexture;
+import com.livewallpaper.api.source.FrameSource;
+import com.livewallpaper.api.util.FrameBlender;
 
-import java.awt.image.BufferedImage;
-import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * Quản lý tất cả wallpaper đã đăng ký và xử lý logic phát/render.
  * 
  * - Giữ danh sách các WallpaperInstance đang hoạt động.
- * - Điều khiển play/pause/seek/loop cho từng instance.
+ * - Điều khiển play/pause/seek/loop (kể cả ping-pong) cho từng instance.
+ * - Tiến playhead và lập kế hoạch decode cho mọi wallpaper ở một chỗ (tick), render chỉ tra frame đã sẵn sàng.
  * - Render frame hiện tại ra màn hình.
+ * - Tạm ngưng wallpaper bị ẩn hoặc lâu không được render: dừng decode, trả frame đã cache (trừ frame đang hiện).
  */
 public class WallpaperManager implements LiveWallpaperAPI {
 
     /** Danh sách wallpaper đã đăng ký (theo ID) */
     private final Map<String, WallpaperInstance> wallpapers = new ConcurrentHashMap<>();
 
-    /** Cache toàn cục cho frames (shared giữa các wallpaper) */
-    private final WallpaperCache cache = new WallpaperCache(10); // giữ 10 frame gần nhất
+    /**
+     * Cache toàn cục cho frames, chia partition theo wallpaper; budget theo bộ nhớ của máy.
+     * Hai tầng: frame RGBA quanh playhead và byte PNG/JPEG của cả vòng lặp.
+     */
+    private final WallpaperCache cache = new WallpaperCache(MemoryPressureMonitor.autoBudgetBytes(),
+            MemoryPressureMonitor.autoEncodedBudgetBytes());
+
+    /** Độ sâu prefetch khi bộ nhớ bị áp lực */
+    private static final int PRESSURE_PREFETCH_DEPTH = 1;
+
+    /** Co cache và giảm prefetch khi heap gần đầy, giãn lại khi hết áp lực */
+    private final MemoryPressureMonitor memoryMonitor = new MemoryPressureMonitor(cache, this::onMemoryPressure);
+
+    /** Số frame decode trước mặc định cho mỗi wallpaper */
+    public static final int DEFAULT_PREFETCH_DEPTH = 4;
+
+    /** Vùng nhớ off-heap cho frame RGBA */
+    private final FrameStore frameStore = new FrameStore(FrameStore.DEFAULT_MAX_POOLED_BYTES);
+
+    /** Pool decode frame ở background */
+    private final FrameLoader loader = new FrameLoader(cache, frameStore, FrameLoader.defaultThreads());
+
+    private volatile int prefetchDepth = DEFAULT_PREFETCH_DEPTH;
+
+    /** Tự giảm/tăng chất lượng theo ngân sách thời gian (mặc định tắt) */
+    private final QualityGovernor governor = new QualityGovernor();
+
+    /** Thời gian không được render trước khi wallpaper bị tạm ngưng (mặc định) */
+    public static final long DEFAULT_IDLE_SUSPEND_MILLIS = 2000;
+
+    /** Tiến playhead + lập kế hoạch decode cho mọi wallpaper */
+    private final WallpaperScheduler scheduler = new WallpaperScheduler(wallpapers.values(), governor, memoryMonitor,
+            this::onSuspend, DEFAULT_IDLE_SUSPEND_MILLIS * 1_000_000L);
+
+    /** Backend vẽ/upload texture */
+    private final RenderBackend backend;
+
+    /** Wallpaper đã gỡ, chờ render thread trả texture (unregisterWallpaper có thể gọi từ thread khác) */
+    private final Queue<WallpaperInstance> pendingDisposals = new ConcurrentLinkedQueue<>();
+
+    /** Nơi lưu danh sách frame của các thư mục (null = luôn quét lại) */
+    private volatile Path indexCacheDir;
+
+    public WallpaperManager() {
+        this(new GlRenderBackend());
+    }
+
+    /**
+     * @param backend backend render (ví dụ RecordingRenderBackend khi chạy headless)
+     */
+    public WallpaperManager(RenderBackend backend) {
+        this.backend = backend;
+        loader.setMemoryMonitor(memoryMonitor);
+        memoryMonitor.start();
+    }
+
+    private void onMemoryPressure(boolean underPressure) {
+        int limit = underPressure ? PRESSURE_PREFETCH_DEPTH : Integer.MAX_VALUE;
+        for (WallpaperInstance inst : wallpapers.values()) {
+            inst.setDepthLimit(limit);
+        }
+    }
+
+    /**
+     * Wallpaper vừa bị tạm ngưng: trả các frame đã decode, chỉ giữ frame đang hiện của những wallpaper
+     * dùng chung partition (partition còn wallpaper đang hiện thì không đụng tới).
+     */
+    private void onSuspend(WallpaperInstance inst) {
+        String store = inst.getStoreKey();
+        for (WallpaperInstance other : wallpapers.values()) {
+            if (other.getStoreKey().equals(store) && !other.isSuspended()) return;
+        }
+        long freed = cache.retainFrames(store, frame -> {
+            for (WallpaperInstance other : wallpapers.values()) {
+                if (other.getStoreKey().equals(store) && other.getCurrentFrameKey() == frame) return true;
+            }
+            return frame == inst.getCurrentFrameKey();
+        });
+        frameStore.trim();
+        System.out.println("[LiveWallpaperAPI] '" + inst.getDescriptor().id + "' bị ẩn → tạm ngưng, trả "
+                + (freed >> 20) + " MB cache frame");
+    }
 
     @Override
     public void registerWallpaper(WallpaperDescriptor desc) {
         if (isRegistered(desc.id)) {
             throw new IllegalArgumentException("Wallpaper ID '" + desc.id + "' đã được đăng ký.");
         }
-        wallpapers.put(desc.id, new WallpaperInstance(desc, cache));
+        FrameSource source = FrameSource.open(desc, indexCacheDir);
+        if (desc.needsDetection()) {
+            desc = desc.withDetected(source.getFrameCount(), source.getWidth(), source.getHeight());
+        }
+        if (desc.mode == WallpaperMode.ANIMATION && allFramesIdentical(source, desc.frames)) {
+            System.out.println("[LiveWallpaperAPI] '" + desc.id + "': mọi frame giống nhau → chế độ STATIC");
+            desc = desc.withMode(WallpaperMode.STATIC);
+        }
+        if (source.getFrameCount() < desc.frames
+                || source.getWidth() != desc.width || source.getHeight() != desc.height) {
+            source.close();
+            throw new IllegalArgumentException("Wallpaper '" + desc.id + "': nguồn frame ("
+                    + source.getFrameCount() + " frame, " + source.getWidth() + "x" + source.getHeight()
+                    + ") không khớp với descriptor");
+        }
+
+        String storeKey = storeKeyOf(desc);
+        cache.reserve(storeKey, reservationFor(desc));
+        WallpaperInstance inst = new WallpaperInstance(desc, storeKey, source, loader, backend, prefetchDepth);
+        if (memoryMonitor.isUnderPressure()) inst.setDepthLimit(PRESSURE_PREFETCH_DEPTH);
+        if (wallpapers.putIfAbsent(desc.id, inst) != null) {
+            // Thread khác vừa đăng ký cùng ID: bỏ instance này (chưa có texture) và phần cache vừa giữ
+            inst.dispose();
+            releaseReservation(storeKey);
+            throw new IllegalArgumentException("Wallpaper ID '" + desc.id + "' đã được đăng ký.");
+        }
+    }
+
+    /** Trả phần cache giữ trước của storeKey: còn wallpaper dùng chung thì giữ theo wallpaper đó, ngược lại xoá partition */
+    private void releaseReservation(String storeKey) {
+        for (WallpaperInstance other : wallpapers.values()) {
+            if (other.getStoreKey().equals(storeKey)) {
+                cache.reserve(storeKey, reservationFor(other.getDescriptor()));
+                return;
+            }
+        }
+        cache.removePartition(storeKey);
     }
 
     @Override
@@ -39,14 +167,209 @@ public class WallpaperManager implements LiveWallpaperAPI {
         WallpaperInstance inst = wallpapers.remove(id);
         if (inst != null) {
             inst.dispose();
+            pendingDisposals.add(inst);
+            if (!isStoreShared(inst.getStoreKey())) {
+                cache.removePartition(inst.getStoreKey());
+            }
+            frameStore.trim(); // trả bộ nhớ off-heap của wallpaper vừa gỡ ngay lập tức
         }
     }
 
+    /** Mọi frame trong phạm vi phát đều quy về frame 0 */
+    private static boolean allFramesIdentical(FrameSource source, int frames) {
+        for (int i = 1; i < frames; i++) {
+            if (source.canonicalFrame(i) != 0) return false;
+        }
+        return true;
+    }
+
+    /** Wallpaper trỏ tới cùng một thư mục/file dùng chung một partition cache */
+    private static String storeKeyOf(WallpaperDescriptor desc) {
+        return desc.framesFolder.toAbsolutePath().normalize().toString();
+    }
+
+    private boolean isStoreShared(String storeKey) {
+        for (WallpaperInstance inst : wallpapers.values()) {
+            if (inst.getStoreKey().equals(storeKey)) return true;
+        }
+        return false;
+    }
+
     @Override
     public void registerWallpaper(String id, Path framesFolder, int fps, int frames, int width, int height, boolean loop) {
         registerWallpaper(new WallpaperDescriptor(id, framesFolder, fps, frames, width, height, loop));
     }
 
+    /**
+     * Đặt thư mục lưu danh sách frame của các thư mục wallpaper, để lần khởi động sau
+     * không phải quét lại thư mục chưa đổi.
+     *
+     * @param dir thư mục cache (null = không lưu)
+     */
+    public void setIndexCacheDir(Path dir) {
+        this.indexCacheDir = dir;
+    }
+
+    /**
+     * Đặt số frame decode trước cho mọi wallpaper (hiện có và đăng ký sau).
+     *
+     * @param depth số frame (>= 0)
+     */
+    public void setPrefetchDepth(int depth) {
+        this.prefetchDepth = Math.max(0, depth);
+        for (WallpaperInstance inst : wallpapers.values()) {
+            inst.setPrefetchDepth(this.prefetchDepth);
+            cache.reserve(inst.getStoreKey(), reservationFor(inst.getDescriptor()));
+        }
+    }
+
+    /**
+     * Decode trước các frame đầu của một wallpaper ở background (ví dụ lúc khởi động),
+     * để frame đầu tiên đã sẵn sàng trước lần render đầu.
+     *
+     * - Cả vòng lặp vừa một nửa budget cache → decode cả vòng, ngược lại chỉ maxFrames frame đầu.
+     * - Frame 0 được yêu cầu trước; các frame còn lại gửi dần theo sức chứa hàng đợi của FrameLoader.
+     * - Dừng khi đủ frame hoặc không có tiến triển trong WARMUP_STALL_NANOS.
+     * - Frame được làm nóng tính từ frame 0, nên wallpaper chưa được phát (hoặc chờ playOnFirstRender)
+     *   để đồng hồ không chạy qua các frame này trước lần render đầu.
+     *
+     * @param id id wallpaper
+     * @param maxFrames số frame tối đa nếu cả vòng không vừa cache
+     * @return số frame đã sẵn sàng khi xong (người gọi có thể chỉ chờ tới một giới hạn)
+     */
+    public CompletableFuture<Integer> warmUp(String id, int maxFrames) {
+        WallpaperInstance inst = wallpapers.get(id);
+        if (inst == null || maxFrames <= 0) return CompletableFuture.completedFuture(0);
+
+        WallpaperDescriptor desc = inst.getDescriptor();
+        int total = inst.isStatic() ? 1 : desc.frames;
+        int unique = 0;
+        for (int i = 0; i < total; i++) {
+            if (inst.canonicalFrame(i) == i) unique++;
+        }
+        long frameBytes = (long) desc.width * desc.height * 4;
+        int target = (unique * frameBytes <= cache.getBudgetBytes() / 2) ? total : Math.min(total, maxFrames);
+
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        Thread t = new Thread(() -> {
+            try {
+                result.complete(runWarmUp(inst, target));
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }, "LiveWallpaper-Warmup");
+        t.setDaemon(true);
+        t.start();
+        return result;
+    }
+
+    private static final long WARMUP_STALL_NANOS = 5_000_000_000L;
+
+    private int runWarmUp(WallpaperInstance inst, int target) {
+        String store = inst.getStoreKey();
+        long lastProgress = System.nanoTime();
+        int lastReady = -1;
+        while (true) {
+            int ready = 0;
+            int tier = inst.getTier();
+            for (int i = 0; i < target; i++) {
+                if (cache.hasFrame(store, inst.canonicalFrame(i), tier)) {
+                    ready++;
+                } else {
+                    inst.requestFrame(i); // bỏ qua nếu đang chờ; hàng đợi đầy thì gửi lại vòng sau
+                }
+            }
+            long now = System.nanoTime();
+            if (ready >= target || wallpapers.get(inst.getDescriptor().id) != inst) return ready;
+            if (ready > lastReady) {
+                lastReady = ready;
+                lastProgress = now;
+            } else if (now - lastProgress > WARMUP_STALL_NANOS) {
+                return ready;
+            }
+            try {
+                Thread.sleep(2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return ready;
+            }
+        }
+    }
+
+    /** Phần cache giữ trước: frame hiện tại, frame trước đó và cửa sổ prefetch (STATIC: một frame) */
+    private long reservationFor(WallpaperDescriptor desc) {
+        long frameBytes = (long) desc.width * desc.height * 4;
+        if (desc.mode == WallpaperMode.STATIC) return frameBytes;
+        return frameBytes * (prefetchDepth + 2);
+    }
+
+    /**
+     * Tiến playhead của mọi wallpaper đang phát và gửi yêu cầu decode.
+     * Nên gọi một lần mỗi frame ở render thread, trước các lệnh render();
+     * nếu không, render() sẽ tự tick khi cần (tối đa một lần mỗi nửa frame).
+     */
+    public void tick() {
+        scheduler.tick(System.nanoTime());
+    }
+
+    /**
+     * Đặt thời gian không được render trước khi wallpaper bị tạm ngưng (như setVisible(false)).
+     *
+     * @param millis số ms (0 = chỉ tạm ngưng khi setVisible(false))
+     */
+    public void setIdleSuspendMillis(long millis) {
+        scheduler.setIdleSuspendNanos(Math.max(0, millis) * 1_000_000L);
+    }
+
+    public long getIdleSuspendMillis() {
+        return scheduler.getIdleSuspendNanos() / 1_000_000L;
+    }
+
+    /**
+     * Bật/tắt tự điều chỉnh chất lượng theo ngân sách thời gian.
+     *
+     * @param enabled true để bật
+     * @param budgetMs số ms công việc (decode + convert + upload) cho mỗi frame của một wallpaper
+     */
+    public void setQualityGovernor(boolean enabled, double budgetMs) {
+        governor.setBudgetMs(budgetMs);
+        governor.setEnabled(enabled);
+    }
+
+    /**
+     * Đặt budget cache khi không có áp lực bộ nhớ (mặc định tính theo heap tối đa và RAM).
+     *
+     * @param bytes số byte
+     */
+    public void setCacheBudgetBytes(long bytes) {
+        memoryMonitor.setNormalBudgetBytes(bytes);
+    }
+
+    /**
+     * Đặt budget của tầng byte mã hoá (file ảnh giữ trong RAM để decode không cần đọc đĩa),
+     * mặc định 1/8 heap tối đa.
+     *
+     * @param bytes số byte (0 = tắt, luôn đọc từ đĩa)
+     */
+    public void setEncodedCacheBudgetBytes(long bytes) {
+        memoryMonitor.setNormalEncodedBudgetBytes(bytes);
+    }
+
+    /** Cache frame dùng chung (thống kê hit/miss/evict, dung lượng) */
+    public WallpaperCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Snapshot trạng thái phát (fps, playing, loop, vị trí) đọc nguyên khối, an toàn từ thread bất kỳ.
+     *
+     * @return null nếu chưa đăng ký
+     */
+    public PlaybackState getPlaybackState(String id) {
+        WallpaperInstance inst = wallpapers.get(id);
+        return (inst != null) ? inst.getPlaybackState() : null;
+    }
+
     @Override
     public boolean isRegistered(String id) {
         return wallpapers.containsKey(id);
@@ -58,6 +381,15 @@ public class WallpaperManager implements LiveWallpaperAPI {
         if (inst != null) inst.play();
     }
 
+    /**
+     * Phát từ lần render đầu tiên của wallpaper (xem WallpaperInstance.playOnFirstRender).
+     * Dùng cùng warmUp lúc khởi động: đồng hồ chưa chạy nên các frame đầu đã decode đúng là frame được hiện.
+     */
+    public void playOnFirstRender(String id) {
+        WallpaperInstance inst = wallpapers.get(id);
+        if (inst != null) inst.playOnFirstRender();
+    }
+
     @Override
     public void pause(String id) {
         WallpaperInstance inst = wallpapers.get(id);
@@ -76,6 +408,20 @@ public class WallpaperManager implements LiveWallpaperAPI {
         if (inst != null) inst.seek(seconds);
     }
 
+    @Override
+    public void setVisible(String id, boolean visible) {
+        WallpaperInstance inst = wallpapers.get(id);
+        if (inst == null) return;
+        inst.setVisible(visible);
+        if (!visible && inst.suspend()) onSuspend(inst);
+    }
+
+    @Override
+    public boolean isSuspended(String id) {
+        WallpaperInstance inst = wallpapers.get(id);
+        return inst != null && inst.isSuspended();
+    }
+
     @Override
     public double getPosition(String id) {
         WallpaperInstance inst = wallpapers.get(id);
@@ -100,6 +446,18 @@ public class WallpaperManager implements LiveWallpaperAPI {
         return inst != null && inst.isLoop();
     }
 
+    @Override
+    public void setLoopMode(String id, LoopMode mode) {
+        WallpaperInstance inst = wallpapers.get(id);
+        if (inst != null) inst.setLoopMode(mode);
+    }
+
+    @Override
+    public LoopMode getLoopMode(String id) {
+        WallpaperInstance inst = wallpapers.get(id);
+        return (inst != null) ? inst.getLoopMode() : LoopMode.ONCE;
+    }
+
     @Override
     public void setFPS(String id, int fps) {
         WallpaperInstance inst = wallpapers.get(id);
@@ -112,6 +470,48 @@ public class WallpaperManager implements LiveWallpaperAPI {
         return (inst != null) ? inst.getFPS() : 0;
     }
 
+    @Override
+    public void setDisplayFPS(String id, int fps) {
+        WallpaperInstance inst = wallpapers.get(id);
+        if (inst != null) inst.setDisplayFPS(fps);
+    }
+
+    @Override
+    public int getDisplayFPS(String id) {
+        WallpaperInstance inst = wallpapers.get(id);
+        return (inst != null) ? inst.getDisplayFPS() : 0;
+    }
+
+    @Override
+    public int getEffectiveFPS(String id) {
+        WallpaperInstance inst = wallpapers.get(id);
+        return (inst != null) ? inst.getEffectiveFPS() : 0;
+    }
+
+    @Override
+    public int getEffectiveTier(String id) {
+        WallpaperInstance inst = wallpapers.get(id);
+        return (inst != null) ? inst.getTier() : 0;
+    }
+
+    @Override
+    public int getEffectivePrefetchDepth(String id) {
+        WallpaperInstance inst = wallpapers.get(id);
+        return (inst != null) ? inst.getEffectivePrefetchDepth() : 0;
+    }
+
+    @Override
+    public WallpaperMode getMode(String id) {
+        WallpaperInstance inst = wallpapers.get(id);
+        return (inst != null) ? inst.getDescriptor().mode : null;
+    }
+
+    @Override
+    public long getSkippedFrames(String id) {
+        WallpaperInstance inst = wallpapers.get(id);
+        return (inst != null) ? inst.getSkippedFrames() : 0;
+    }
+
     @Override
     public void setOpacity(String id, float opacity) {
         WallpaperInstance inst = wallpapers.get(id);
@@ -126,61 +526,130 @@ public class WallpaperManager implements LiveWallpaperAPI {
 
     @Override
     public void render(String id, int x, int y, int width, int height) {
+        releasePendingTextures();
         WallpaperInstance inst = wallpapers.get(id);
         if (inst != null) {
-            inst.update(); // cập nhật frame nếu cần
-            BufferedImage frame = cache.getFrame(inst.getCurrentFramePath());
+            long now = System.nanoTime();
+            inst.markShown(now);
+            if (inst.resume()) {
+                // Vừa hiện lại: lấy vị trí theo đồng hồ và chỉ yêu cầu frame hiện tại ngay
+                inst.update(now);
+                inst.requestAhead(0);
+            }
+            if (!inst.isStatic()) {
+                scheduler.tickIfDue(now);
+            }
+            inst.requestSize(width, height);
+
+            WallpaperTexture texture = inst.getTexture();
+            int frameKey = inst.getCurrentFrameKey();
+            int tier = inst.getTier();
+            boolean newFrame = false;
+            if (!texture.holds(frameKey, tier)) {
+                // Frame đổi → upload lại, ngược lại chỉ vẽ texture đang có
+                FrameBuffer frame = cache.acquireFrame(inst.getStoreKey(), frameKey, tier);
+                inst.recordFrameReady(frameKey, frame != null);
+
+                if (frame != null) {
+                    try {
+                        long start = System.nanoTime();
+                        long bytes = texture.upload(frameKey, tier, frame);
+                        inst.getMetrics().recordUpload(System.nanoTime() - start, bytes);
+                        newFrame = true;
+                    } finally {
+                        frame.release();
+                    }
+                } else {
+                    // Chưa decode xong → vẽ frame sẵn sàng gần nhất; chỉ yêu cầu lại frame hiện tại
+                    // (phòng khi tier vừa đổi), phần còn lại do scheduler lo
+                    inst.requestAhead(0);
+                }
+            }
 
-            if (frame == null) {
-                // Nếu chưa cache → load từ file
-                frame = ImageUtils.loadImage(inst.getCurrentFramePath());
-                cache.putFrame(inst.getCurrentFramePath(), frame);
+            int nextKey = inst.getBlendFrameKey();
+            if (nextKey >= 0 && texture.holds(frameKey, tier)
+                    && renderBlend(inst, frameKey, nextKey, tier, x, y, width, height)) {
+                return;
             }
 
-            if (frame != null) {
-                drawImage(frame, x, y, width, height, inst.getOpacity());
+            if (texture.isReady()) {
+                inst.getMetrics().recordRender(newFrame);
             }
+            texture.draw(x, y, width, height, inst.getOpacity());
         }
     }
 
-    /** Vẽ BufferedImage ra màn hình bằng OpenGL */
-    private void drawImage(BufferedImage img, int x, int y, int width, int height, float opacity) {
-        int w = img.getWidth();
-        int h = img.getHeight();
-
-        int[] pixels = new int[w * h];
-        img.getRGB(0, 0, w, h, pixels, 0, w);
+    /** Trả texture của các wallpaper đã gỡ (render thread, nơi có GL context) */
+    private void releasePendingTextures() {
+        WallpaperInstance inst;
+        while ((inst = pendingDisposals.poll()) != null) {
+            inst.releaseTextures();
+        }
+    }
 
-        ByteBuffer buffer = BufferUtils.createByteBuffer(w * h * 4);
-        for (int py = 0; py < h; py++) {
-            for (int px = 0; px < w; px++) {
-                int pixel = pixels[py * w + px];
-                buffer.put((byte) ((pixel >> 16) & 0xFF)); // R
-                buffer.put((byte) ((pixel >> 8) & 0xFF));  // G
-                buffer.put((byte) (pixel & 0xFF));         // B
-                buffer.put((byte) ((pixel >> 24) & 0xFF)); // A
+    /**
+     * Vẽ frame trung gian giữa frame hiện tại (đã nằm trên texture chính) và frame kế tiếp.
+     * Backend tự trộn được thì chỉ upload frame kế tiếp lên texture thứ hai; ngược lại trộn trên CPU
+     * vào buffer dùng lại rồi upload kết quả.
+     *
+     * @return false nếu frame kế tiếp chưa decode xong hoặc không trộn được (frame nén) → vẽ frame hiện tại
+     */
+    private boolean renderBlend(WallpaperInstance inst, int frameKey, int nextKey, int tier,
+                                int x, int y, int width, int height) {
+        int weight = inst.getBlendWeight();
+        long key = WallpaperInstance.blendKey(frameKey, nextKey, weight);
+        boolean gpu = backend.supportsBlendedDraw();
+        WallpaperTexture blend = inst.getBlendTexture();
+        String store = inst.getStoreKey();
+
+        if (!blend.holds(gpu ? nextKey : key, tier)) {
+            FrameBuffer to = cache.acquireFrame(store, nextKey, tier);
+            if (to == null) {
+                inst.requestFrame(nextKey);
+                return false;
+            }
+            try {
+                long start = System.nanoTime();
+                long bytes;
+                if (gpu) {
+                    bytes = blend.upload(nextKey, tier, to);
+                } else {
+                    FrameBuffer from = cache.acquireFrame(store, frameKey, tier);
+                    if (from == null) return false;
+                    try {
+                        bytes = blend.uploadBlend(key, tier, from, to, weight);
+                    } finally {
+                        from.release();
+                    }
+                    if (bytes < 0) return false;
+                }
+                inst.getMetrics().recordUpload(System.nanoTime() - start, bytes);
+            } finally {
+                to.release();
             }
         }
-        buffer.flip();
-
-        GL11.glEnable(GL11.GL_TEXTURE_2D);
-        int textureId = GL11.glGenTextures();
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, textureId);
-
-        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_LINEAR);
-        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_LINEAR);
-
-        GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA, w, h, 0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, buffer);
 
-        GL11.glColor4f(1f, 1f, 1f, opacity);
-        GL11.glBegin(GL11.GL_QUADS);
-        GL11.glTexCoord2f(0, 0); GL11.glVertex2f(x, y);
-        GL11.glTexCoord2f(1, 0); GL11.glVertex2f(x + width, y);
-        GL11.glTexCoord2f(1, 1); GL11.glVertex2f(x + width, y + height);
-        GL11.glTexCoord2f(0, 1); GL11.glVertex2f(x, y + height);
-        GL11.glEnd();
+        inst.getMetrics().recordRender(inst.markBlendShown(key));
+        if (gpu) {
+            inst.getTexture().drawBlended(blend, weight / (float) FrameBlender.MAX_WEIGHT,
+                    x, y, width, height, inst.getOpacity());
+        } else {
+            blend.draw(x, y, width, height, inst.getOpacity());
+        }
+        return true;
+    }
 
-        GL11.glDeleteTextures(textureId);
-        GL11.glDisable(GL11.GL_TEXTURE_2D);
+    @Override
+    public MetricsSnapshot getMetrics() {
+        Map<String, WallpaperMetrics.Snapshot> perWallpaper = new TreeMap<>();
+        for (WallpaperInstance inst : wallpapers.values()) {
+            String store = inst.getStoreKey();
+            perWallpaper.put(inst.getDescriptor().id, inst.getMetrics().snapshot(cache.getHits(store),
+                    cache.getMisses(store), cache.getEvictions(store), cache.getUsedBytes(store)));
+        }
+        return new MetricsSnapshot(System.currentTimeMillis(), cache.getHits(), cache.getMisses(),
+                cache.getEvictions(), cache.getUsedBytes(), cache.getBudgetBytes(),
+                cache.getEncodedHits(), cache.getEncodedMisses(), cache.getEncodedUsedBytes(), cache.getEncodedBudgetBytes(),
+                frameStore.getAllocatedBytes(), frameStore.getPooledBytes(), perWallpaper);
     }
 }
\ No newline at end of file
@@ -0,0 +1,142 @@
+package com.livewallpaper.api.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Số liệu chạy của một wallpaper.
+ *
+ * - Ghi từ thread decode (decode, convert) và render thread (upload, frame render/lặp/bỏ qua).
+ * - Chỉ dùng LongAdder và histogram bucket cố định: không khoá, không cấp phát khi ghi.
+ */
+public class WallpaperMetrics {
+
+    private final LatencyHistogram decode = new LatencyHistogram();
+    private final LatencyHistogram convert = new LatencyHistogram();
+    private final LatencyHistogram upload = new LatencyHistogram();
+
+    private final LongAdder convertedBytes = new LongAdder();
+    private final LongAdder uploadedBytes = new LongAdder();
+
+    private final LongAdder framesRendered = new LongAdder();
+    private final LongAdder framesRepeated = new LongAdder();
+    private final LongAdder framesSkipped = new LongAdder();
+
+    private final LongAdder prefetchHits = new LongAdder();
+    private final LongAdder prefetchMisses = new LongAdder();
+
+    /** Thời gian đọc + decode ảnh của một frame (không gồm convert) */
+    public void recordDecode(long nanos) {
+        decode.record(nanos);
+    }
+
+    /** Thời gian và số byte chuyển sang RGBA của một frame */
+    public void recordConvert(long nanos, long bytes) {
+        convert.record(nanos);
+        convertedBytes.add(bytes);
+    }
+
+    /** Thời gian và số byte một lần upload texture */
+    public void recordUpload(long nanos, long bytes) {
+        upload.record(nanos);
+        uploadedBytes.add(bytes);
+    }
+
+    /**
+     * Một lần render.
+     *
+     * @param newFrame true nếu frame mới được upload, false nếu vẽ lại frame đã có trên texture
+     */
+    public void recordRender(boolean newFrame) {
+        framesRendered.increment();
+        if (!newFrame) framesRepeated.increment();
+    }
+
+    /** Số frame bị bỏ qua vì render chậm hơn FPS */
+    public void recordSkipped(long frames) {
+        framesSkipped.add(frames);
+    }
+
+    /**
+     * Frame cần hiện đã được decode sẵn (hit) hay chưa (miss, phải vẽ lại frame cũ trong lúc chờ).
+     * Mỗi frame được tính một lần.
+     */
+    public void recordPrefetch(boolean hit) {
+        (hit ? prefetchHits : prefetchMisses).increment();
+    }
+
+    public long getSkippedFrames() {
+        return framesSkipped.sum();
+    }
+
+    /** Tổng thời gian decode + convert + upload đã tiêu tốn (nano giây) */
+    public long getWorkNanos() {
+        return decode.getTotalNanos() + convert.getTotalNanos() + upload.getTotalNanos();
+    }
+
+    /**
+     * Chụp số liệu hiện tại.
+     *
+     * @param cacheHits số lần lấy frame có sẵn trong cache
+     * @param cacheMisses số lần lấy frame chưa có trong cache
+     * @param cacheEvictions số frame bị xoá khỏi cache
+     * @param residentBytes số byte frame đang nằm trong cache
+     */
+    public Snapshot snapshot(long cacheHits, long cacheMisses, long cacheEvictions, long residentBytes) {
+        return new Snapshot(this, cacheHits, cacheMisses, cacheEvictions, residentBytes);
+    }
+
+    /** Ảnh chụp bất biến số liệu của một wallpaper */
+    public static class Snapshot {
+        public final long cacheHits;
+        public final long cacheMisses;
+        public final long cacheEvictions;
+        public final long residentBytes;
+
+        public final LatencyHistogram.Snapshot decode;
+        public final LatencyHistogram.Snapshot convert;
+        public final LatencyHistogram.Snapshot upload;
+        public final long convertedBytes;
+        public final long uploadedBytes;
+
+        public final long framesRendered;
+        public final long framesRepeated;
+        public final long framesSkipped;
+
+        public final long prefetchHits;
+        public final long prefetchMisses;
+
+        Snapshot(WallpaperMetrics m, long cacheHits, long cacheMisses, long cacheEvictions, long residentBytes) {
+            this.cacheHits = cacheHits;
+            this.cacheMisses = cacheMisses;
+            this.cacheEvictions = cacheEvictions;
+            this.residentBytes = residentBytes;
+            this.decode = m.decode.snapshot();
+            this.convert = m.convert.snapshot();
+            this.upload = m.upload.snapshot();
+            this.convertedBytes = m.convertedBytes.sum();
+            this.uploadedBytes = m.uploadedBytes.sum();
+            this.framesRendered = m.framesRendered.sum();
+            this.framesRepeated = m.framesRepeated.sum();
+            this.framesSkipped = m.framesSkipped.sum();
+            this.prefetchHits = m.prefetchHits.sum();
+            this.prefetchMisses = m.prefetchMisses.sum();
+        }
+
+        /** Tỉ lệ frame đã sẵn sàng đúng lúc cần hiện (0..1) */
+        public double prefetchHitRate() {
+            long total = prefetchHits + prefetchMisses;
+            return total == 0 ? 0 : prefetchHits / (double) total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("cache hit/miss/evict=%d/%d/%d resident=%dKB | frame render/lặp/bỏ=%d/%d/%d"
+                            + " | prefetch hit/miss=%d/%d (%.1f%%)%n",
+                    cacheHits, cacheMisses, cacheEvictions, residentBytes / 1024, framesRendered, framesRepeated, framesSkipped,
+                    prefetchHits, prefetchMisses, prefetchHitRate() * 100)
+                    + "    decode  " + decode + String.format("%n")
+                    + "    convert " + convert + " (" + convertedBytes / 1024 + "KB)" + String.format("%n")
+                    + "    upload  " + upload + " (" + uploadedBytes / 1024 + "KB)";
+        }
+    }
+}
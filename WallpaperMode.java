@@ -1,5 +1,11 @@
-package your.package;
+package com.livewallpaper.api;
 
+/**
+ * Kiểu phát của wallpaper.
+ *
+ * - ANIMATION: phát theo FPS, decode trước các frame phía sau playhead.
+ * - STATIC: chỉ có một hình; decode và upload một lần, sau đó mỗi lần render chỉ vẽ lại texture.
+ */
 public enum WallpaperMode {
     ANIMATION,
     STATIC
@@ -0,0 +1,417 @@
+package com.livewallpaper.api.archive;
+
+import com.livewallpaper.api.cache.PixelFormat;
+import com.livewallpaper.api.source.FolderIndex;
+import com.livewallpaper.api.util.BcCodec;
+import com.livewallpaper.api.util.ImageUtils;
+import com.livewallpaper.api.util.PixelConverter;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.zip.Deflater;
+
+/**
+ * Công cụ dòng lệnh: đóng gói thư mục frames (tên file tuỳ ý, thứ tự tự nhiên) thành một file .lwp.
+ *
+ * Cách dùng:
+ * <pre>
+ *   java -cp ... com.livewallpaper.api.archive.WallpaperPacker &lt;thư mục frames&gt; &lt;file .lwp&gt;
+ *        [--id ID] [--fps N] [--no-loop] [--deflate | --delta [--tile N] [--keyframe N] | --bc | --bc1 | --bc3 [--threads N]]
+ * </pre>
+ *
+ * --delta lưu keyframe mỗi N frame (mặc định 30) và chỉ các tile đổi ở giữa;
+ * phù hợp với wallpaper phần lớn đứng yên.
+ * --bc nén sẵn thành khối GPU: BC1 nếu mọi frame đục hoàn toàn, ngược lại BC3 (--bc1/--bc3 để chọn cố định).
+ * Các frame được nén song song (fork/join, mặc định mọi CPU) và in thêm PSNR so với ảnh gốc.
+ * Sau khi đóng gói in ra số byte/frame và tốc độ (frame/s).
+ */
+public class WallpaperPacker {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Cách dùng: WallpaperPacker <thư mục frames> <file .lwp> [--id ID] [--fps N] [--no-loop]"
+                    + " [--deflate | --delta [--tile N] [--keyframe N] | --bc | --bc1 | --bc3 [--threads N]]");
+            System.exit(1);
+        }
+
+        Path folder = Path.of(args[0]);
+        Path output = Path.of(args[1]);
+        String id = folder.getFileName().toString();
+        int fps = 30;
+        boolean loop = true;
+        int codec = WallpaperArchive.CODEC_RAW;
+        int tileSize = DeltaCodec.DEFAULT_TILE_SIZE;
+        int keyframeInterval = DeltaCodec.DEFAULT_KEYFRAME_INTERVAL;
+        boolean blocks = false;
+        PixelFormat blockFormat = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        for (int i = 2; i < args.length; i++) {
+            switch (args[i]) {
+                case "--id": id = args[++i]; break;
+                case "--fps": fps = Integer.parseInt(args[++i]); break;
+                case "--no-loop": loop = false; break;
+                case "--deflate": codec = WallpaperArchive.CODEC_DEFLATE; break;
+                case "--delta": codec = WallpaperArchive.CODEC_DELTA; break;
+                case "--tile": tileSize = Integer.parseInt(args[++i]); break;
+                case "--keyframe": keyframeInterval = Integer.parseInt(args[++i]); break;
+                case "--bc": blocks = true; blockFormat = null; break;
+                case "--bc1": blocks = true; blockFormat = PixelFormat.BC1; break;
+                case "--bc3": blocks = true; blockFormat = PixelFormat.BC3; break;
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                default:
+                    System.err.println("Tham số không hợp lệ: " + args[i]);
+                    System.exit(1);
+            }
+        }
+
+        long start = System.nanoTime();
+        Stats stats = blocks
+                ? packBlocks(folder, output, id, fps, loop, blockFormat, Math.max(1, threads))
+                : pack(folder, output, id, fps, loop, codec, tileSize, keyframeInterval);
+        long ms = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        System.out.println("Đã đóng gói " + stats.frames + " frame → " + output
+                + " (" + Files.size(output) + " byte, " + ms + " ms, "
+                + String.format("%.1f", stats.frames * 1000.0 / ms) + " frame/s)");
+        System.out.println(stats);
+    }
+
+    /** Thống kê sau khi đóng gói */
+    public static class Stats {
+        public int frames;
+        public int keyframes;
+        public long payloadBytes;
+        public long rawBytes;
+
+        /** Codec BC1/BC3: định dạng đã dùng và sai số so với ảnh gốc (null nếu codec không mất dữ liệu) */
+        public PixelFormat blockFormat;
+        public long pixels;
+        public double colorSquaredError;
+        public double alphaSquaredError;
+        public double worstPsnr = Double.POSITIVE_INFINITY;
+        public int worstFrame = -1;
+
+        public double bytesPerFrame() {
+            return frames == 0 ? 0 : payloadBytes / (double) frames;
+        }
+
+        /** PSNR (dB) của kênh màu trên toàn bộ frame */
+        public double colorPsnr() {
+            return psnr(colorSquaredError, pixels * 3);
+        }
+
+        /** PSNR (dB) của kênh alpha trên toàn bộ frame */
+        public double alphaPsnr() {
+            return psnr(alphaSquaredError, pixels);
+        }
+
+        static double psnr(double squaredError, long samples) {
+            if (squaredError == 0 || samples == 0) return Double.POSITIVE_INFINITY;
+            return 10 * Math.log10(255.0 * 255.0 * samples / squaredError);
+        }
+
+        @Override
+        public String toString() {
+            String sizes = String.format("byte/frame: %.0f (thô: %d, %.1f%%), keyframe: %d/%d",
+                    bytesPerFrame(), frames == 0 ? 0 : rawBytes / frames,
+                    rawBytes == 0 ? 0 : 100.0 * payloadBytes / rawBytes, keyframes, frames);
+            if (blockFormat == null) return sizes;
+            return sizes + String.format("%n%s PSNR màu: %s, alpha: %s, frame tệ nhất: %d (%s)",
+                    blockFormat, db(colorPsnr()), db(alphaPsnr()), worstFrame, db(worstPsnr));
+        }
+
+        private static String db(double psnr) {
+            return Double.isInfinite(psnr) ? "∞" : String.format("%.2f dB", psnr);
+        }
+    }
+
+    /**
+     * Đóng gói thư mục frames thành archive.
+     *
+     * @param tileSize kích thước tile (chỉ dùng với CODEC_DELTA)
+     * @param keyframeInterval số frame giữa hai keyframe (chỉ dùng với CODEC_DELTA)
+     * @return thống kê số byte
+     */
+    public static Stats pack(Path folder, Path output, String id, int fps, boolean loop, int codec,
+                             int tileSize, int keyframeInterval) throws IOException {
+        FolderIndex frameIndex = FolderIndex.scan(folder);
+        int frames = frameIndex.getFrameCount();
+
+        BufferedImage first = ImageUtils.loadImage(frameIndex.getPath(0));
+        if (first == null) {
+            throw new IOException("Không thể đọc frame đầu tiên");
+        }
+        int width = first.getWidth();
+        int height = first.getHeight();
+
+        PixelConverter converter = new PixelConverter(false);
+        ByteBuffer rgba = ByteBuffer.allocate(width * height * 4);
+        ByteBuffer prev = null;
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        ByteBuffer packed = ByteBuffer.allocate(width * height * 4 + 1024);
+        Stats stats = new Stats();
+        stats.frames = frames;
+
+        try (FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = WallpaperArchive.header(id, codec, loop, fps, frames, width, height);
+            long indexPos = header.remaining();
+            out.write(header, 0);
+
+            ByteBuffer index = ByteBuffer.allocate(frames * 12);
+            long pos = indexPos + index.capacity();
+
+            for (int i = 0; i < frames; i++) {
+                BufferedImage img = (i == 0) ? first : ImageUtils.loadImage(frameIndex.getPath(i));
+                if (img == null || img.getWidth() != width || img.getHeight() != height) {
+                    throw new IOException("Frame " + i + " không đọc được hoặc khác kích thước");
+                }
+                rgba.clear();
+                converter.convert(img, rgba);
+                rgba.clear();
+
+                ByteBuffer payload = rgba;
+                if (codec == WallpaperArchive.CODEC_DEFLATE) {
+                    deflater.reset();
+                    deflater.setInput(rgba);
+                    deflater.finish();
+                    packed.clear();
+                    while (!deflater.finished()) {
+                        if (!packed.hasRemaining()) {
+                            packed = grow(packed);
+                        }
+                        deflater.deflate(packed);
+                    }
+                    payload = packed.flip();
+                } else if (codec == WallpaperArchive.CODEC_DELTA) {
+                    boolean forceKey = i % keyframeInterval == 0;
+                    payload = DeltaCodec.encode(prev != null ? prev.array() : null, rgba.array(),
+                            width, height, tileSize, forceKey, packed);
+                    if (DeltaCodec.isKeyframe(payload)) stats.keyframes++;
+                    // Đổi vai hai buffer: frame hiện tại thành frame trước của vòng sau
+                    ByteBuffer tmp = (prev != null) ? prev : ByteBuffer.allocate(rgba.capacity());
+                    prev = rgba;
+                    rgba = tmp;
+                }
+
+                int length = payload.remaining();
+                stats.payloadBytes += length;
+                stats.rawBytes += (long) width * height * 4;
+                index.putLong(pos).putInt(length);
+                while (payload.hasRemaining()) {
+                    pos += out.write(payload, pos);
+                }
+            }
+
+            index.flip();
+            while (index.hasRemaining()) {
+                indexPos += out.write(index, indexPos);
+            }
+        } finally {
+            deflater.end();
+        }
+        return stats;
+    }
+
+    /**
+     * Đóng gói thành khối nén BC1/BC3 (codec CODEC_BC1/CODEC_BC3), nén song song nhiều frame bằng fork/join.
+     *
+     * @param format BC1, BC3 hoặc null để tự chọn: bắt đầu bằng BC1 nếu frame đầu đục hoàn toàn,
+     *               gặp frame có alpha thì nén lại toàn bộ bằng BC3
+     * @param threads số thread nén
+     * @return thống kê số byte và PSNR
+     */
+    public static Stats packBlocks(Path folder, Path output, String id, int fps, boolean loop,
+                                   PixelFormat format, int threads) throws IOException {
+        if (format != null && !format.isCompressed()) {
+            throw new IllegalArgumentException("Định dạng không phải khối nén: " + format);
+        }
+        FolderIndex frameIndex = FolderIndex.scan(folder);
+        BufferedImage first = ImageUtils.loadImage(frameIndex.getPath(0));
+        if (first == null) {
+            throw new IOException("Không thể đọc frame đầu tiên");
+        }
+        int width = first.getWidth();
+        int height = first.getHeight();
+
+        PixelFormat chosen = format;
+        if (chosen == null) {
+            ByteBuffer rgba = ByteBuffer.allocate(width * height * 4);
+            new PixelConverter(false).convert(first, rgba);
+            chosen = BcCodec.hasAlpha(rgba, width, height) ? PixelFormat.BC3 : PixelFormat.BC1;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            Stats stats = writeBlocks(pool, frameIndex, output, id, fps, loop, width, height, chosen, format == null);
+            if (stats == null) {
+                System.out.println("Có frame dùng alpha → nén lại bằng BC3");
+                stats = writeBlocks(pool, frameIndex, output, id, fps, loop, width, height, PixelFormat.BC3, false);
+            }
+            return stats;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Nén và ghi từng đợt frame (vài frame mỗi thread), giữ đúng thứ tự trong file.
+     *
+     * @param stopOnAlpha dừng (trả về null) nếu gặp frame có alpha khi đang nén BC1
+     */
+    private static Stats writeBlocks(ForkJoinPool pool, FolderIndex frameIndex, Path output, String id, int fps,
+                                     boolean loop, int width, int height, PixelFormat format,
+                                     boolean stopOnAlpha) throws IOException {
+        int frames = frameIndex.getFrameCount();
+        int codec = (format == PixelFormat.BC1) ? WallpaperArchive.CODEC_BC1 : WallpaperArchive.CODEC_BC3;
+        int batch = pool.getParallelism() * 2;
+        EncodedFrame[] results = new EncodedFrame[batch];
+        Stats stats = new Stats();
+        stats.frames = frames;
+        stats.blockFormat = format;
+
+        try (FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = WallpaperArchive.header(id, codec, loop, fps, frames, width, height);
+            long indexPos = header.remaining();
+            out.write(header, 0);
+
+            ByteBuffer index = ByteBuffer.allocate(frames * 12);
+            long pos = indexPos + index.capacity();
+
+            for (int start = 0; start < frames; start += batch) {
+                int end = Math.min(frames, start + batch);
+                try {
+                    pool.invoke(new EncodeTask(frameIndex, start, end, start, width, height, format, results));
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                for (int i = start; i < end; i++) {
+                    EncodedFrame frame = results[i - start];
+                    results[i - start] = null;
+                    if (stopOnAlpha && format == PixelFormat.BC1 && frame.hasAlpha) return null;
+
+                    ByteBuffer payload = frame.blocks;
+                    int length = payload.remaining();
+                    stats.payloadBytes += length;
+                    stats.rawBytes += (long) width * height * 4;
+                    stats.pixels += (long) width * height;
+                    stats.colorSquaredError += frame.colorSquaredError;
+                    stats.alphaSquaredError += frame.alphaSquaredError;
+                    double psnr = Stats.psnr(frame.colorSquaredError, (long) width * height * 3);
+                    if (stats.worstFrame < 0 || psnr < stats.worstPsnr) {
+                        stats.worstPsnr = psnr;
+                        stats.worstFrame = i;
+                    }
+                    index.putLong(pos).putInt(length);
+                    while (payload.hasRemaining()) {
+                        pos += out.write(payload, pos);
+                    }
+                }
+            }
+
+            index.flip();
+            while (index.hasRemaining()) {
+                indexPos += out.write(index, indexPos);
+            }
+        }
+        return stats;
+    }
+
+    /** Một frame đã nén cùng sai số so với ảnh gốc */
+    private static final class EncodedFrame {
+        ByteBuffer blocks;
+        boolean hasAlpha;
+        double colorSquaredError;
+        double alphaSquaredError;
+    }
+
+    /** Nén một dải frame: chia đôi tới khi còn một frame (fork/join) */
+    private static final class EncodeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        /** RGBA gốc và RGBA giải nén lại, dùng lại trong mỗi thread */
+        private static final ThreadLocal<ByteBuffer[]> SCRATCH = new ThreadLocal<>();
+        private static final ThreadLocal<PixelConverter> CONVERTER = ThreadLocal.withInitial(() -> new PixelConverter(false));
+
+        private final FolderIndex frameIndex;
+        private final int start;
+        private final int end;
+        private final int base;
+        private final int width;
+        private final int height;
+        private final PixelFormat format;
+        private final EncodedFrame[] results;
+
+        EncodeTask(FolderIndex frameIndex, int start, int end, int base, int width, int height,
+                   PixelFormat format, EncodedFrame[] results) {
+            this.frameIndex = frameIndex;
+            this.start = start;
+            this.end = end;
+            this.base = base;
+            this.width = width;
+            this.height = height;
+            this.format = format;
+            this.results = results;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start > 1) {
+                int mid = (start + end) >>> 1;
+                invokeAll(new EncodeTask(frameIndex, start, mid, base, width, height, format, results),
+                        new EncodeTask(frameIndex, mid, end, base, width, height, format, results));
+                return;
+            }
+            BufferedImage img = ImageUtils.loadImage(frameIndex.getPath(start));
+            if (img == null || img.getWidth() != width || img.getHeight() != height) {
+                throw new UncheckedIOException(new IOException("Frame " + start + " không đọc được hoặc khác kích thước"));
+            }
+            ByteBuffer[] scratch = SCRATCH.get();
+            if (scratch == null || scratch[0].capacity() != width * height * 4) {
+                scratch = new ByteBuffer[]{ByteBuffer.allocate(width * height * 4), ByteBuffer.allocate(width * height * 4)};
+                SCRATCH.set(scratch);
+            }
+            ByteBuffer rgba = scratch[0];
+            ByteBuffer check = scratch[1];
+            CONVERTER.get().convert(img, rgba);
+
+            EncodedFrame frame = new EncodedFrame();
+            frame.hasAlpha = BcCodec.hasAlpha(rgba, width, height);
+            frame.blocks = ByteBuffer.allocate(format.byteSize(width, height));
+            BcCodec.encode(rgba, width, height, format, frame.blocks);
+            BcCodec.decode(frame.blocks, width, height, format, check);
+
+            byte[] a = rgba.array();
+            byte[] b = check.array();
+            long color = 0;
+            long alpha = 0;
+            for (int i = 0; i < width * height * 4; i += 4) {
+                for (int c = 0; c < 3; c++) {
+                    int d = (a[i + c] & 0xFF) - (b[i + c] & 0xFF);
+                    color += d * d;
+                }
+                int d = (a[i + 3] & 0xFF) - (b[i + 3] & 0xFF);
+                alpha += d * d;
+            }
+            frame.colorSquaredError = color;
+            frame.alphaSquaredError = alpha;
+            results[start - base] = frame;
+        }
+    }
+
+    private static ByteBuffer grow(ByteBuffer buf) {
+        ByteBuffer bigger = ByteBuffer.allocate(buf.capacity() * 2);
+        bigger.put(buf.flip());
+        return bigger;
+    }
+}
@@ -0,0 +1,102 @@
+package com.livewallpaper.api;
+
+import com.livewallpaper.api.cache.MemoryPressureMonitor;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * Bộ lập lịch trung tâm: mỗi tick tiến playhead của mọi wallpaper đúng một lần theo cùng
+ * một thời điểm, rồi lập kế hoạch decode chung cho tất cả.
+ *
+ * - Thứ tự yêu cầu decode: frame hiện tại của mọi wallpaper trước, sau đó lần lượt
+ *   frame thứ 1, 2, ... trong cửa sổ prefetch của từng wallpaper (xen kẽ), để một wallpaper
+ *   có cửa sổ lớn không chiếm hết hàng đợi decode.
+ * - Wallpaper bị ẩn (setVisible(false)) hoặc không được render quá idleSuspendNanos bị tạm ngưng:
+ *   không update, không prefetch, không tính vào nhịp tick; hiện lại thì tiếp tục từ vị trí theo đồng hồ.
+ *
+ * Chỉ chạy ở render thread.
+ */
+final class WallpaperScheduler {
+
+    /** Khoảng tick tối đa khi không có wallpaper nào đang phát */
+    private static final long IDLE_TICK_NANOS = 50_000_000L;
+
+    private final Collection<WallpaperInstance> instances;
+    private final QualityGovernor governor;
+    private final MemoryPressureMonitor memoryMonitor;
+
+    /** Được gọi khi một wallpaper vừa bị tạm ngưng (để trả cache) */
+    private final Consumer<WallpaperInstance> onSuspend;
+
+    /** Không được render lâu hơn chừng này thì tạm ngưng (0 = chỉ tạm ngưng khi setVisible(false)) */
+    private volatile long idleSuspendNanos;
+
+    /** Hạn tick kế tiếp (so sánh bằng hiệu để đúng cả khi nanoTime tràn; tick đầu tiên tới hạn ngay) */
+    private long nextTickDue = System.nanoTime();
+
+    WallpaperScheduler(Collection<WallpaperInstance> instances, QualityGovernor governor,
+                       MemoryPressureMonitor memoryMonitor, Consumer<WallpaperInstance> onSuspend,
+                       long idleSuspendNanos) {
+        this.instances = instances;
+        this.governor = governor;
+        this.memoryMonitor = memoryMonitor;
+        this.onSuspend = onSuspend;
+        this.idleSuspendNanos = idleSuspendNanos;
+    }
+
+    /** @param nanos 0 = không tự tạm ngưng wallpaper lâu không được render */
+    void setIdleSuspendNanos(long nanos) {
+        this.idleSuspendNanos = Math.max(0, nanos);
+    }
+
+    long getIdleSuspendNanos() {
+        return idleSuspendNanos;
+    }
+
+    /**
+     * Chạy một tick.
+     *
+     * @param now System.nanoTime()
+     */
+    void tick(long now) {
+        memoryMonitor.poll(now);
+        long minFrameNanos = IDLE_TICK_NANOS;
+        int maxDepth = 0;
+        long idle = idleSuspendNanos;
+        for (WallpaperInstance inst : instances) {
+            if (!inst.isVisible() || inst.isIdle(now, idle)) {
+                if (inst.suspend()) onSuspend.accept(inst);
+                continue;
+            }
+            inst.resume();
+            inst.update(now);
+            governor.evaluate(inst, now);
+            if (inst.isAnimating()) {
+                minFrameNanos = Math.min(minFrameNanos, inst.getFrameNanos());
+            }
+            maxDepth = Math.max(maxDepth, inst.getEffectivePrefetchDepth());
+        }
+
+        for (int k = 0; k <= maxDepth; k++) {
+            for (WallpaperInstance inst : instances) {
+                if (!inst.isSuspended()) inst.requestAhead(k);
+            }
+        }
+
+        // Tick kế tiếp chỉ cần sau nửa frame ngắn nhất; gọi sớm hơn sẽ không đổi gì
+        nextTickDue = now + minFrameNanos / 2;
+    }
+
+    /**
+     * Tick nếu đã tới hạn. Dùng khi không ai gọi tick() mỗi frame: các lần render
+     * trong cùng một frame chỉ gây ra một tick.
+     *
+     * @return true nếu đã tick
+     */
+    boolean tickIfDue(long now) {
+        if (now - nextTickDue < 0) return false;
+        tick(now);
+        return true;
+    }
+}
@@ -0,0 +1,186 @@
+package com.livewallpaper.api.render;
+
+import com.livewallpaper.api.cache.FrameBuffer;
+import com.livewallpaper.api.cache.FrameDelta;
+import com.livewallpaper.api.cache.PixelFormat;
+import com.livewallpaper.api.util.BcCodec;
+import com.livewallpaper.api.util.FrameBlender;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Texture sống lâu của một wallpaper.
+ *
+ * - Chỉ cấp phát khi lần đầu upload hoặc khi kích thước frame thay đổi.
+ * - Nhớ frame nào đang nằm trên GPU để bỏ qua upload khi frame không đổi.
+ * - Nếu frame mới chỉ khác frame đang nằm trên GPU ở vài tile thì chỉ upload các tile đó.
+ * - Frame nén BC1/BC3 được upload nguyên khối nếu backend hỗ trợ, ngược lại giải nén về RGBA trước.
+ * - Frame trung gian (trộn hai frame nguồn) được trộn vào một buffer tạm dùng lại rồi upload như frame thường,
+ *   hoặc trộn ngay lúc vẽ nếu backend hỗ trợ (drawBlended).
+ */
+public class WallpaperTexture {
+
+    /** Chưa có frame nào trên GPU */
+    public static final long NO_FRAME = -1;
+
+    private final RenderBackend backend;
+
+    private int textureId = 0;
+    private int width;
+    private int height;
+    private PixelFormat format = PixelFormat.RGBA;
+    private long uploadedFrame = NO_FRAME;
+    private int uploadedTier;
+
+    /** RGBA tạm khi phải giải nén khối trên CPU (backend không hỗ trợ S3TC) */
+    private ByteBuffer decoded;
+
+    /** RGBA tạm của frame trung gian trộn trên CPU */
+    private ByteBuffer blended;
+
+    public WallpaperTexture(RenderBackend backend) {
+        this.backend = backend;
+    }
+
+    /** Frame này (ở tier này) đã nằm trên GPU chưa */
+    public boolean holds(long frameKey, int tier) {
+        return textureId != 0 && uploadedFrame == frameKey && uploadedTier == tier;
+    }
+
+    /** Đã có frame nào để vẽ chưa */
+    public boolean isReady() {
+        return textureId != 0 && uploadedFrame != NO_FRAME;
+    }
+
+    /**
+     * Upload frame lên texture: chỉ các tile đổi nếu texture đang giữ đúng frame gốc của delta,
+     * ngược lại upload toàn bộ.
+     *
+     * @param frameKey khoá của frame (thường là index frame)
+     * @param tier bậc độ phân giải của frame
+     * @param frame frame RGBA
+     * @return số byte đã upload
+     */
+    public long upload(long frameKey, int tier, FrameBuffer frame) {
+        PixelFormat frameFormat = frame.getFormat();
+        if (frameFormat.isCompressed()) {
+            int w = frame.getWidth();
+            int h = frame.getHeight();
+            if (backend.supportsFormat(frameFormat)) {
+                ensureTexture(w, h, frameFormat);
+                ByteBuffer blocks = frame.pixels();
+                long bytes = blocks.remaining();
+                backend.updateCompressedTexture(textureId, w, h, frameFormat, blocks);
+                uploadedFrame = frameKey;
+                uploadedTier = tier;
+                return bytes;
+            }
+            if (decoded == null || decoded.capacity() < w * h * 4) {
+                decoded = ByteBuffer.allocateDirect(w * h * 4);
+            }
+            ByteBuffer rgba = decoded.duplicate().clear().limit(w * h * 4);
+            BcCodec.decode(frame.pixels(), w, h, frameFormat, rgba);
+            return upload(frameKey, tier, rgba, w, h);
+        }
+
+        FrameDelta delta = frame.getDelta();
+        if (delta != null && holds(delta.baseFrame, tier) && format == PixelFormat.RGBA
+                && frame.getWidth() == width && frame.getHeight() == height) {
+            long bytes = 0;
+            for (int i = 0; i < delta.getTileCount(); i++) {
+                bytes += delta.getData(i).remaining();
+            }
+            backend.updateTextureTiles(textureId, delta);
+            uploadedFrame = frameKey;
+            return bytes;
+        }
+        return upload(frameKey, tier, frame.pixels(), frame.getWidth(), frame.getHeight());
+    }
+
+    /**
+     * Upload toàn bộ frame lên texture (cấp phát lại nếu khác kích thước).
+     *
+     * @param frameKey khoá của frame (thường là index frame)
+     * @param tier bậc độ phân giải của frame
+     * @param rgba dữ liệu RGBA (width * height * 4 byte)
+     * @param width chiều rộng frame
+     * @param height chiều cao frame
+     * @return số byte đã upload
+     */
+    public long upload(long frameKey, int tier, ByteBuffer rgba, int width, int height) {
+        ensureTexture(width, height, PixelFormat.RGBA);
+        long bytes = rgba.remaining();
+        backend.updateTexture(textureId, 0, 0, width, height, rgba);
+        uploadedFrame = frameKey;
+        uploadedTier = tier;
+        return bytes;
+    }
+
+    /**
+     * Trộn hai frame RGBA trên CPU rồi upload kết quả.
+     *
+     * @param frameKey khoá của frame trung gian (phải khác khoá của mọi frame nguồn)
+     * @param tier bậc độ phân giải của hai frame
+     * @param from frame ở weight = 0
+     * @param to frame ở weight = FrameBlender.MAX_WEIGHT
+     * @param weight 0..FrameBlender.MAX_WEIGHT
+     * @return số byte đã upload, -1 nếu không trộn được (frame nén hoặc khác kích thước)
+     */
+    public long uploadBlend(long frameKey, int tier, FrameBuffer from, FrameBuffer to, int weight) {
+        int w = from.getWidth();
+        int h = from.getHeight();
+        if (from.getFormat().isCompressed() || to.getFormat().isCompressed()
+                || to.getWidth() != w || to.getHeight() != h) {
+            return -1;
+        }
+        if (blended == null || blended.capacity() < w * h * 4) {
+            blended = ByteBuffer.allocateDirect(w * h * 4);
+        }
+        ByteBuffer rgba = blended.duplicate().clear().limit(w * h * 4);
+        FrameBlender.crossFade(from.pixels(), to.pixels(), weight, rgba);
+        return upload(frameKey, tier, rgba, w, h);
+    }
+
+    /** Cấp phát lại texture nếu kích thước hoặc định dạng khác texture hiện có */
+    private void ensureTexture(int width, int height, PixelFormat format) {
+        if (textureId != 0 && width == this.width && height == this.height && format == this.format) return;
+        if (textureId != 0) {
+            backend.deleteTexture(textureId);
+        }
+        textureId = backend.createTexture(width, height, format);
+        this.width = width;
+        this.height = height;
+        this.format = format;
+        uploadedFrame = NO_FRAME;
+    }
+
+    /** Vẽ frame đang nằm trên GPU */
+    public void draw(int x, int y, int width, int height, float opacity) {
+        if (!isReady()) return;
+        backend.drawTexture(textureId, x, y, width, height, opacity);
+    }
+
+    /**
+     * Vẽ trộn frame đang nằm trên texture này với frame của texture to (backend phải supportsBlendedDraw).
+     *
+     * @param weight 0..1, phần của frame to
+     */
+    public void drawBlended(WallpaperTexture to, float weight, int x, int y, int width, int height, float opacity) {
+        if (!isReady()) return;
+        if (!to.isReady()) {
+            draw(x, y, width, height, opacity);
+            return;
+        }
+        backend.drawBlended(textureId, to.textureId, weight, x, y, width, height, opacity);
+    }
+
+    /** Giải phóng texture (chỉ render thread, như upload/draw) */
+    public void release() {
+        if (textureId != 0) {
+            backend.deleteTexture(textureId);
+            textureId = 0;
+        }
+        uploadedFrame = NO_FRAME;
+        blended = null;
+    }
+}
@@ -0,0 +1,58 @@
+package com.livewallpaper.api.bench;
+
+import com.livewallpaper.api.cache.PixelFormat;
+import com.livewallpaper.api.util.BcCodec;
+import com.livewallpaper.api.util.PixelConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Nén/giải nén khối BC1/BC3, một frame mỗi thao tác.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BcCodecBenchmark {
+
+    @Param({"720", "1080", "2160"})
+    public int height;
+
+    @Param({"BC1", "BC3"})
+    public PixelFormat format;
+
+    private int width;
+    private ByteBuffer rgba;
+    private ByteBuffer blocks;
+
+    @Setup
+    public void setUp() {
+        width = height * 16 / 9;
+        BufferedImage image = SyntheticFrames.image(width, height, 0, 1, BufferedImage.TYPE_INT_ARGB);
+        rgba = ByteBuffer.allocateDirect(width * height * 4);
+        new PixelConverter(false).convert(image, rgba);
+        blocks = ByteBuffer.allocateDirect(format.byteSize(width, height));
+        BcCodec.encode(rgba, width, height, format, blocks);
+    }
+
+    @Benchmark
+    public ByteBuffer encode() {
+        BcCodec.encode(rgba, width, height, format, blocks);
+        return blocks;
+    }
+
+    @Benchmark
+    public ByteBuffer decode() {
+        BcCodec.decode(blocks, width, height, format, rgba);
+        return rgba;
+    }
+}
@@ -0,0 +1,73 @@
+package com.livewallpaper.api.bench;
+
+import com.livewallpaper.api.cache.FrameBuffer;
+import com.livewallpaper.api.cache.WallpaperCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WallpaperCache get/put/evict: budget chỉ vừa nửa số frame nên put liên tục gây evict.
+ * Mọi frame dùng chung một vùng nhớ (wrap) để chỉ đo phần quản lý của cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CacheBenchmark {
+
+    private static final String OWNER = "bench";
+    private static final int FRAMES = 64;
+
+    @Param({"720", "1080", "2160"})
+    public int height;
+
+    private int width;
+    private ByteBuffer shared;
+    private WallpaperCache cache;
+
+    @Setup
+    public void setUp() {
+        width = height * 16 / 9;
+        int frameBytes = width * height * 4;
+        shared = ByteBuffer.allocateDirect(frameBytes);
+        cache = new WallpaperCache((long) frameBytes * FRAMES / 2);
+        cache.reserve(OWNER, 0);
+    }
+
+    @TearDown
+    public void tearDown() {
+        cache.clear();
+    }
+
+    @Benchmark
+    public void getPutEvict() {
+        getOrPut();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void getPutEvictConcurrent() {
+        getOrPut();
+    }
+
+    private void getOrPut() {
+        int frame = ThreadLocalRandom.current().nextInt(FRAMES);
+        FrameBuffer hit = cache.acquireFrame(OWNER, frame, 0);
+        if (hit != null) {
+            hit.release();
+        } else {
+            cache.putFrame(OWNER, frame, 0, FrameBuffer.wrap(shared.duplicate(), width, height));
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.livewallpaper.api.bench;
+
+import com.livewallpaper.api.util.ImageUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ImageUtils.loadImage (đọc file + decode PNG/JPEG) trên bộ frame tổng hợp, lần lượt từng frame.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ImageLoadBenchmark {
+
+    private static final int FRAMES = 8;
+
+    @Param({"720", "1080", "2160"})
+    public int height;
+
+    @Param({"png", "jpg"})
+    public String format;
+
+    private Path dir;
+    private Path[] paths;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("lwp-bench-load-");
+        SyntheticFrames.write(dir, format, height * 16 / 9, height, FRAMES);
+        paths = new Path[FRAMES];
+        for (int i = 0; i < FRAMES; i++) {
+            paths[i] = SyntheticFrames.path(dir, format, i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        SyntheticFrames.deleteRecursively(dir);
+    }
+
+    @Benchmark
+    public BufferedImage loadImage() {
+        next = (next + 1) % FRAMES;
+        return ImageUtils.loadImage(paths[next]);
+    }
+}
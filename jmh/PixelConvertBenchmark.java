@@ -0,0 +1,88 @@
+package com.livewallpaper.api.bench;
+
+import com.livewallpaper.api.util.PixelConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chuyển ảnh sang RGBA: PixelConverter (đọc thẳng DataBuffer, buffer đích dùng lại) so với vòng lặp cũ
+ * của WallpaperManager.drawImage (getRGB vào int[] mới, buffer direct mới, 4 lần put từng byte mỗi pixel).
+ * Chạy với -prof gc để thấy cả phần cấp phát mà vòng lặp cũ gây ra mỗi frame.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PixelConvertBenchmark {
+
+    @Param({"720", "1080", "2160"})
+    public int height;
+
+    @Param({"INT_ARGB", "4BYTE_ABGR", "3BYTE_BGR"})
+    public String imageType;
+
+    private BufferedImage image;
+    private PixelConverter converter;
+    private ByteBuffer rgba;
+
+    @Setup
+    public void setUp() {
+        int width = height * 16 / 9;
+        BufferedImage argb = SyntheticFrames.image(width, height, 0, 1, BufferedImage.TYPE_INT_ARGB);
+        image = new BufferedImage(width, height, type(imageType));
+        Graphics2D g = image.createGraphics();
+        g.drawImage(argb, 0, 0, null);
+        g.dispose();
+        converter = new PixelConverter(false);
+        rgba = ByteBuffer.allocateDirect(width * height * 4);
+    }
+
+    @Benchmark
+    public ByteBuffer converter() {
+        converter.convert(image, rgba);
+        return rgba;
+    }
+
+    /** Vòng lặp trước khi có PixelConverter (giữ nguyên để so sánh) */
+    @Benchmark
+    public ByteBuffer legacyLoop() {
+        int w = image.getWidth();
+        int h = image.getHeight();
+
+        int[] pixels = new int[w * h];
+        image.getRGB(0, 0, w, h, pixels, 0, w);
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(w * h * 4).order(ByteOrder.nativeOrder());
+        for (int py = 0; py < h; py++) {
+            for (int px = 0; px < w; px++) {
+                int pixel = pixels[py * w + px];
+                buffer.put((byte) ((pixel >> 16) & 0xFF)); // R
+                buffer.put((byte) ((pixel >> 8) & 0xFF));  // G
+                buffer.put((byte) (pixel & 0xFF));         // B
+                buffer.put((byte) ((pixel >> 24) & 0xFF)); // A
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static int type(String name) {
+        switch (name) {
+            case "INT_ARGB": return BufferedImage.TYPE_INT_ARGB;
+            case "4BYTE_ABGR": return BufferedImage.TYPE_4BYTE_ABGR;
+            case "3BYTE_BGR": return BufferedImage.TYPE_3BYTE_BGR;
+            default: throw new IllegalArgumentException("Kiểu ảnh không hỗ trợ: " + name);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.livewallpaper.api.bench;
+
+import com.livewallpaper.api.LoopMode;
+import com.livewallpaper.api.WallpaperDescriptor;
+import com.livewallpaper.api.WallpaperManager;
+import com.livewallpaper.api.WallpaperMode;
+import com.livewallpaper.api.metrics.WallpaperMetrics;
+import com.livewallpaper.api.render.RecordingRenderBackend;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Công cụ dòng lệnh: đo playback thời gian thực trên bộ frame tổng hợp, không cần GPU.
+ * Các đường nóng đo từng thao tác (loadImage, chuyển pixel, BC1/BC3, cache, tick) nằm ở các benchmark JMH cùng package.
+ *
+ * Cách dùng:
+ * <pre>
+ *   ./gradlew playbackScenarios -Pargs="--seconds 2 --sizes 720,1080"
+ * </pre>
+ *
+ * Đo tỉ lệ prefetch hit khi render 60 lần/giây (LOOP, PING_PONG, tua khi đang dừng), và so sánh
+ * wallpaper 15 FPS hiển thị 60 FPS bằng trộn frame (CPU và backend tự trộn) với chuỗi 60 FPS đủ frame.
+ */
+public class PlaybackScenarios {
+
+    private static final int FRAMES = 8;
+
+    private static double seconds = 2.0;
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = {720, 1080, 2160};
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--seconds": seconds = Double.parseDouble(args[++i]); break;
+                case "--sizes": sizes = parseSizes(args[++i]); break;
+                default:
+                    System.err.println("Tham số không hợp lệ: " + args[i]);
+                    System.exit(1);
+            }
+        }
+
+        for (int height : sizes) {
+            int width = height * 16 / 9;
+            Path dir = Files.createTempDirectory("lwp-bench-");
+            try {
+                String suffix = " " + height + "p";
+                Path png = dir.resolve("png");
+                SyntheticFrames.write(png, "png", width, height, FRAMES);
+                System.out.printf("%-34s %14s %14s%n", "prefetch" + suffix, "hit", "hit/cần");
+                benchPrefetch(suffix, png, width, height);
+                benchBlend(suffix, dir, width, height);
+            } finally {
+                SyntheticFrames.deleteRecursively(dir);
+            }
+        }
+    }
+
+    /**
+     * Tỉ lệ frame đã decode sẵn đúng lúc cần hiện, render 60 lần/giây một wallpaper 30 FPS.
+     * Cache chỉ vừa cửa sổ prefetch, để hit đến từ prefetch chứ không phải vì cả vòng đã nằm sẵn trong cache.
+     */
+    private static void benchPrefetch(String suffix, Path folder, int width, int height) throws Exception {
+        for (LoopMode mode : new LoopMode[]{LoopMode.LOOP, LoopMode.PING_PONG}) {
+            reportHitRate("prefetch " + mode + suffix, renderFor(folder, width, height, mode, false));
+        }
+        reportHitRate("prefetch seek (dừng)" + suffix, renderFor(folder, width, height, LoopMode.LOOP, true));
+    }
+
+    /** @param scrub đang dừng, cứ 100 ms tua tới frame bên cạnh (như kéo thanh thời gian) */
+    private static WallpaperMetrics.Snapshot renderFor(Path folder, int width, int height, LoopMode mode, boolean scrub) {
+        WallpaperManager manager = new WallpaperManager(new RecordingRenderBackend());
+        manager.setCacheBudgetBytes((long) width * height * 4 * (WallpaperManager.DEFAULT_PREFETCH_DEPTH + 2));
+        manager.registerWallpaper(new WallpaperDescriptor("bench", folder, 30, FRAMES, width, height, mode,
+                WallpaperMode.ANIMATION));
+        try {
+            if (!scrub) manager.play("bench");
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long limit = (long) (seconds * 1_000_000_000L);
+            long start = System.nanoTime();
+            long nextSeek = start;
+            int frame = 0;
+            while (System.nanoTime() - start < limit) {
+                if (scrub && System.nanoTime() - nextSeek >= 0) {
+                    frame = Math.floorMod(frame + (random.nextBoolean() ? 1 : -1), FRAMES);
+                    manager.seek("bench", frame / 30.0);
+                    nextSeek += 100_000_000L;
+                }
+                manager.render("bench", 0, 0, width, height);
+                LockSupport.parkNanos(1_000_000_000L / 60);
+            }
+            return manager.getMetrics().wallpapers.get("bench");
+        } finally {
+            manager.unregisterWallpaper("bench");
+        }
+    }
+
+    /**
+     * Cùng một chuyển động dài FRAMES / 15 giây: nguồn 15 FPS hiển thị 60 FPS (trộn frame) so với 60 FPS đủ frame.
+     * Cache chỉ vừa cửa sổ prefetch như benchPrefetch, nên số decode mỗi giây là chi phí lúc chạy ổn định;
+     * "vòng MB" là RAM cần để giữ cả vòng trong cache, "đĩa MB" là dung lượng file.
+     */
+    private static void benchBlend(String suffix, Path dir, int width, int height) throws Exception {
+        int ratio = 4;
+        Path low = dir.resolve("blend-15");
+        Path full = dir.resolve("blend-60");
+        SyntheticFrames.write(low, "png", width, height, FRAMES);
+        SyntheticFrames.write(full, "png", width, height, FRAMES * ratio);
+
+        System.out.printf("%-34s %9s %9s %9s %9s %9s %9s%n", "frame trộn" + suffix,
+                "decode/s", "upload/s", "ms việc/s", "frame/s", "đĩa MB", "vòng MB");
+        reportBlend("60 FPS đủ frame" + suffix, full, FRAMES * ratio, width, height,
+                renderBlendFor(full, FRAMES * ratio, 60, 0, width, height, false));
+        reportBlend("15→60 trộn CPU" + suffix, low, FRAMES, width, height,
+                renderBlendFor(low, FRAMES, 15, 60, width, height, false));
+        reportBlend("15→60 backend trộn" + suffix, low, FRAMES, width, height,
+                renderBlendFor(low, FRAMES, 15, 60, width, height, true));
+    }
+
+    /** Render 60 lần/giây trong thời gian đo, trả về số liệu của wallpaper */
+    private static WallpaperMetrics.Snapshot renderBlendFor(Path folder, int frames, int fps, int displayFps,
+                                                            int width, int height, boolean blendedDraw) {
+        WallpaperManager manager = new WallpaperManager(new RecordingRenderBackend(true, blendedDraw));
+        manager.setCacheBudgetBytes((long) width * height * 4 * (WallpaperManager.DEFAULT_PREFETCH_DEPTH + 2));
+        manager.registerWallpaper("bench", folder, fps, frames, width, height, true);
+        manager.setDisplayFPS("bench", displayFps);
+        try {
+            manager.play("bench");
+            long limit = (long) (seconds * 1_000_000_000L);
+            long start = System.nanoTime();
+            while (System.nanoTime() - start < limit) {
+                manager.render("bench", 0, 0, width, height);
+                LockSupport.parkNanos(1_000_000_000L / 60);
+            }
+            return manager.getMetrics().wallpapers.get("bench");
+        } finally {
+            manager.unregisterWallpaper("bench");
+        }
+    }
+
+    private static void reportBlend(String name, Path folder, int frames, int width, int height,
+                                    WallpaperMetrics.Snapshot m) throws IOException {
+        long diskBytes;
+        try (Stream<Path> files = Files.list(folder)) {
+            diskBytes = files.mapToLong(p -> p.toFile().length()).sum();
+        }
+        double workMs = (m.decode.meanMs * m.decode.count + m.convert.meanMs * m.convert.count
+                + m.upload.meanMs * m.upload.count);
+        System.out.printf("%-34s %9.1f %8.1fM %9.1f %9.1f %9.1f %9.1f%n", name,
+                m.decode.count / seconds, m.uploadedBytes / seconds / (1 << 20), workMs / seconds,
+                (m.framesRendered - m.framesRepeated) / seconds, diskBytes / (double) (1 << 20),
+                (long) width * height * 4 * frames / (double) (1 << 20));
+    }
+
+    private static void reportHitRate(String name, WallpaperMetrics.Snapshot m) {
+        System.out.printf("%-34s %13.1f%% %14s%n", name, m.prefetchHitRate() * 100,
+                m.prefetchHits + "/" + (m.prefetchHits + m.prefetchMisses));
+    }
+
+    private static int[] parseSizes(String list) {
+        String[] parts = list.split(",");
+        int[] sizes = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            sizes[i] = Integer.parseInt(parts[i].trim());
+        }
+        return sizes;
+    }
+}
@@ -0,0 +1,65 @@
+package com.livewallpaper.api.bench;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+/**
+ * Bộ frame tổng hợp cho benchmark: dải màu chuyển động + nhiễu nhẹ để PNG/JPEG không nén quá dễ.
+ */
+final class SyntheticFrames {
+
+    /** Quãng chuyển động (pixel) mà cả bộ frame đi hết, dù có bao nhiêu frame */
+    private static final int MOTION = 64;
+
+    private SyntheticFrames() {
+    }
+
+    /** Ảnh ARGB của frame thứ index trong bộ frames frame */
+    static BufferedImage image(int width, int height, int index, int frames, int type) {
+        int shift = index * MOTION / frames;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        BufferedImage img = new BufferedImage(width, height, type);
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int r = (x + shift) & 0xFF;
+                int g = (y + shift / 2) & 0xFF;
+                int b = ((x ^ y) + random.nextInt(8)) & 0xFF;
+                row[x] = 0xFF000000 | (r << 16) | (g << 8) | b;
+            }
+            img.setRGB(0, y, width, 1, row, 0, width);
+        }
+        return img;
+    }
+
+    /**
+     * Ghi bộ frame frame_0000.&lt;format&gt;... vào dir (tạo thư mục nếu chưa có).
+     * Nhiều frame hơn thì mỗi frame đi ít hơn, cả bộ luôn là cùng một chuyển động.
+     */
+    static void write(Path dir, String format, int width, int height, int frames) throws IOException {
+        Files.createDirectories(dir);
+        int type = format.equals("png") ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        for (int f = 0; f < frames; f++) {
+            ImageIO.write(image(width, height, f, frames, type), format, path(dir, format, f).toFile());
+        }
+    }
+
+    static Path path(Path dir, String format, int index) {
+        return dir.resolve(String.format("frame_%04d.%s", index, format));
+    }
+
+    static void deleteRecursively(Path dir) throws IOException {
+        if (dir == null) return;
+        try (Stream<Path> walk = Files.walk(dir)) {
+            for (Path p : (Iterable<Path>) walk.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+}
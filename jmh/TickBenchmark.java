@@ -0,0 +1,59 @@
+package com.livewallpaper.api.bench;
+
+import com.livewallpaper.api.WallpaperManager;
+import com.livewallpaper.api.render.RecordingRenderBackend;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Một tick của WallpaperManager (WallpaperInstance.update + lập kế hoạch decode) với một wallpaper 60 FPS đang phát.
+ * Bản thân tick không cấp phát; gc.alloc.rate.norm tính cả thread decode nên chỉ ≈ 0 khi cả vòng đã nằm trong cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TickBenchmark {
+
+    private static final String ID = "bench";
+    private static final int FRAMES = 8;
+
+    @Param({"720", "1080", "2160"})
+    public int height;
+
+    private Path dir;
+    private WallpaperManager manager;
+
+    @Setup
+    public void setUp() throws IOException {
+        int width = height * 16 / 9;
+        dir = Files.createTempDirectory("lwp-bench-tick-");
+        SyntheticFrames.write(dir, "png", width, height, FRAMES);
+        manager = new WallpaperManager(new RecordingRenderBackend());
+        manager.setIdleSuspendMillis(0); // chỉ tick, không render: không để wallpaper bị coi là ẩn
+        manager.registerWallpaper(ID, dir, 60, FRAMES, width, height, true);
+        manager.play(ID);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        manager.unregisterWallpaper(ID);
+        SyntheticFrames.deleteRecursively(dir);
+    }
+
+    @Benchmark
+    public void tick() {
+        manager.tick();
+    }
+}
@@ -0,0 +1,154 @@
+package com.livewallpaper.api.util;
+
+import com.livewallpaper.api.TestFrames;
+import com.livewallpaper.api.archive.WallpaperArchive;
+import com.livewallpaper.api.archive.WallpaperPacker;
+import com.livewallpaper.api.cache.PixelFormat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Nén khối BC1/BC3, không cần GPU.
+ *
+ * - Khối một màu (màu biểu diễn được bằng RGB565) giải nén đúng từng byte, cả BC1 lẫn BC3.
+ * - BC3 giữ nguyên hai đầu mút alpha (max/min của khối).
+ * - BC1 luôn ghi c0 > c1 (chế độ 4 màu): không pixel nào bị giải nén thành đen trong suốt.
+ * - PSNR của gradient tổng hợp không thấp hơn ngưỡng.
+ * - packBlocks tự chọn BC1 khi frame đầu đục, gặp frame có alpha thì nén lại toàn bộ bằng BC3.
+ */
+class BcCodecTest {
+
+    /** PSNR tối thiểu (dB) của BC1 trên gradient trơn */
+    private static final double GRADIENT_PSNR_FLOOR = 35;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void solidBlockDecodesExactly() {
+        // (r5, g6, b5) = (31, 32, 1) → (255, 130, 8) sau khi mở rộng
+        for (PixelFormat format : new PixelFormat[]{PixelFormat.BC1, PixelFormat.BC3}) {
+            int alpha = format == PixelFormat.BC3 ? 200 : 255;
+            ByteBuffer rgba = fill(6, 5, (x, y) -> new int[]{255, 130, 8, alpha});
+            assertArrayEquals(bytes(rgba), bytes(roundTrip(rgba, 6, 5, format)), format + " khối một màu");
+        }
+    }
+
+    @Test
+    void bc3KeepsAlphaEndpoints() {
+        ByteBuffer rgba = fill(4, 4, (x, y) -> new int[]{90, 90, 90, 17 + (y * 4 + x) * 14});
+        ByteBuffer blocks = encode(rgba, 4, 4, PixelFormat.BC3);
+        assertEquals(17 + 15 * 14, blocks.get(0) & 0xFF, "a0 = max");
+        assertEquals(17, blocks.get(1) & 0xFF, "a1 = min");
+
+        ByteBuffer decoded = decode(blocks, 4, 4, PixelFormat.BC3);
+        assertAll("alpha hai đầu mút",
+                () -> assertEquals(17, decoded.get(3) & 0xFF, "pixel alpha nhỏ nhất"),
+                () -> assertEquals(17 + 15 * 14, decoded.get(15 * 4 + 3) & 0xFF, "pixel alpha lớn nhất"));
+    }
+
+    @Test
+    void bc1UsesFourColorMode() {
+        Random random = new Random(42);
+        for (int n = 0; n < 200; n++) {
+            int[][] colors = new int[16][];
+            for (int i = 0; i < 16; i++) {
+                colors[i] = new int[]{random.nextInt(256), random.nextInt(256), random.nextInt(256), 255};
+            }
+            ByteBuffer rgba = fill(4, 4, (x, y) -> colors[y * 4 + x]);
+            ByteBuffer blocks = encode(rgba, 4, 4, PixelFormat.BC1);
+            int c0 = blocks.getShort(0) & 0xFFFF;
+            int c1 = blocks.getShort(2) & 0xFFFF;
+            assertTrue(c0 > c1, "khối " + n + ": c0 = " + c0 + " ≤ c1 = " + c1);
+            ByteBuffer decoded = decode(blocks, 4, 4, PixelFormat.BC1);
+            for (int p = 0; p < 16; p++) {
+                assertEquals(255, decoded.get(p * 4 + 3) & 0xFF, "khối " + n + " pixel " + p + " bị trong suốt");
+            }
+        }
+    }
+
+    @Test
+    void gradientPsnrAboveFloor() {
+        int width = 64;
+        int height = 48;
+        ByteBuffer rgba = fill(width, height, (x, y) -> new int[]{x * 4, y * 5, (x + y) * 2, 255});
+        ByteBuffer decoded = roundTrip(rgba, width, height, PixelFormat.BC1);
+        double squaredError = 0;
+        for (int i = 0; i < width * height * 4; i++) {
+            if (i % 4 == 3) continue;
+            int d = (rgba.get(i) & 0xFF) - (decoded.get(i) & 0xFF);
+            squaredError += d * d;
+        }
+        double psnr = 10 * Math.log10(255.0 * 255.0 * width * height * 3 / squaredError);
+        assertTrue(psnr >= GRADIENT_PSNR_FLOOR, String.format("PSNR gradient %.2f dB", psnr));
+    }
+
+    @Test
+    void packBlocksFallsBackToBc3OnAlphaFrame() throws IOException {
+        // Frame 0, 1 đục, frame 2 có alpha
+        Path folder = TestFrames.write(dir.resolve("frames"), 3, 8, 8,
+                (f, x, y) -> (f == 2 && x < 4 ? 0x80 : 0xFF) << 24 | x * 30 << 16 | y * 30 << 8 | f * 60);
+        Path output = dir.resolve("blocks" + WallpaperArchive.EXTENSION);
+        WallpaperPacker.Stats stats = WallpaperPacker.packBlocks(folder, output, "blocks", 30, true, null, 2);
+        assertEquals(PixelFormat.BC3, stats.blockFormat);
+        assertEquals(3, stats.frames);
+
+        WallpaperArchive archive = WallpaperArchive.open(output);
+        try {
+            assertAll("archive",
+                    () -> assertEquals(WallpaperArchive.CODEC_BC3, archive.getCodec()),
+                    () -> assertEquals(PixelFormat.BC3, archive.getPixelFormat()),
+                    () -> assertEquals(3, archive.getFrameCount()));
+        } finally {
+            archive.close();
+        }
+    }
+
+    private interface Painter {
+        int[] rgba(int x, int y);
+    }
+
+    private static ByteBuffer fill(int width, int height, Painter painter) {
+        ByteBuffer rgba = ByteBuffer.allocate(width * height * 4);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int[] p = painter.rgba(x, y);
+                for (int c = 0; c < 4; c++) {
+                    rgba.put((y * width + x) * 4 + c, (byte) p[c]);
+                }
+            }
+        }
+        return rgba;
+    }
+
+    private static ByteBuffer encode(ByteBuffer rgba, int width, int height, PixelFormat format) {
+        ByteBuffer blocks = ByteBuffer.allocate(format.byteSize(width, height)).order(ByteOrder.LITTLE_ENDIAN);
+        BcCodec.encode(rgba, width, height, format, blocks);
+        return blocks;
+    }
+
+    private static ByteBuffer decode(ByteBuffer blocks, int width, int height, PixelFormat format) {
+        ByteBuffer rgba = ByteBuffer.allocate(width * height * 4);
+        BcCodec.decode(blocks, width, height, format, rgba);
+        return rgba;
+    }
+
+    private static ByteBuffer roundTrip(ByteBuffer rgba, int width, int height, PixelFormat format) {
+        return decode(encode(rgba, width, height, format), width, height, format);
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        return buffer.array().clone();
+    }
+}
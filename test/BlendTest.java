@@ -0,0 +1,177 @@
+package com.livewallpaper.api;
+
+import com.livewallpaper.api.render.RecordingRenderBackend;
+import com.livewallpaper.api.util.FrameBlender;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Frame trung gian khi display FPS cao hơn FPS nguồn, không cần GPU.
+ *
+ * - FrameBlender.crossFade cho đúng từng byte như công thức vô hướng, với mọi trọng số và độ dài lẻ.
+ * - Wallpaper màu đặc 10 FPS hiển thị 40 FPS: dừng ở giữa một frame (seek), pixel ra màn hình là
+ *   frame hiện tại trộn với frame kế tiếp theo đúng bước lượng tử (±1), cả khi trộn trên CPU lẫn khi backend tự trộn.
+ * - Frame cuối: LOOP trộn sang frame 0, PING_PONG trộn ngược về frame áp chót, ONCE không trộn.
+ * - Không trộn khi display FPS không lớn hơn FPS nguồn; getEffectiveFPS báo display FPS khi đang trộn.
+ */
+class BlendTest {
+
+    private static final String ID = "blend";
+    private static final int FRAMES = 6;
+    private static final int SOURCE_FPS = 10;
+    private static final int DISPLAY_FPS = 40;
+    private static final int WIDTH = 16;
+    private static final int HEIGHT = 9;
+
+    @TempDir
+    Path dir;
+
+    /** So SWAR với công thức từng byte */
+    @Test
+    void crossFadeMatchesScalarFormula() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int n = 1003;
+        ByteBuffer from = ByteBuffer.allocateDirect(n);
+        ByteBuffer to = ByteBuffer.allocate(n);
+        ByteBuffer out = ByteBuffer.allocateDirect(n);
+        for (int i = 0; i < n; i++) {
+            from.put(i, (byte) random.nextInt(256));
+            to.put(i, (byte) random.nextInt(256));
+        }
+        for (int w = 0; w <= FrameBlender.MAX_WEIGHT; w++) {
+            FrameBlender.crossFade(from, to, w, out);
+            for (int i = 0; i < n; i++) {
+                int expected = ((from.get(i) & 0xFF) * (FrameBlender.MAX_WEIGHT - w) + (to.get(i) & 0xFF) * w) >>> 8;
+                assertEquals(expected, out.get(i) & 0xFF, "crossFade weight=" + w + " byte " + i);
+            }
+        }
+    }
+
+    @Test
+    void cpuBlendShowsInterpolatedFrames() throws Exception {
+        checkPlayback(false);
+    }
+
+    @Test
+    void backendBlendShowsInterpolatedFrames() throws Exception {
+        checkPlayback(true);
+    }
+
+    private void checkPlayback(boolean blendedDraw) throws Exception {
+        TestFrames.write(dir, FRAMES, WIDTH, HEIGHT, (f, x, y) -> argb(color(f)));
+        String path = blendedDraw ? "backend trộn" : "trộn CPU";
+        RecordingRenderBackend backend = new RecordingRenderBackend(true, blendedDraw);
+        backend.setRetainPixels(true);
+        WallpaperManager manager = new WallpaperManager(backend);
+        try {
+            manager.registerWallpaper(ID, dir, SOURCE_FPS, FRAMES, WIDTH, HEIGHT, true);
+            manager.setDisplayFPS(ID, DISPLAY_FPS);
+
+            // Giữa các frame: bước 0..3 của mỗi frame nguồn (tránh sát biên bước)
+            for (int frame = 0; frame < FRAMES - 1; frame++) {
+                for (double phase : new double[]{0.1, 0.35, 0.6, 0.85}) {
+                    manager.seek(ID, (frame + phase) / SOURCE_FPS);
+                    assertShown(manager, backend, path + " frame " + frame + " phase " + phase);
+                }
+            }
+
+            // Frame cuối: chạy vào giữa frame rồi dừng (seek không vào được giữa frame cuối)
+            for (LoopMode mode : LoopMode.values()) {
+                manager.setLoopMode(ID, mode);
+                manager.seek(ID, (FRAMES - 1) / (double) SOURCE_FPS);
+                manager.play(ID);
+                Thread.sleep(1000 / SOURCE_FPS / 2);
+                manager.pause(ID);
+                assertShown(manager, backend, path + " frame cuối " + mode);
+            }
+
+            manager.setLoopMode(ID, LoopMode.LOOP);
+            manager.play(ID);
+            manager.tick();
+            assertEquals(DISPLAY_FPS, manager.getEffectiveFPS(ID), path + ": getEffectiveFPS khi trộn");
+
+            // Display FPS không lớn hơn FPS nguồn → hiện đúng frame nguồn
+            manager.pause(ID);
+            manager.setDisplayFPS(ID, SOURCE_FPS);
+            manager.seek(ID, 1.6 / SOURCE_FPS);
+            assertShown(manager, backend, path + " display FPS = FPS nguồn");
+        } finally {
+            manager.unregisterWallpaper(ID);
+        }
+    }
+
+    /**
+     * Render tới khi frame cần thiết decode xong, rồi so pixel ra màn hình với frame mong đợi
+     * tính từ snapshot (đang dừng nên snapshot không đổi).
+     */
+    private static void assertShown(WallpaperManager manager, RecordingRenderBackend backend, String what)
+            throws InterruptedException {
+        PlaybackState state = manager.getPlaybackState(ID);
+        int[] expected = expectedPixel(state, manager.getDisplayFPS(ID));
+        int[] actual = null;
+        for (int attempt = 0; attempt < 400; attempt++) {
+            manager.render(ID, 0, 0, WIDTH, HEIGHT);
+            actual = drawnPixel(backend);
+            if (actual != null && close(actual, expected)) return;
+            Thread.sleep(5);
+        }
+        assertNotNull(actual, what + ": chưa vẽ gì (" + state + ")");
+        assertTrue(close(actual, expected), what + ": pixel " + format(actual) + ", mong đợi " + format(expected)
+                + " (" + state + ")");
+    }
+
+    /** Pixel mong đợi: frame hiện tại trộn với frame kế tiếp theo bước lượng tử của display FPS */
+    private static int[] expectedPixel(PlaybackState state, int displayFps) {
+        LoopMode mode = state.getLoopMode();
+        long position = state.frameAt(0);
+        int current = mode.frameAt(position, FRAMES);
+        if (current < 0) current = FRAMES - 1;
+        int next = mode.frameAt(position + 1, FRAMES);
+        double steps = displayFps / (double) state.getFps();
+        int step = (int) (state.phaseAt(0) * steps);
+        int[] from = color(current);
+        if (displayFps <= state.getFps() || step == 0 || next < 0) return from;
+        int weight = (int) (step * FrameBlender.MAX_WEIGHT / steps);
+        int[] to = color(next);
+        int[] mixed = new int[4];
+        for (int c = 0; c < 4; c++) {
+            mixed[c] = (from[c] * (FrameBlender.MAX_WEIGHT - weight) + to[c] * weight) / FrameBlender.MAX_WEIGHT;
+        }
+        return mixed;
+    }
+
+    /** Màu (R, G, B, A) của frame; các frame khác nhau rõ ở mọi kênh màu */
+    private static int[] color(int frame) {
+        return new int[]{frame * 50, 250 - frame * 40, (frame * 97) % 256, 255};
+    }
+
+    private static int argb(int[] rgba) {
+        return rgba[3] << 24 | rgba[0] << 16 | rgba[1] << 8 | rgba[2];
+    }
+
+    private static int[] drawnPixel(RecordingRenderBackend backend) {
+        ByteBuffer drawn = backend.getLastDrawnPixels();
+        if (drawn == null || drawn.remaining() < 4) return null;
+        int p = drawn.position();
+        return new int[]{drawn.get(p) & 0xFF, drawn.get(p + 1) & 0xFF, drawn.get(p + 2) & 0xFF, drawn.get(p + 3) & 0xFF};
+    }
+
+    private static boolean close(int[] a, int[] b) {
+        for (int c = 0; c < 4; c++) {
+            if (Math.abs(a[c] - b[c]) > 1) return false;
+        }
+        return true;
+    }
+
+    private static String format(int[] rgba) {
+        return "(" + rgba[0] + ", " + rgba[1] + ", " + rgba[2] + ", " + rgba[3] + ")";
+    }
+}
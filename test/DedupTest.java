@@ -0,0 +1,103 @@
+package com.livewallpaper.api;
+
+import com.livewallpaper.api.cache.WallpaperCache;
+import com.livewallpaper.api.metrics.WallpaperMetrics;
+import com.livewallpaper.api.render.RecordingRenderBackend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Frame trùng nội dung và wallpaper dùng chung thư mục, không cần GPU.
+ *
+ * - Frame 0,0,1,1,2,2 (từng cặp giống nhau): frame trùng quy về frame gốc, mỗi frame gốc decode một lần,
+ *   cache chỉ giữ frame gốc.
+ * - Hai lần đăng ký cùng một thư mục (viết khác nhau) dùng chung một partition: frame A đã decode thì B không decode lại.
+ * - Gỡ một wallpaper không xoá frame của wallpaper còn lại; gỡ cả hai thì partition bị xoá.
+ */
+class DedupTest {
+
+    private static final int FRAMES = 6;
+    private static final int FPS = 10;
+    private static final int WIDTH = 16;
+    private static final int HEIGHT = 9;
+
+    @TempDir
+    Path dir;
+
+    private WallpaperManager manager;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        TestFrames.write(dir, FRAMES, WIDTH, HEIGHT, (f, x, y) -> 0xFF000000 | (f / 2) * 0x405060);
+        manager = new WallpaperManager(new RecordingRenderBackend());
+        manager.setIdleSuspendMillis(0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.unregisterWallpaper("a");
+        manager.unregisterWallpaper("b");
+    }
+
+    @Test
+    void duplicateFramesDecodeOnce() throws Exception {
+        manager.registerWallpaper("a", dir, FPS, FRAMES, WIDTH, HEIGHT, true);
+
+        assertEquals(FRAMES, manager.warmUp("a", FRAMES).get(), "frame sẵn sàng");
+        WallpaperCache cache = manager.getCache();
+        assertAll("frame gốc 0, 2, 4",
+                () -> assertEquals(3, metrics("a").decode.count, "số lần decode"),
+                () -> assertTrue(cache.hasFrame(store(), 0, 0) && cache.hasFrame(store(), 2, 0)
+                        && cache.hasFrame(store(), 4, 0), "thiếu frame gốc"),
+                () -> assertFalse(cache.hasFrame(store(), 1, 0) || cache.hasFrame(store(), 3, 0)
+                        || cache.hasFrame(store(), 5, 0), "frame trùng nằm riêng trong cache"),
+                () -> assertEquals(3L * WIDTH * HEIGHT * 4, cache.getUsedBytes(store())));
+    }
+
+    @Test
+    void sameFolderSharesPartition() throws Exception {
+        manager.registerWallpaper("a", dir, FPS, FRAMES, WIDTH, HEIGHT, true);
+        manager.registerWallpaper("b", dir.resolve("."), FPS, FRAMES, WIDTH, HEIGHT, true);
+        manager.warmUp("a", FRAMES).get();
+        long used = manager.getCache().getUsedBytes(store());
+
+        assertEquals(FRAMES, manager.warmUp("b", FRAMES).get(), "B thấy frame A đã decode");
+        assertAll("partition dùng chung",
+                () -> assertEquals(0, metrics("b").decode.count, "B decode lại"),
+                () -> assertEquals(used, manager.getCache().getUsedBytes(store())),
+                () -> assertEquals(used, manager.getCache().getUsedBytes()));
+    }
+
+    @Test
+    void unregisterKeepsSharedFrames() throws Exception {
+        manager.registerWallpaper("a", dir, FPS, FRAMES, WIDTH, HEIGHT, true);
+        manager.registerWallpaper("b", dir, FPS, FRAMES, WIDTH, HEIGHT, true);
+        manager.warmUp("a", FRAMES).get();
+        long used = manager.getCache().getUsedBytes(store());
+
+        manager.unregisterWallpaper("a");
+        assertEquals(used, manager.getCache().getUsedBytes(store()), "gỡ A xoá frame của B");
+        assertEquals(FRAMES, manager.warmUp("b", FRAMES).get());
+        assertEquals(0, metrics("b").decode.count, "B decode lại sau khi gỡ A");
+
+        manager.unregisterWallpaper("b");
+        assertEquals(0, manager.getCache().getUsedBytes(store()), "partition còn sau khi gỡ cả hai");
+    }
+
+    private String store() {
+        return dir.toAbsolutePath().normalize().toString();
+    }
+
+    private WallpaperMetrics.Snapshot metrics(String id) {
+        return manager.getMetrics().wallpapers.get(id);
+    }
+}
@@ -0,0 +1,214 @@
+package com.livewallpaper.api.archive;
+
+import com.livewallpaper.api.TestFrames;
+import com.livewallpaper.api.cache.FrameBuffer;
+import com.livewallpaper.api.cache.FrameDelta;
+import com.livewallpaper.api.cache.FrameStore;
+import com.livewallpaper.api.render.RecordingRenderBackend;
+import com.livewallpaper.api.render.WallpaperTexture;
+import com.livewallpaper.api.util.PixelConverter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Codec DELTA của archive, không cần GPU.
+ *
+ * - encode rồi apply lên frame trước cho lại đúng từng byte của frame gốc, kể cả tile mép bị cắt theo kích thước ảnh.
+ * - Delta lớn hơn nửa frame (hoặc forceKey, hoặc không có frame trước) được ghi thành keyframe.
+ * - WallpaperArchive.readFrame đọc đúng mọi frame theo thứ tự bất kỳ, kể cả tua lùi qua keyframe.
+ * - Texture đang giữ baseFrame của delta: chỉ upload các tile đổi; ngược lại upload cả frame.
+ */
+class DeltaCodecTest {
+
+    /** 70x45 với tile 16: tile mép phải rộng 6, mép dưới cao 13 */
+    private static final int WIDTH = 70;
+    private static final int HEIGHT = 45;
+    private static final int TILE = 16;
+    private static final int FRAMES = 10;
+    private static final int KEYFRAME_INTERVAL = 4;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void deltaRoundTripsIncludingCroppedEdgeTiles() {
+        byte[] prev = rgba(0);
+        byte[] cur = prev.clone();
+        setPixel(cur, 3, 3, 0xFF00FF00);                // tile (0, 0)
+        setPixel(cur, WIDTH - 1, HEIGHT - 1, 0xFF0000FF); // tile mép (4, 2): 6 x 13
+
+        ByteBuffer payload = DeltaCodec.encode(prev, cur, WIDTH, HEIGHT, TILE, false, keyframeBuffer());
+        assertFalse(DeltaCodec.isKeyframe(payload), "hai pixel đổi mà ghi keyframe");
+
+        ByteBuffer canvas = ByteBuffer.allocateDirect(prev.length).put(prev).clear();
+        DeltaCodec.apply(payload, canvas, WIDTH, HEIGHT);
+        assertArrayEquals(cur, bytes(canvas), "apply(encode(prev, cur)) lên prev khác cur");
+
+        FrameDelta delta = DeltaCodec.delta(payload, WIDTH, HEIGHT, 7);
+        assertNotNull(delta);
+        assertAll("tile đổi",
+                () -> assertEquals(7, delta.baseFrame),
+                () -> assertEquals(2, delta.getTileCount()),
+                () -> assertArrayEquals(new int[]{0, 0, TILE, TILE}, rect(delta, 0)),
+                () -> assertArrayEquals(new int[]{64, 32, 6, 13}, rect(delta, 1)),
+                () -> assertEquals(6 * 13 * 4, delta.getData(1).remaining()));
+    }
+
+    @Test
+    void largeDeltaBecomesKeyframe() {
+        byte[] prev = rgba(0);
+        byte[] cur = rgba(1);
+        for (int i = 0; i < cur.length; i += 4) {
+            cur[i] = (byte) ~cur[i];
+        }
+        ByteBuffer out = keyframeBuffer();
+        assertAll("keyframe",
+                () -> assertTrue(DeltaCodec.isKeyframe(DeltaCodec.encode(prev, cur, WIDTH, HEIGHT, TILE, false, out)),
+                        "delta cả frame"),
+                () -> assertTrue(DeltaCodec.isKeyframe(DeltaCodec.encode(prev, prev, WIDTH, HEIGHT, TILE, true, out)),
+                        "forceKey"),
+                () -> assertTrue(DeltaCodec.isKeyframe(DeltaCodec.encode(null, cur, WIDTH, HEIGHT, TILE, false, out)),
+                        "không có frame trước"));
+
+        ByteBuffer payload = DeltaCodec.encode(prev, cur, WIDTH, HEIGHT, TILE, false, out);
+        ByteBuffer canvas = ByteBuffer.allocateDirect(prev.length);
+        DeltaCodec.apply(payload, canvas, WIDTH, HEIGHT);
+        assertArrayEquals(cur, bytes(canvas), "keyframe dựng lại khác frame gốc");
+        assertNull(DeltaCodec.delta(payload, WIDTH, HEIGHT, 0), "keyframe không có FrameDelta");
+    }
+
+    /** Đọc lùi, nhảy qua keyframe, đọc lại cùng frame: luôn khớp ảnh gốc */
+    @Test
+    void archiveReadsFramesInAnyOrder() throws IOException {
+        Path archivePath = packDelta();
+        FrameStore store = new FrameStore(0);
+        PixelConverter converter = new PixelConverter(false);
+        WallpaperArchive archive = WallpaperArchive.open(archivePath);
+        try {
+            for (int frame : new int[]{0, 1, 2, 3, 9, 5, 6, 2, 7, 7, 4, 3, 0, 8, 1}) {
+                FrameBuffer buffer = archive.readFrame(frame, 0, store, converter);
+                try {
+                    assertArrayEquals(rgba(frame), bytes(buffer.pixels()), "frame " + frame);
+                    assertEquals(frame % KEYFRAME_INTERVAL == 0, buffer.getDelta() == null,
+                            "frame " + frame + ": keyframe phải không có FrameDelta và ngược lại");
+                } finally {
+                    buffer.release();
+                }
+            }
+        } finally {
+            archive.close();
+            store.trim();
+        }
+    }
+
+    @Test
+    void onlyDirtyTilesUploadWhenTextureHoldsBaseFrame() throws IOException {
+        Path archivePath = packDelta();
+        FrameStore store = new FrameStore(0);
+        RecordingRenderBackend backend = new RecordingRenderBackend(false);
+        WallpaperTexture texture = new WallpaperTexture(backend);
+        WallpaperArchive archive = WallpaperArchive.open(archivePath);
+        long frameBytes = (long) WIDTH * HEIGHT * 4;
+        try {
+            upload(texture, archive, store, 0);
+            assertCounts(backend, "keyframe 0", 1, frameBytes);
+
+            // Texture giữ frame 0 = baseFrame của frame 1 → chỉ các tile đổi
+            FrameDelta delta = upload(texture, archive, store, 1);
+            long tileBytes = 0;
+            for (int i = 0; i < delta.getTileCount(); i++) {
+                tileBytes += delta.getData(i).remaining();
+            }
+            assertTrue(tileBytes < frameBytes / 2, "delta frame 1 không nhỏ hơn nửa frame");
+            assertCounts(backend, "frame 1 từ frame 0", delta.getTileCount(), tileBytes);
+
+            // Texture giữ frame 1, frame 3 tính từ frame 2 → upload cả frame
+            upload(texture, archive, store, 3);
+            assertCounts(backend, "frame 3 từ frame 1", 1, frameBytes);
+        } finally {
+            archive.close();
+            store.trim();
+        }
+    }
+
+    private static FrameDelta upload(WallpaperTexture texture, WallpaperArchive archive, FrameStore store, int frame)
+            throws IOException {
+        FrameBuffer buffer = archive.readFrame(frame, 0, store, new PixelConverter(false));
+        try {
+            texture.upload(frame, 0, buffer);
+            return buffer.getDelta();
+        } finally {
+            buffer.release();
+        }
+    }
+
+    private static void assertCounts(RecordingRenderBackend backend, String what, long uploads, long bytes) {
+        long actualUploads = backend.getUploads();
+        long actualBytes = backend.getUploadedBytes();
+        backend.reset();
+        assertAll(what,
+                () -> assertEquals(uploads, actualUploads, "upload"),
+                () -> assertEquals(bytes, actualBytes, "byte upload"));
+    }
+
+    /** Đóng gói FRAMES frame (một ô vuông chạy trên nền tĩnh) bằng codec DELTA */
+    private Path packDelta() throws IOException {
+        Path folder = dir.resolve("frames");
+        TestFrames.write(folder, FRAMES, WIDTH, HEIGHT, DeltaCodecTest::argb);
+        Path output = dir.resolve("delta" + WallpaperArchive.EXTENSION);
+        WallpaperPacker.Stats stats = WallpaperPacker.pack(folder, output, "delta", 30, true,
+                WallpaperArchive.CODEC_DELTA, TILE, KEYFRAME_INTERVAL);
+        assertEquals((FRAMES + KEYFRAME_INTERVAL - 1) / KEYFRAME_INTERVAL, stats.keyframes, "số keyframe");
+        return output;
+    }
+
+    /** Nền gradient tĩnh, ô vuông 5x5 dịch 7 pixel mỗi frame (có lúc nằm ở tile mép) */
+    private static int argb(int frame, int x, int y) {
+        int sx = frame * 7 % (WIDTH - 5);
+        int sy = frame * 4 % (HEIGHT - 5);
+        if (x >= sx && x < sx + 5 && y >= sy && y < sy + 5) return 0xFFFFFFFF;
+        return 0xFF000000 | (x * 3) << 16 | (y * 5) << 8 | (x + y);
+    }
+
+    /** RGBA của frame theo đúng đường đọc ảnh của WallpaperPacker */
+    private static byte[] rgba(int frame) {
+        ByteBuffer buf = ByteBuffer.allocate(WIDTH * HEIGHT * 4);
+        new PixelConverter(false).convert(TestFrames.image(frame, WIDTH, HEIGHT, DeltaCodecTest::argb), buf);
+        return buf.array();
+    }
+
+    private static void setPixel(byte[] rgba, int x, int y, int argb) {
+        int i = (y * WIDTH + x) * 4;
+        rgba[i] = (byte) (argb >> 16);
+        rgba[i + 1] = (byte) (argb >> 8);
+        rgba[i + 2] = (byte) argb;
+        rgba[i + 3] = (byte) (argb >>> 24);
+    }
+
+    private static ByteBuffer keyframeBuffer() {
+        return ByteBuffer.allocate(WIDTH * HEIGHT * 4 + 1);
+    }
+
+    private static int[] rect(FrameDelta delta, int tile) {
+        return new int[]{delta.getX(tile), delta.getY(tile), delta.getWidth(tile), delta.getHeight(tile)};
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        ByteBuffer view = buffer.duplicate();
+        byte[] out = new byte[view.remaining()];
+        view.get(out);
+        return out;
+    }
+}
@@ -0,0 +1,80 @@
+package com.livewallpaper.api;
+
+import com.livewallpaper.api.metrics.WallpaperMetrics;
+import com.livewallpaper.api.render.RecordingRenderBackend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Wallpaper khởi động (playOnFirstRender), không cần GPU.
+ *
+ * - Đồng hồ không chạy trước lần render đầu, dù game tick rất lâu sau khi làm nóng.
+ * - Lần render đầu bắt đầu phát và hiện ngay frame 0 đã làm nóng (không lặp frame, một lần upload).
+ * - pause trước lần render đầu huỷ việc phát chờ sẵn.
+ */
+class FirstRenderTest {
+
+    private static final String ID = "startup";
+    private static final int FRAMES = 12;
+    private static final int FPS = 30;
+    private static final int WIDTH = 32;
+    private static final int HEIGHT = 18;
+
+    @TempDir
+    Path dir;
+
+    private RecordingRenderBackend backend;
+    private WallpaperManager manager;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        TestFrames.writeMarked(dir, FRAMES, WIDTH, HEIGHT);
+        backend = new RecordingRenderBackend();
+        manager = new WallpaperManager(backend);
+        manager.registerWallpaper(ID, dir, FPS, FRAMES, WIDTH, HEIGHT, true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.unregisterWallpaper(ID);
+    }
+
+    @Test
+    void clockStartsAtFirstRender() throws Exception {
+        manager.playOnFirstRender(ID);
+        manager.warmUp(ID, 4).get();
+        for (int i = 0; i < 20; i++) {
+            manager.tick();
+            Thread.sleep(10);
+        }
+        assertAll("trước lần render đầu",
+                () -> assertFalse(manager.isPlaying(ID), "đã phát"),
+                () -> assertEquals(0, manager.getPosition(ID), "đồng hồ đã chạy"));
+
+        manager.render(ID, 0, 0, WIDTH, HEIGHT);
+        WallpaperMetrics.Snapshot metrics = manager.getMetrics().wallpapers.get(ID);
+        assertAll("lần render đầu",
+                () -> assertTrue(manager.isPlaying(ID), "không bắt đầu phát"),
+                () -> assertEquals(1, metrics.framesRendered, "frame 0 đã làm nóng không được hiện ngay"),
+                () -> assertEquals(0, metrics.framesRepeated),
+                () -> assertEquals(1, backend.getUploads()));
+    }
+
+    @Test
+    void pauseCancelsPendingStart() throws Exception {
+        manager.playOnFirstRender(ID);
+        manager.pause(ID);
+        manager.warmUp(ID, 1).get();
+        manager.render(ID, 0, 0, WIDTH, HEIGHT);
+        assertFalse(manager.isPlaying(ID), "pause trước lần render đầu vẫn phát");
+    }
+}
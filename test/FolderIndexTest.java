@@ -0,0 +1,121 @@
+package com.livewallpaper.api.source;
+
+import com.livewallpaper.api.TestFrames;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Danh sách frame của thư mục ảnh, không cần GPU.
+ *
+ * - Thứ tự tự nhiên: "f2" trước "f10"; đoạn số so theo giá trị nên "f010" đứng đúng chỗ của "f10".
+ * - Bản lưu trong thư mục cache được dùng lại khi thư mục không đổi, và bị bỏ khi thêm file hoặc ghi đè một frame.
+ */
+class FolderIndexTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void naturalOrder() {
+        assertAll("compareNatural",
+                () -> assertTrue(FolderIndex.compareNatural("f2", "f10") < 0, "f2 < f10"),
+                () -> assertTrue(FolderIndex.compareNatural("f10", "f2") > 0, "f10 > f2"),
+                () -> assertTrue(FolderIndex.compareNatural("f002", "f10") < 0, "f002 < f10"),
+                () -> assertTrue(FolderIndex.compareNatural("f9", "f010") < 0, "f9 < f010"),
+                () -> assertTrue(FolderIndex.compareNatural("f010", "f11") < 0, "f010 < f11"),
+                // "010" và "10" bằng nhau: phần sau đoạn số quyết định
+                () -> assertTrue(FolderIndex.compareNatural("f010a", "f10b") < 0, "f010a < f10b"),
+                () -> assertTrue(FolderIndex.compareNatural("f010b", "f10a") > 0, "f010b > f10a"),
+                () -> assertEquals(0, FolderIndex.compareNatural("f10", "f10")));
+    }
+
+    @Test
+    void scanSortsNaturallyAndSkipsNonImages() throws IOException {
+        for (String name : new String[]{"f100", "f11", "f2", "f010", "f1", "f9"}) {
+            writeImage(dir.resolve(name + ".png"), 0);
+        }
+        Files.writeString(dir.resolve("notes.txt"), "không phải ảnh");
+        writeImage(dir.resolve(".hidden.png"), 0);
+
+        FolderIndex index = FolderIndex.scan(dir);
+        assertEquals(List.of("f1.png", "f2.png", "f9.png", "f010.png", "f11.png", "f100.png"), names(index));
+    }
+
+    @Test
+    void cacheReusedWhenUnchanged() throws IOException {
+        Path frames = TestFrames.writeMarked(dir.resolve("frames"), 3, 8, 8);
+        Path cacheDir = dir.resolve("cache");
+        FolderIndex.load(frames, cacheDir);
+        Path cacheFile = onlyFile(cacheDir);
+        FileTime written = FileTime.fromMillis(1_000_000_000_000L);
+        Files.setLastModifiedTime(cacheFile, written);
+
+        assertEquals(3, FolderIndex.load(frames, cacheDir).getFrameCount());
+        assertEquals(written, Files.getLastModifiedTime(cacheFile), "bản lưu còn hợp lệ mà bị ghi lại");
+    }
+
+    @Test
+    void cacheInvalidatedWhenFileAdded() throws IOException {
+        Path frames = TestFrames.writeMarked(dir.resolve("frames"), 3, 8, 8);
+        Path cacheDir = dir.resolve("cache");
+        assertEquals(3, FolderIndex.load(frames, cacheDir).getFrameCount());
+
+        // Ghi ngay sau lần lưu: thời gian sửa của thư mục có thể chưa đổi
+        writeImage(TestFrames.path(frames, 3), 3);
+        FolderIndex index = FolderIndex.load(frames, cacheDir);
+        assertEquals(4, index.getFrameCount());
+        assertEquals(TestFrames.path(frames, 3), index.getPath(3));
+    }
+
+    @Test
+    void cacheInvalidatedWhenFileRewritten() throws IOException {
+        Path frames = TestFrames.write(dir.resolve("frames"), 3, 8, 8, (f, x, y) -> f == 2 ? 0xFFFF0000 : 0xFF000000);
+        Path cacheDir = dir.resolve("cache");
+        FolderIndex before = FolderIndex.load(frames, cacheDir);
+        assertEquals(0, before.canonicalFrame(1), "frame 0 và 1 giống nhau");
+
+        Path rewritten = TestFrames.path(frames, 1);
+        FileTime modified = Files.getLastModifiedTime(rewritten);
+        writeImage(rewritten, 1);
+        Files.setLastModifiedTime(rewritten, FileTime.fromMillis(modified.toMillis() + 5_000));
+
+        FolderIndex after = FolderIndex.load(frames, cacheDir);
+        assertAll("sau khi ghi đè frame 1",
+                () -> assertEquals(1, after.canonicalFrame(1)),
+                () -> assertEquals(3, after.getUniqueCount()));
+    }
+
+    private static void writeImage(Path path, int frame) throws IOException {
+        ImageIO.write(TestFrames.image(frame, 8, 8, (f, x, y) -> 0xFF000000 | f * 0x203040 | x << 4 | y),
+                "png", path.toFile());
+    }
+
+    private static List<String> names(FolderIndex index) {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < index.getFrameCount(); i++) {
+            names.add(index.getPath(i).getFileName().toString());
+        }
+        return names;
+    }
+
+    private static Path onlyFile(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            List<Path> all = files.toList();
+            assertEquals(1, all.size(), "thư mục cache: " + all);
+            return all.get(0);
+        }
+    }
+}
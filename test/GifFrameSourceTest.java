@@ -0,0 +1,225 @@
+package com.livewallpaper.api.source;
+
+import com.livewallpaper.api.cache.FrameBuffer;
+import com.livewallpaper.api.cache.FrameStore;
+import com.livewallpaper.api.util.PixelConverter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Dựng frame GIF theo luật disposal, không cần GPU.
+ *
+ * GIF 8x8 được ghi ngay trong test bằng ImageWriter GIF của JDK:
+ * <pre>
+ *   0: nền đỏ 8x8                              none
+ *   1: xanh lá 4x4 tại (2, 2)                  restoreToPrevious
+ *   2: xanh dương 4x4 tại (0, 0), ô cờ trong suốt restoreToBackgroundColor
+ *   3: xanh lá 2x2 tại (6, 6)                  none
+ *   4: 8x8 trong suốt trừ (7, 0) xanh dương    none
+ *   5: đỏ 3x3 tại (4, 0)                        restoreToPrevious
+ *   6: xanh dương 1x1 tại (0, 7)               none
+ *   7: xanh lá 2x1 tại (1, 1)                  none
+ * </pre>
+ * - restoreToPrevious trả lại đúng vùng trước khi vẽ; restoreToBackgroundColor xoá vùng về trong suốt;
+ *   pixel trong suốt giữ nguyên canvas bên dưới.
+ * - Đọc theo thứ tự bất kỳ (tua lùi qua checkpoint) cho đúng từng byte như đọc tuần tự.
+ */
+class GifFrameSourceTest {
+
+    private static final int SIZE = 8;
+    private static final int FRAMES = 8;
+
+    private static final int TRANSPARENT = 0;
+    private static final int RED = 1;
+    private static final int GREEN = 2;
+    private static final int BLUE = 3;
+
+    private static final int[] RGBA_RED = {255, 0, 0, 255};
+    private static final int[] RGBA_GREEN = {0, 255, 0, 255};
+    private static final int[] RGBA_BLUE = {0, 0, 255, 255};
+    private static final int[] RGBA_CLEAR = {0, 0, 0, 0};
+
+    @TempDir
+    Path dir;
+
+    private final FrameStore store = new FrameStore(0);
+    private final PixelConverter converter = new PixelConverter(false);
+    private Path gif;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        gif = dir.resolve("disposal.gif");
+        writeGif(gif);
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.trim();
+    }
+
+    @Test
+    void disposalAndTransparency() throws IOException {
+        GifFrameSource source = GifFrameSource.open(gif);
+        try {
+            assertEquals(FRAMES, source.getFrameCount());
+            assertEquals(SIZE, source.getWidth());
+            assertEquals(SIZE, source.getHeight());
+
+            byte[] f1 = read(source, 1);
+            assertAll("frame 1 vẽ chồng lên nền",
+                    () -> assertPixel(f1, 3, 3, RGBA_GREEN),
+                    () -> assertPixel(f1, 0, 0, RGBA_RED));
+
+            byte[] f2 = read(source, 2);
+            assertAll("frame 2 sau restoreToPrevious của frame 1",
+                    () -> assertPixel(f2, 4, 4, RGBA_RED),
+                    () -> assertPixel(f2, 2, 2, RGBA_BLUE),
+                    () -> assertPixel(f2, 1, 0, RGBA_RED)); // pixel trong suốt: thấy nền bên dưới
+
+            byte[] f3 = read(source, 3);
+            assertAll("frame 3 sau restoreToBackgroundColor của frame 2",
+                    () -> assertPixel(f3, 0, 0, RGBA_CLEAR),
+                    () -> assertPixel(f3, 1, 0, RGBA_CLEAR),
+                    () -> assertPixel(f3, 4, 4, RGBA_RED),
+                    () -> assertPixel(f3, 6, 6, RGBA_GREEN));
+
+            byte[] f4 = read(source, 4);
+            assertAll("frame 4 gần như trong suốt",
+                    () -> assertPixel(f4, 7, 0, RGBA_BLUE),
+                    () -> assertPixel(f4, 0, 0, RGBA_CLEAR),
+                    () -> assertPixel(f4, 6, 6, RGBA_GREEN),
+                    () -> assertPixel(f4, 5, 5, RGBA_RED));
+
+            byte[] f6 = read(source, 6);
+            assertAll("frame 6 sau restoreToPrevious của frame 5",
+                    () -> assertPixel(f6, 4, 0, RGBA_RED),
+                    () -> assertPixel(f6, 7, 0, RGBA_BLUE),
+                    () -> assertPixel(f6, 0, 7, RGBA_BLUE));
+        } finally {
+            source.close();
+        }
+    }
+
+    @Test
+    void randomOrderMatchesSequential() throws IOException {
+        byte[][] sequential = new byte[FRAMES][];
+        GifFrameSource source = GifFrameSource.open(gif);
+        try {
+            for (int i = 0; i < FRAMES; i++) {
+                sequential[i] = read(source, i);
+            }
+        } finally {
+            source.close();
+        }
+
+        // Ba checkpoint cho tám frame: tua lùi phải dựng lại từ checkpoint rồi đi tiếp qua vài frame
+        GifFrameSource seeking = GifFrameSource.open(gif, 3L * SIZE * SIZE * 4);
+        try {
+            assertTrue(seeking.getCheckpointInterval() > 1, "mọi frame đều là checkpoint");
+            for (int frame : new int[]{7, 2, 5, 0, 6, 1, 4, 3, 7, 3, 3, 2}) {
+                assertArrayEquals(sequential[frame], read(seeking, frame), "frame " + frame);
+            }
+        } finally {
+            seeking.close();
+        }
+    }
+
+    private byte[] read(GifFrameSource source, int frame) throws IOException {
+        FrameBuffer buffer = source.readFrame(frame, 0, store, converter);
+        try {
+            ByteBuffer pixels = buffer.pixels();
+            byte[] out = new byte[pixels.remaining()];
+            pixels.get(out);
+            return out;
+        } finally {
+            buffer.release();
+        }
+    }
+
+    private static void assertPixel(byte[] rgba, int x, int y, int[] expected) {
+        int i = (y * SIZE + x) * 4;
+        int[] actual = {rgba[i] & 0xFF, rgba[i + 1] & 0xFF, rgba[i + 2] & 0xFF, rgba[i + 3] & 0xFF};
+        assertArrayEquals(expected, actual, "pixel (" + x + ", " + y + ")");
+    }
+
+    private static void writeGif(Path path) throws IOException {
+        byte[] r = {0, (byte) 255, 0, 0};
+        byte[] g = {0, 0, (byte) 255, 0};
+        byte[] b = {0, 0, 0, (byte) 255};
+        IndexColorModel palette = new IndexColorModel(2, 4, r, g, b, TRANSPARENT);
+
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("gif").next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(path.toFile())) {
+            writer.setOutput(out);
+            writer.prepareWriteSequence(null);
+            write(writer, palette, 0, 0, SIZE, SIZE, (x, y) -> RED, "none");
+            write(writer, palette, 2, 2, 4, 4, (x, y) -> GREEN, "restoreToPrevious");
+            write(writer, palette, 0, 0, 4, 4, (x, y) -> (x + y) % 2 == 1 ? TRANSPARENT : BLUE,
+                    "restoreToBackgroundColor");
+            write(writer, palette, 6, 6, 2, 2, (x, y) -> GREEN, "none");
+            write(writer, palette, 0, 0, SIZE, SIZE, (x, y) -> x == 7 && y == 0 ? BLUE : TRANSPARENT, "none");
+            write(writer, palette, 4, 0, 3, 3, (x, y) -> RED, "restoreToPrevious");
+            write(writer, palette, 0, 7, 1, 1, (x, y) -> BLUE, "none");
+            write(writer, palette, 1, 1, 2, 1, (x, y) -> GREEN, "none");
+            writer.endWriteSequence();
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private interface IndexPainter {
+        int index(int x, int y);
+    }
+
+    private static void write(ImageWriter writer, IndexColorModel palette, int left, int top, int width, int height,
+                              IndexPainter painter, String disposal) throws IOException {
+        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_INDEXED, palette);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                img.getRaster().setSample(x, y, 0, painter.index(x, y));
+            }
+        }
+        IIOMetadata meta = writer.getDefaultImageMetadata(new ImageTypeSpecifier(img), null);
+        String format = meta.getNativeMetadataFormatName();
+        IIOMetadataNode root = (IIOMetadataNode) meta.getAsTree(format);
+        IIOMetadataNode gce = child(root, "GraphicControlExtension");
+        gce.setAttribute("disposalMethod", disposal);
+        gce.setAttribute("transparentColorFlag", "TRUE");
+        gce.setAttribute("transparentColorIndex", Integer.toString(TRANSPARENT));
+        IIOMetadataNode desc = child(root, "ImageDescriptor");
+        desc.setAttribute("imageLeftPosition", Integer.toString(left));
+        desc.setAttribute("imageTopPosition", Integer.toString(top));
+        desc.setAttribute("interlaceFlag", "FALSE"); // writer của JDK ghi sai dòng khi interlace ảnh nhỏ
+        meta.setFromTree(format, root);
+        writer.writeToSequence(new IIOImage(img, null, meta), null);
+    }
+
+    private static IIOMetadataNode child(IIOMetadataNode root, String name) {
+        for (int i = 0; i < root.getLength(); i++) {
+            if (root.item(i).getNodeName().equals(name)) return (IIOMetadataNode) root.item(i);
+        }
+        IIOMetadataNode node = new IIOMetadataNode(name);
+        root.appendChild(node);
+        return node;
+    }
+}
@@ -0,0 +1,195 @@
+package com.livewallpaper.api;
+
+import com.livewallpaper.api.render.RecordingRenderBackend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Lệnh điều khiển phát (play/pause/stop/seek/setLoop/setLoopMode/setFPS) khi bị gọi đồng thời
+ * từ nhiều thread trong lúc render thread tick liên tục, không cần GPU.
+ *
+ * - Mỗi snapshot PlaybackState nhất quán: frameNanos luôn khớp fps, fps là một giá trị đã từng được đặt.
+ * - epoch không bao giờ giảm (lệnh bị mất do ghi đè snapshot cũ sẽ làm epoch lùi).
+ * - Trong cùng một epoch (chỉ có play/pause/setLoop) vị trí không bao giờ lùi.
+ * - Vị trí (getPosition) luôn nằm trong wallpaper.
+ * - Sau khi hết tranh chấp, một chuỗi lệnh đã biết cho đúng kết quả (không mất lệnh, không kẹt trạng thái cũ).
+ */
+class PlaybackStressTest {
+
+    private static final String ID = "stress";
+    private static final int[] FPS_CHOICES = {12, 24, 30, 60, 144};
+    private static final int INITIAL_FPS = 30;
+    private static final long DURATION_NANOS = 3_000_000_000L;
+    private static final int THREADS = Math.max(2, Runtime.getRuntime().availableProcessors() - 1);
+    private static final int FRAMES = 48;
+
+    /** Một tick chỉ tiến playhead và gửi yêu cầu decode; lâu hơn thế này là đã bị khoá chặn */
+    private static final long MAX_TICK_NANOS = 250_000_000L;
+
+    @TempDir
+    Path dir;
+
+    private WallpaperManager manager;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        TestFrames.writeMarked(dir, FRAMES, 16, 9);
+        manager = new WallpaperManager(new RecordingRenderBackend());
+        manager.setIdleSuspendMillis(0); // chỉ tick, không render: không để wallpaper bị coi là ẩn
+        manager.registerWallpaper(ID, dir, INITIAL_FPS, FRAMES, 16, 9, true);
+        manager.play(ID);
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.unregisterWallpaper(ID);
+    }
+
+    /** Các thread điều khiển bắn lệnh ngẫu nhiên, một thread đọc snapshot, thread test làm render thread */
+    @Test
+    void concurrentControlKeepsSnapshotsConsistent() throws Throwable {
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicLong commands = new AtomicLong();
+        List<Thread> workers = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            workers.add(new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (running.get()) {
+                    switch (random.nextInt(16)) {
+                        case 0: case 1: case 2: case 3: manager.play(ID); break;
+                        case 4: case 5: case 6: manager.pause(ID); break;
+                        case 7: case 8: case 9:
+                            manager.seek(ID, random.nextDouble(-0.5, FRAMES / (double) FPS_CHOICES[0] + 0.5));
+                            break;
+                        case 10: case 11: case 12:
+                            manager.setFPS(ID, FPS_CHOICES[random.nextInt(FPS_CHOICES.length)]);
+                            break;
+                        case 13: manager.setLoop(ID, random.nextBoolean()); break;
+                        case 14: manager.setLoopMode(ID, LoopMode.values()[random.nextInt(LoopMode.values().length)]); break;
+                        default: manager.stop(ID); break;
+                    }
+                    commands.incrementAndGet();
+                }
+            }, "lwp-stress-control-" + t));
+        }
+
+        // Thread đọc: snapshot được công bố từ thread khác vẫn phải nhất quán
+        workers.add(new Thread(() -> {
+            try {
+                long epoch = 0;
+                while (running.get()) {
+                    PlaybackState state = manager.getPlaybackState(ID);
+                    assertConsistent(state);
+                    assertTrue(state.getEpoch() >= epoch, "reader: epoch lùi " + epoch + " → " + state);
+                    epoch = state.getEpoch();
+                }
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            }
+        }, "lwp-stress-reader"));
+
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        long maxTickNanos = 0;
+        long ticks = 0;
+        try {
+            long start = System.nanoTime();
+            PlaybackState previous = manager.getPlaybackState(ID);
+            long previousPosition = previous.frameAt(start);
+            double maxPosition = FRAMES / (double) FPS_CHOICES[0];
+
+            while (System.nanoTime() - start < DURATION_NANOS && failure.get() == null) {
+                long tickStart = System.nanoTime();
+                manager.tick();
+                long now = System.nanoTime();
+                maxTickNanos = Math.max(maxTickNanos, now - tickStart);
+                ticks++;
+
+                PlaybackState state = manager.getPlaybackState(ID);
+                assertConsistent(state);
+                assertTrue(state.getEpoch() >= previous.getEpoch(), "render: epoch lùi " + previous + " → " + state);
+                long position = state.frameAt(now);
+                if (state.getEpoch() == previous.getEpoch()) {
+                    assertTrue(position >= previousPosition, "vị trí lùi trong cùng epoch: " + previousPosition
+                            + " → " + position + " (" + previous + " → " + state + ")");
+                }
+                double positionSeconds = manager.getPosition(ID);
+                assertTrue(positionSeconds >= 0 && positionSeconds < maxPosition,
+                        "vị trí ngoài wallpaper: " + positionSeconds + " s");
+                previous = state;
+                previousPosition = position;
+            }
+        } finally {
+            running.set(false);
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        }
+        if (failure.get() != null) throw failure.get();
+
+        assertTrue(commands.get() > 0 && ticks > 0, "không có lệnh hoặc tick nào chạy");
+        assertTrue(maxTickNanos < MAX_TICK_NANOS, "tick dài nhất " + maxTickNanos / 1e6 + " ms");
+    }
+
+    /** Sau khi hết tranh chấp: một chuỗi lệnh đã biết phải cho đúng kết quả */
+    @Test
+    void knownSequenceGivesExpectedPositions() throws InterruptedException {
+        manager.pause(ID);
+        manager.setLoop(ID, false);
+        manager.setFPS(ID, 30);
+        manager.seek(ID, 1.0);
+        manager.tick();
+        assertEquals(1.0, manager.getPosition(ID), "seek(1.0) ở 30 FPS");
+        assertFalse(manager.isPlaying(ID), "seek khi đang dừng không được phát");
+
+        manager.seek(ID, 1e6);
+        manager.tick();
+        assertEquals((FRAMES - 1) / 30.0, manager.getPosition(ID), "seek quá cuối");
+
+        manager.stop(ID);
+        manager.tick();
+        assertEquals(0, manager.getPosition(ID), "stop");
+
+        manager.setFPS(ID, 60);
+        PlaybackState state = manager.getPlaybackState(ID);
+        assertEquals(60, state.getFps());
+        assertEquals(1_000_000_000L / 60, state.getFrameNanos());
+
+        // Hết wallpaper không lặp → dừng ở frame cuối
+        manager.seek(ID, (FRAMES - 2) / 60.0);
+        manager.play(ID);
+        Thread.sleep(100);
+        manager.tick();
+        assertFalse(manager.isPlaying(ID), "không lặp: phải dừng khi hết wallpaper");
+        assertEquals((FRAMES - 1) / 60.0, manager.getPosition(ID), "không lặp: vị trí dừng");
+    }
+
+    private static void assertConsistent(PlaybackState state) {
+        int fps = state.getFps();
+        boolean known = fps == INITIAL_FPS;
+        for (int choice : FPS_CHOICES) {
+            known |= fps == choice;
+        }
+        if (!known || state.getFrameNanos() != 1_000_000_000L / fps) {
+            fail("snapshot không nhất quán " + state + ", frameNanos=" + state.getFrameNanos());
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.livewallpaper.api;
+
+import com.livewallpaper.api.metrics.WallpaperMetrics;
+import com.livewallpaper.api.render.RecordingRenderBackend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Cửa sổ prefetch và tỉ lệ frame sẵn sàng đúng lúc, không cần GPU.
+ *
+ * - PrefetchPlanner: tua → cửa sổ trải hai phía; PING_PONG → cửa sổ quay đầu ở hai đầu; ONCE → dừng ở frame cuối.
+ * - Qua WallpaperScheduler (tick/render thật): frame kế bên vị trí tua, lượt đi ngược của PING_PONG và
+ *   frame cuối của wallpaper ONCE đều có sẵn khi cần hiện (prefetchHitRate = 1), mỗi frame chỉ decode một lần.
+ */
+class PrefetchTest {
+
+    private static final String ID = "prefetch";
+    private static final int FPS = 10;
+    private static final int WIDTH = 16;
+    private static final int HEIGHT = 9;
+
+    /** Hết thời gian chờ decode (frame 16x9 decode mất vài ms) */
+    private static final long DECODE_TIMEOUT_MS = 2000;
+
+    @TempDir
+    Path dir;
+
+    private WallpaperManager manager;
+
+    @BeforeEach
+    void setUp() {
+        manager = new WallpaperManager(new RecordingRenderBackend());
+        manager.setIdleSuspendMillis(0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.unregisterWallpaper(ID);
+    }
+
+    @Test
+    void plannerSpreadsAroundSeekWhilePaused() {
+        PrefetchPlanner planner = new PrefetchPlanner(24, LoopMode.LOOP);
+        planner.jump(false);
+        planner.update(12, LoopMode.LOOP, false, 1);
+        assertArrayEquals(new int[]{12, 13, 11, 14, 10}, window(planner, 4));
+
+        // Dừng bình thường (không tua): chỉ frame hiện tại
+        planner.jump(true);
+        planner.update(12, LoopMode.LOOP, false, 1);
+        assertArrayEquals(new int[]{12, -1, -1}, window(planner, 2));
+    }
+
+    @Test
+    void plannerTurnsAroundAtPingPongEnds() {
+        PrefetchPlanner planner = new PrefetchPlanner(6, LoopMode.PING_PONG);
+        planner.update(3, LoopMode.PING_PONG, true, 1);
+        assertArrayEquals(new int[]{3, 4, 5, 4, 3}, window(planner, 4));
+        planner.update(9, LoopMode.PING_PONG, true, 1);
+        assertArrayEquals(new int[]{1, 0, 1, 2, 3}, window(planner, 4));
+    }
+
+    @Test
+    void plannerStopsAtLastFrameOfOnce() {
+        PrefetchPlanner planner = new PrefetchPlanner(6, LoopMode.ONCE);
+        planner.update(4, LoopMode.ONCE, true, 1);
+        assertArrayEquals(new int[]{4, 5, -1, -1, -1}, window(planner, 4));
+        planner.update(5, LoopMode.ONCE, true, 1);
+        assertEquals(-1, planner.next(), "frame cuối ONCE không có frame kế tiếp để trộn");
+    }
+
+    /** Tua tới frame kế bên vị trí vừa tua: frame đã nằm trong cửa sổ trải hai phía */
+    @Test
+    void seekToNeighbourHitsCache() throws Exception {
+        int frames = 24;
+        TestFrames.writeMarked(dir, frames, WIDTH, HEIGHT);
+        manager.registerWallpaper(ID, dir, FPS, frames, WIDTH, HEIGHT, true);
+
+        seekFrame(12);
+        awaitFrames(12, 13, 11, 14, 10);
+        render();
+        for (int frame : new int[]{13, 11, 14, 10}) {
+            seekFrame(frame);
+            render();
+        }
+        WallpaperMetrics.Snapshot m = metrics();
+        assertAll("tua quanh frame 12",
+                () -> assertEquals(5, m.prefetchHits, "frame sẵn sàng"),
+                () -> assertEquals(1.0, m.prefetchHitRate()),
+                () -> assertFalse(manager.getCache().hasFrame(store(), 20, 0), "decode frame ngoài cửa sổ"));
+    }
+
+    /** Hai vòng PING_PONG: lượt đi ngược dùng lại frame đã decode, không frame nào trượt */
+    @Test
+    void pingPongReversalHitsCache() throws Exception {
+        int frames = 6;
+        TestFrames.writeMarked(dir, frames, WIDTH, HEIGHT);
+        manager.registerWallpaper(ID, dir, FPS, frames, WIDTH, HEIGHT, true);
+        manager.setLoopMode(ID, LoopMode.PING_PONG);
+        manager.warmUp(ID, 1).get();
+        manager.play(ID);
+
+        renderFor(2 * 2 * (frames - 1) * 1000L / FPS);
+        WallpaperMetrics.Snapshot m = metrics();
+        assertAll("PING_PONG",
+                () -> assertEquals(0, m.prefetchMisses, "frame trượt"),
+                () -> assertEquals(1.0, m.prefetchHitRate()),
+                () -> assertTrue(m.prefetchHits >= 2 * (frames - 1), "hiện " + m.prefetchHits + " frame"),
+                () -> assertEquals(frames, m.decode.count, "lượt đi ngược decode lại frame"));
+    }
+
+    /** Wallpaper ONCE chạy tới frame cuối: frame cuối có sẵn, cửa sổ không đi quá cuối */
+    @Test
+    void onceLastFrameHitsCache() throws Exception {
+        int frames = 6;
+        TestFrames.writeMarked(dir, frames, WIDTH, HEIGHT);
+        manager.registerWallpaper(ID, dir, FPS, frames, WIDTH, HEIGHT, false);
+        manager.warmUp(ID, 1).get();
+        manager.play(ID);
+
+        renderFor((frames + 2) * 1000L / FPS);
+        WallpaperMetrics.Snapshot m = metrics();
+        assertAll("ONCE",
+                () -> assertFalse(manager.isPlaying(ID), "chưa dừng ở frame cuối"),
+                () -> assertEquals((frames - 1) / (double) FPS, manager.getPosition(ID)),
+                () -> assertEquals(frames, m.prefetchHits, "frame sẵn sàng"),
+                () -> assertEquals(1.0, m.prefetchHitRate()),
+                () -> assertEquals(frames, m.decode.count, "số frame decode"));
+    }
+
+    private static int[] window(PrefetchPlanner planner, int depth) {
+        int[] frames = new int[depth + 1];
+        for (int k = 0; k <= depth; k++) {
+            frames[k] = planner.frameAt(k);
+        }
+        return frames;
+    }
+
+    /** Tua tới giữa một frame rồi tick để scheduler lập kế hoạch prefetch */
+    private void seekFrame(int frame) {
+        manager.seek(ID, (frame + 0.5) / FPS);
+        manager.tick();
+    }
+
+    private void render() {
+        manager.render(ID, 0, 0, WIDTH, HEIGHT);
+    }
+
+    /** Render liên tục như render thread (mỗi lần render tick nếu tới hạn) */
+    private void renderFor(long millis) throws InterruptedException {
+        long end = System.nanoTime() + millis * 1_000_000L;
+        while (System.nanoTime() - end < 0) {
+            render();
+            Thread.sleep(2);
+        }
+    }
+
+    private void awaitFrames(int... frames) throws InterruptedException {
+        long deadline = System.nanoTime() + DECODE_TIMEOUT_MS * 1_000_000L;
+        for (int frame : frames) {
+            while (!manager.getCache().hasFrame(store(), frame, 0)) {
+                assertTrue(System.nanoTime() - deadline < 0, "frame " + frame + " không được prefetch");
+                Thread.sleep(1);
+            }
+        }
+    }
+
+    private String store() {
+        return dir.toAbsolutePath().normalize().toString();
+    }
+
+    private WallpaperMetrics.Snapshot metrics() {
+        return manager.getMetrics().wallpapers.get(ID);
+    }
+}
@@ -0,0 +1,103 @@
+package com.livewallpaper.api;
+
+import com.livewallpaper.api.render.RecordingRenderBackend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Số lần upload texture của WallpaperManager.render, không cần GPU.
+ *
+ * - Frame không đổi giữa hai lần render: không upload, chỉ vẽ lại texture đang có.
+ * - Frame đổi: đúng một lần upload vào texture sẵn có (không tạo texture mới), đúng số byte của frame.
+ * - Wallpaper STATIC: upload một lần, sau đó chỉ vẽ dù đang phát.
+ */
+class RenderUploadTest {
+
+    private static final String ID = "upload";
+    private static final int FRAMES = 8;
+    private static final int FPS = 10;
+    private static final int WIDTH = 40;
+    private static final int HEIGHT = 24;
+    private static final long FRAME_BYTES = (long) WIDTH * HEIGHT * 4;
+
+    @TempDir
+    Path dir;
+
+    private RecordingRenderBackend backend;
+    private WallpaperManager manager;
+
+    @BeforeEach
+    void setUp() {
+        backend = new RecordingRenderBackend(false);
+        manager = new WallpaperManager(backend);
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.unregisterWallpaper(ID);
+    }
+
+    @Test
+    void uploadsOnlyWhenFrameChanges() throws Exception {
+        TestFrames.write(dir, FRAMES, WIDTH, HEIGHT, (f, x, y) -> 0xFF000000 | f * 0x1F1F1F);
+        manager.registerWallpaper(ID, dir, FPS, FRAMES, WIDTH, HEIGHT, true);
+        manager.warmUp(ID, FRAMES).get();
+
+        render();
+        assertCounts("frame đầu", 1, 1, FRAME_BYTES, 1);
+
+        render();
+        render();
+        assertCounts("frame không đổi", 0, 2, 0, 0);
+
+        for (int frame = 1; frame < FRAMES; frame++) {
+            manager.seek(ID, (frame + 0.5) / FPS);
+            manager.tick();
+            render();
+            render();
+            assertCounts("frame " + frame, 1, 2, FRAME_BYTES, 0);
+        }
+    }
+
+    @Test
+    void staticWallpaperUploadsOnce() throws Exception {
+        TestFrames.write(dir, FRAMES, WIDTH, HEIGHT, (f, x, y) -> 0xFF000000 | x * 6 << 8 | y * 10);
+        manager.registerWallpaper(ID, dir, FPS, FRAMES, WIDTH, HEIGHT, true);
+        manager.warmUp(ID, FRAMES).get();
+        manager.play(ID);
+
+        render();
+        assertCounts("frame đầu", 1, 1, FRAME_BYTES, 1);
+        for (int i = 0; i < 10; i++) {
+            Thread.sleep(1000 / FPS / 2);
+            manager.tick();
+            render();
+        }
+        assertCounts("STATIC đang phát", 0, 10, 0, 0);
+    }
+
+    private void render() {
+        manager.render(ID, 0, 0, WIDTH, HEIGHT);
+    }
+
+    /** So bộ đếm của backend kể từ lần gọi trước rồi đặt lại */
+    private void assertCounts(String what, long uploads, long draws, long bytes, long texturesCreated) {
+        long actualUploads = backend.getUploads();
+        long actualDraws = backend.getDraws();
+        long actualBytes = backend.getUploadedBytes();
+        long actualCreated = backend.getTexturesCreated();
+        backend.reset();
+        assertAll(what,
+                () -> assertEquals(uploads, actualUploads, "upload"),
+                () -> assertEquals(draws, actualDraws, "vẽ"),
+                () -> assertEquals(bytes, actualBytes, "byte upload"),
+                () -> assertEquals(texturesCreated, actualCreated, "texture tạo mới"));
+    }
+}
@@ -0,0 +1,158 @@
+package com.livewallpaper.api;
+
+import com.livewallpaper.api.metrics.MetricsSnapshot;
+import com.livewallpaper.api.metrics.WallpaperMetrics;
+import com.livewallpaper.api.render.RecordingRenderBackend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tạm ngưng wallpaper bị ẩn, không cần GPU.
+ *
+ * Hai wallpaper A và B cùng phát; kiểm tra:
+ * - Chỉ render A: sau idle timeout B bị tạm ngưng, cache của B chỉ còn frame đang hiện, B không decode thêm.
+ * - setVisible(A, false): A tạm ngưng ngay; game vẫn tick nhưng không wallpaper nào decode hay đọc đĩa.
+ * - setVisible(B, true): chỉ frame hiện tại (theo đồng hồ) được decode; render B thì vị trí khớp đồng hồ.
+ * - render A sau khi bị ẩn: A tiếp tục ngay.
+ * - Wallpaper chưa render lần nào (đang làm nóng) không bị tạm ngưng vì idle.
+ */
+class SuspendTest {
+
+    private static final int FRAMES = 24;
+    private static final int FPS = 30;
+    private static final int WIDTH = 64;
+    private static final int HEIGHT = 36;
+    private static final long FRAME_BYTES = (long) WIDTH * HEIGHT * 4;
+    private static final long IDLE_MS = 200;
+
+    @TempDir
+    Path root;
+
+    private Path dirA;
+    private Path dirB;
+    private WallpaperManager manager;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dirA = TestFrames.writeMarked(root.resolve("a"), FRAMES, WIDTH, HEIGHT);
+        dirB = TestFrames.writeMarked(root.resolve("b"), FRAMES, WIDTH, HEIGHT);
+        manager = new WallpaperManager(new RecordingRenderBackend());
+        manager.setIdleSuspendMillis(IDLE_MS);
+        manager.registerWallpaper("a", dirA, FPS, FRAMES, WIDTH, HEIGHT, true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.unregisterWallpaper("a");
+        manager.unregisterWallpaper("b");
+    }
+
+    @Test
+    void hiddenWallpapersSuspendAndResumeAtClock() throws Exception {
+        manager.registerWallpaper("b", dirB, FPS, FRAMES, WIDTH, HEIGHT, true);
+        manager.play("a");
+        manager.play("b");
+
+        renderFor(500, "a", "b");
+        assertAll("đang render cả hai",
+                () -> assertFalse(manager.isSuspended("a"), "A bị tạm ngưng"),
+                () -> assertFalse(manager.isSuspended("b"), "B bị tạm ngưng"),
+                () -> assertTrue(metrics("b").residentBytes > FRAME_BYTES, "B chưa prefetch gì khi đang hiện"));
+
+        // Chỉ render A: B quá idle timeout → tạm ngưng, trả cache
+        renderFor(3 * IDLE_MS, "a");
+        assertTrue(manager.isSuspended("b"), "B không được render " + 3 * IDLE_MS + " ms mà chưa tạm ngưng");
+        assertFalse(manager.isSuspended("a"), "A đang render mà bị tạm ngưng");
+        Thread.sleep(50); // decode đang chạy dở (nếu có) xong và bị bỏ
+        assertTrue(metrics("b").residentBytes <= FRAME_BYTES,
+                "B tạm ngưng còn " + metrics("b").residentBytes + " byte cache");
+        long decodesB = metrics("b").decode.count;
+        renderFor(400, "a");
+        assertEquals(decodesB, metrics("b").decode.count, "B tạm ngưng vẫn decode");
+
+        // Ẩn A: tạm ngưng ngay, game vẫn tick nhưng không còn công việc nào
+        manager.setVisible("a", false);
+        assertTrue(manager.isSuspended("a"), "setVisible(false) không tạm ngưng ngay");
+        Thread.sleep(50);
+        assertTrue(metrics("a").residentBytes <= FRAME_BYTES,
+                "A bị ẩn còn " + metrics("a").residentBytes + " byte cache");
+        MetricsSnapshot before = manager.getMetrics();
+        tickFor(500);
+        MetricsSnapshot after = manager.getMetrics();
+        assertAll("cả hai bị ẩn",
+                () -> assertEquals(before.decode.count, after.decode.count, "vẫn decode"),
+                () -> assertEquals(before.encodedMisses, after.encodedMisses, "vẫn đọc đĩa"));
+
+        // Hiện lại B: chỉ frame hiện tại theo đồng hồ được decode trước
+        decodesB = metrics("b").decode.count;
+        int clockFrame = clockFrame(manager.getPlaybackState("b"));
+        manager.setVisible("b", true);
+        Thread.sleep(200);
+        long warmed = metrics("b").decode.count - decodesB;
+        assertTrue(warmed <= 1, "hiện lại B decode " + warmed + " frame (chỉ cần frame hiện tại)");
+        String storeB = dirB.toAbsolutePath().normalize().toString();
+        int checkFrame = clockFrame(manager.getPlaybackState("b"));
+        manager.render("b", 0, 0, WIDTH, HEIGHT);
+        assertFalse(manager.isSuspended("b"), "render B mà B vẫn tạm ngưng");
+        int shown = (int) Math.round(manager.getPosition("b") * FPS);
+        assertTrue(Math.abs(shown - checkFrame) <= 1 || Math.abs(shown - checkFrame) == FRAMES - 1,
+                "B hiện lại ở frame " + shown + ", đồng hồ ở frame " + checkFrame);
+        assertTrue(manager.getCache().hasFrame(storeB, clockFrame, 0)
+                        || manager.getCache().hasFrame(storeB, (clockFrame + 1) % FRAMES, 0),
+                "frame hiện tại của B (" + clockFrame + ") chưa được decode trước khi render");
+
+        // A bị ẩn vẫn tạm ngưng khi tick; render A thì tiếp tục ngay
+        tickFor(100);
+        assertTrue(manager.isSuspended("a"), "A bị ẩn tự tiếp tục khi tick");
+        manager.render("a", 0, 0, WIDTH, HEIGHT);
+        assertFalse(manager.isSuspended("a"), "render A mà A vẫn tạm ngưng");
+    }
+
+    /** Wallpaper đăng ký và làm nóng lúc khởi động, chưa render: không bị coi là idle, giữ frame đã decode */
+    @Test
+    void neverShownWallpaperKeepsWarmedFrames() throws Exception {
+        int warmed = manager.warmUp("a", FRAMES).get();
+        tickFor(3 * IDLE_MS);
+        assertFalse(manager.isSuspended("a"), "chưa render lần nào mà bị tạm ngưng vì idle");
+        assertTrue(metrics("a").residentBytes >= warmed * FRAME_BYTES,
+                "frame làm nóng bị trả: còn " + metrics("a").residentBytes + " byte cho " + warmed + " frame");
+    }
+
+    /** Frame đang hiện theo đồng hồ phát */
+    private static int clockFrame(PlaybackState state) {
+        return state.getLoopMode().frameAt(state.frameAt(System.nanoTime()), FRAMES);
+    }
+
+    /** Render các wallpaper 60 lần/giây */
+    private void renderFor(long millis, String... ids) throws InterruptedException {
+        long end = System.nanoTime() + millis * 1_000_000L;
+        while (System.nanoTime() - end < 0) {
+            for (String id : ids) {
+                manager.render(id, 0, 0, WIDTH, HEIGHT);
+            }
+            Thread.sleep(16);
+        }
+    }
+
+    /** Tick 60 lần/giây, không render (như game đang ở màn hình che wallpaper) */
+    private void tickFor(long millis) throws InterruptedException {
+        long end = System.nanoTime() + millis * 1_000_000L;
+        while (System.nanoTime() - end < 0) {
+            manager.tick();
+            Thread.sleep(16);
+        }
+    }
+
+    private WallpaperMetrics.Snapshot metrics(String id) {
+        return manager.getMetrics().wallpapers.get(id);
+    }
+}
@@ -0,0 +1,51 @@
+package com.livewallpaper.api;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Bộ frame tổng hợp cho test: ghi frame_0000.png... vào một thư mục.
+ */
+public final class TestFrames {
+
+    /** Màu ARGB của một pixel trong một frame */
+    @FunctionalInterface
+    public interface Painter {
+        int argb(int frame, int x, int y);
+    }
+
+    private TestFrames() {
+    }
+
+    /** Ghi frames frame PNG (ARGB) vào dir, tạo thư mục nếu chưa có */
+    public static Path write(Path dir, int frames, int width, int height, Painter painter) throws IOException {
+        Files.createDirectories(dir);
+        for (int f = 0; f < frames; f++) {
+            ImageIO.write(image(f, width, height, painter), "png", path(dir, f).toFile());
+        }
+        return dir;
+    }
+
+    /** Frame f có một pixel trắng ở (f % width, f % height) trên nền đen: mọi frame khác nhau nếu frames <= width */
+    public static Path writeMarked(Path dir, int frames, int width, int height) throws IOException {
+        return write(dir, frames, width, height,
+                (f, x, y) -> x == f % width && y == f % height ? 0xFFFFFFFF : 0xFF000000);
+    }
+
+    public static BufferedImage image(int frame, int width, int height, Painter painter) {
+        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                img.setRGB(x, y, painter.argb(frame, x, y));
+            }
+        }
+        return img;
+    }
+
+    public static Path path(Path dir, int frame) {
+        return dir.resolve(String.format("frame_%04d.png", frame));
+    }
+}
@@ -0,0 +1,176 @@
+package com.livewallpaper.api.archive;
+
+import com.livewallpaper.api.TestFrames;
+import com.livewallpaper.api.WallpaperDescriptor;
+import com.livewallpaper.api.cache.FrameBuffer;
+import com.livewallpaper.api.cache.FrameStore;
+import com.livewallpaper.api.util.PixelConverter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Đóng gói thư mục frames thành .lwp rồi đọc lại, không cần GPU.
+ *
+ * - Header (id UTF-8, codec, loop, fps, số frame, kích thước) đọc lại đúng như khi đóng gói.
+ * - Index: các payload liền nhau ngay sau index, hết đúng ở cuối file; RAW mỗi frame đúng width × height × 4.
+ * - RAW và DEFLATE: mọi frame đọc lại khớp từng byte với ảnh gốc.
+ * - Map theo đoạn nhỏ (nhiều đoạn, kể cả đoạn nhỏ hơn một frame): mọi frame vẫn khớp.
+ * - Index trỏ ra ngoài file hoặc sai magic → IOException.
+ */
+class WallpaperArchiveTest {
+
+    private static final String ID = "hình-nền";
+    private static final int FRAMES = 6;
+    private static final int FPS = 24;
+    private static final int WIDTH = 20;
+    private static final int HEIGHT = 12;
+    private static final int FRAME_BYTES = WIDTH * HEIGHT * 4;
+
+    @TempDir
+    Path dir;
+
+    private final FrameStore store = new FrameStore(0);
+
+    @AfterEach
+    void tearDown() {
+        store.trim();
+    }
+
+    @Test
+    void rawRoundTrip() throws IOException {
+        Path archivePath = pack(WallpaperArchive.CODEC_RAW, false);
+        WallpaperArchive archive = WallpaperArchive.open(archivePath);
+        try {
+            assertAll("header",
+                    () -> assertEquals(ID, archive.getId()),
+                    () -> assertEquals(WallpaperArchive.CODEC_RAW, archive.getCodec()),
+                    () -> assertFalse(archive.isLoop()),
+                    () -> assertEquals(FPS, archive.getFps()),
+                    () -> assertEquals(FRAMES, archive.getFrameCount()),
+                    () -> assertEquals(WIDTH, archive.getWidth()),
+                    () -> assertEquals(HEIGHT, archive.getHeight()));
+            assertFramesMatch(archive);
+        } finally {
+            archive.close();
+        }
+
+        WallpaperDescriptor desc = WallpaperArchive.describe(archivePath, null);
+        assertAll("describe",
+                () -> assertEquals(ID, desc.id),
+                () -> assertEquals(FRAMES, desc.frames),
+                () -> assertEquals(FPS, desc.fps));
+    }
+
+    @Test
+    void deflateRoundTrip() throws IOException {
+        Path archivePath = pack(WallpaperArchive.CODEC_DEFLATE, true);
+        WallpaperArchive archive = WallpaperArchive.open(archivePath);
+        try {
+            assertEquals(WallpaperArchive.CODEC_DEFLATE, archive.getCodec());
+            assertTrue(archive.isLoop());
+            assertFramesMatch(archive);
+        } finally {
+            archive.close();
+        }
+        assertTrue(Files.size(archivePath) < (long) FRAMES * FRAME_BYTES, "DEFLATE không nhỏ hơn RGBA thô");
+    }
+
+    @Test
+    void indexPointsAtContiguousPayloads() throws IOException {
+        Path archivePath = pack(WallpaperArchive.CODEC_RAW, true);
+        ByteBuffer file = ByteBuffer.wrap(Files.readAllBytes(archivePath));
+        int indexPos = 10 + ID.getBytes(StandardCharsets.UTF_8).length + 16;
+        long expectedOffset = indexPos + FRAMES * 12L;
+        for (int i = 0; i < FRAMES; i++) {
+            long offset = file.getLong(indexPos + i * 12);
+            int length = file.getInt(indexPos + i * 12 + 8);
+            assertEquals(expectedOffset, offset, "offset frame " + i);
+            assertEquals(FRAME_BYTES, length, "độ dài frame " + i);
+            expectedOffset += length;
+        }
+        assertEquals(file.capacity(), expectedOffset, "payload cuối không hết ở cuối file");
+    }
+
+    @Test
+    void smallChunksMapEveryFrame() throws IOException {
+        Path archivePath = pack(WallpaperArchive.CODEC_RAW, true);
+        for (long maxChunk : new long[]{2L * FRAME_BYTES, FRAME_BYTES - 1}) {
+            WallpaperArchive archive = WallpaperArchive.open(archivePath, maxChunk);
+            try {
+                int expectedChunks = maxChunk < FRAME_BYTES ? FRAMES : FRAMES / 2;
+                assertEquals(expectedChunks, archive.chunkCount(), "số đoạn map với maxChunk = " + maxChunk);
+                assertFramesMatch(archive);
+            } finally {
+                archive.close();
+            }
+        }
+    }
+
+    @Test
+    void rejectsIndexOutsideFileAndBadMagic() throws IOException {
+        Path archivePath = pack(WallpaperArchive.CODEC_RAW, true);
+        int lastLength = 10 + ID.getBytes(StandardCharsets.UTF_8).length + 16 + (FRAMES - 1) * 12 + 8;
+        try (FileChannel channel = FileChannel.open(archivePath, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).putInt(0, FRAME_BYTES + 1), lastLength);
+        }
+        assertThrows(IOException.class, () -> WallpaperArchive.open(archivePath), "index ra ngoài file");
+
+        try (FileChannel channel = FileChannel.open(archivePath, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap("NOPE".getBytes(StandardCharsets.US_ASCII)), 0);
+        }
+        assertThrows(IOException.class, () -> WallpaperArchive.open(archivePath), "sai magic");
+    }
+
+    private void assertFramesMatch(WallpaperArchive archive) throws IOException {
+        PixelConverter converter = new PixelConverter(false);
+        for (int frame = 0; frame < FRAMES; frame++) {
+            FrameBuffer buffer = archive.readFrame(frame, 0, store, converter);
+            try {
+                assertArrayEquals(rgba(frame), bytes(buffer.pixels()), "frame " + frame);
+            } finally {
+                buffer.release();
+            }
+        }
+    }
+
+    private Path pack(int codec, boolean loop) throws IOException {
+        Path folder = TestFrames.write(dir.resolve("frames"), FRAMES, WIDTH, HEIGHT, WallpaperArchiveTest::argb);
+        Path output = dir.resolve("wallpaper" + WallpaperArchive.EXTENSION);
+        WallpaperPacker.pack(folder, output, ID, FPS, loop, codec, DeltaCodec.DEFAULT_TILE_SIZE,
+                DeltaCodec.DEFAULT_KEYFRAME_INTERVAL);
+        return output;
+    }
+
+    /** Mỗi frame một gradient khác nhau, alpha đổi theo cột */
+    private static int argb(int frame, int x, int y) {
+        return (255 - x * 5) << 24 | (frame * 40) << 16 | (x * 12) << 8 | (y * 20);
+    }
+
+    private static byte[] rgba(int frame) {
+        ByteBuffer buf = ByteBuffer.allocate(FRAME_BYTES);
+        new PixelConverter(false).convert(TestFrames.image(frame, WIDTH, HEIGHT, WallpaperArchiveTest::argb), buf);
+        return buf.array();
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] out = new byte[buffer.remaining()];
+        buffer.duplicate().get(out);
+        return out;
+    }
+}